@@ -0,0 +1,48 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prepares the cold start benchmark of the coldStartBenchmark task in app/build.gradle, which
+ * starts the main activity several times on a device or an emulator, and fails if the time to
+ * its first frame or to its first news gets over the budget.
+ * <p>
+ * The starts themselves are measured from the host with "am start -W -S", since the process of
+ * the app is killed before every start, and this test runs in that process. It only stores the
+ * articles which are shown, so the time doesn't depend on the network.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    /**
+     * Number of articles which are stored, more than the list shows on the first screen
+     */
+    private static final int ARTICLE_COUNT = 100;
+
+    @Test
+    public void storeArticles() {
+        // Store articles to show, as a previous sync would have
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<News> articles = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ARTICLE_COUNT; i++) {
+            articles.add(new News("Stored article " + i, "World news", "Author " + i % 7,
+                    now - i * 60_000L, "https://www.theguardian.com/world/article-" + i));
+        }
+        SQLiteArticleStore store = SQLiteArticleStore.getInstance(context);
+        store.merge(articles);
+
+        assertTrue(store.size() >= ARTICLE_COUNT);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.newsapp;
+
+import android.util.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@link JsonPullParser} backed by the JSON reader of the platform, so the app doesn't
+ * need a JSON library of its own
+ */
+public class AndroidJsonPullParser implements JsonPullParser {
+
+    private final JsonReader mReader;
+
+    public AndroidJsonPullParser(Reader reader) {
+        mReader = new JsonReader(reader);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        mReader.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        mReader.endArray();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        mReader.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        mReader.endObject();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return mReader.hasNext();
+    }
+
+    @Override
+    public Token peek() throws IOException {
+        // Both have the same tokens
+        return Token.valueOf(mReader.peek().name());
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        return mReader.nextName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        return mReader.nextString();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        mReader.nextNull();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        mReader.skipValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
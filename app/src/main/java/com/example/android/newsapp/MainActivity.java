@@ -1,166 +1,292 @@
 package com.example.android.newsapp;
 
-import android.app.LoaderManager;
 import android.content.Context;
-import android.content.Intent;
-import android.content.Loader;
-import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.net.Uri;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
-import android.util.Log;
+import android.os.Looper;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<News>> {
+/**
+ * Shows the list of the news.
+ * <p>
+ * Only what the first frame needs is done while the activity is created: the news are loaded
+ * in the background, starting with the ones which were cached or stored before, and the work
+ * which isn't needed for the list is deferred until the main thread is idle. The time to the
+ * first frame and to the first news is measured by a {@link StartupTracer}.
+ * <p>
+ * When the activity is stopped, the list and its scroll position are saved, so they are shown
+ * again right away if the process is killed in the background.
+ */
+public class MainActivity extends AppCompatActivity {
 
     private static final String LOG_TAG = NewsAdapter.class.getName();
 
     /**
-     * URL for news data from the Guardian dataset
+     * The maximum number of news which are shown for a search
      */
-    private static final String GUARDIAN_URL_REQUEST =
-            "https://content.guardianapis.com/";
+    private static final int MAX_SEARCH_RESULTS = 100;
 
     /**
-     * Constant value for the news loader ID. We can choose any integer.
-     * This really only comes into play if you're using multiple loaders.
+     * Adapter for the list of news
      */
-    private static final int NEWS_LOADER_ID = 1;
+    private NewsAdapter mAdapter;
 
     /**
-     * Adapter for the list of news
+     * The list of news, and its layout manager which knows the rows on the screen
      */
-    private NewsAdapter mAdapter;
+    private RecyclerView mRecyclerView;
+    private LinearLayoutManager mLayoutManager;
+
+    /**
+     * Loads the news and keeps them across configuration changes
+     */
+    private NewsViewModel mViewModel;
+
+    /**
+     * The news which were loaded, shown whenever there is no search
+     */
+    private List<News> mNews = new ArrayList<>();
+
+    /**
+     * Reference to the {@link TextView} which is displayed when the list is empty
+     */
+    private TextView mEmptyStateTextView;
 
+    /**
+     * The query which is searched for, or null if the list shows the loaded news
+     */
+    private String mSearchQuery;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Find a reference to the {@link ListView} in the layout
-        ListView newsListView = findViewById(R.id.listview);
+        // Find a reference to the {@link RecyclerView} in the layout
+        mRecyclerView = findViewById(R.id.recycler_view);
 
-        // Find a reference to the {@link TextView} which is displayed in case there's no connection
-        TextView mEmptyStateTextView = findViewById(R.id.empty_view);
-        newsListView.setEmptyView(mEmptyStateTextView);
+        // Measure the start of the activity, unless it is just created again after a
+        // configuration change
+        if (savedInstanceState == null) {
+            new StartupTracer(this, mRecyclerView);
+        }
 
-        // Create a new adapter that takes an empty list of news as input
-        mAdapter = new NewsAdapter(this, new ArrayList<>());
+        mLayoutManager = new LinearLayoutManager(this);
+        mRecyclerView.setLayoutManager(mLayoutManager);
 
-        // Set the adapter on the {@link ListView} so the list can be populated in the user interface
-        newsListView.setAdapter(mAdapter);
+        // Every row has the same height, so the size of the list never depends on its content
+        mRecyclerView.setHasFixedSize(true);
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open a website with more information about the selected news.
-        newsListView.setOnItemClickListener((adapterView, view, position, l) -> {
-            // Find the current news that was clicked on
-            News currentNews = mAdapter.getItem(position);
+        // Find a reference to the {@link TextView} which is displayed in case there's no connection
+        mEmptyStateTextView = findViewById(R.id.empty_view);
+
+        // Create a new adapter, which opens the news that was clicked on in the reader
+        mAdapter = new NewsAdapter(currentNews ->
+                startActivity(ReaderActivity.newIntent(this, currentNews)),
+                ThumbnailLoader.getInstance(this));
+
+        // Set the adapter on the {@link RecyclerView} so the list can be populated in the user interface
+        mRecyclerView.setAdapter(mAdapter);
+
+        // Load the next page in the background once the user scrolls close to the end of the
+        // list, or the previous page once the user scrolls close to the start of it.
+        // The search results aren't paged.
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int firstVisibleItem = mLayoutManager.findFirstVisibleItemPosition();
+                if (firstVisibleItem == RecyclerView.NO_POSITION || mSearchQuery != null) {
+                    return;
+                }
+                mViewModel.onScrolled(firstVisibleItem, recyclerView.getChildCount(),
+                        mLayoutManager.getItemCount());
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                // The user stopped on these rows, so they might open one of them
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleBodies();
+                }
+            }
+        });
 
-            // Convert the String URL into a URI object (to pass into the Intent constructor)
-            Uri newsUri = Uri.parse(currentNews.getmURL());
+        // The view model outlives configuration changes, so after a rotation it still holds
+        // the news, and the loads which were in progress continue. If the process was killed
+        // since the activity was created before, the news are restored from the snapshot.
+        mViewModel = new ViewModelProvider(this).get(NewsViewModel.class);
+        mViewModel.start(savedInstanceState != null);
 
-            // Create a new intent to view the news URI
-            Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsUri);
+        mViewModel.getNews().observe(this, news -> {
+            mNews = news;
+            showNews();
+        });
 
-            // Send the intent to launch a new activity
-            startActivity(websiteIntent);
+        ProgressBar progressBar = findViewById(R.id.loading_spinner);
+        mViewModel.isLoading().observe(this, loading -> {
+            progressBar.setVisibility(loading ? View.VISIBLE : View.GONE);
+            if (!loading) {
+                // Nothing could be loaded or found in the store, most likely because
+                // there's no connection
+                mEmptyStateTextView.setText(mViewModel.isOffline()
+                        ? R.string.no_internet_connection : R.string.no_news_found);
+            }
         });
 
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        ConnectivityManager connMgr =
-                (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        // Get details on the currently active default data network
-        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
-
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
-
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
-            loaderManager.initLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            View loadingIndicator = findViewById(R.id.loading_spinner);
-            loadingIndicator.setVisibility(View.GONE);
-
-            // Update empty state with no connection error message
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
-        }
+        // Keep the stored articles up to date in the background. Scheduling the sync isn't
+        // needed for the first frame, so it waits until the main thread is idle.
+        Context appContext = getApplicationContext();
+        Looper.myQueue().addIdleHandler(() -> {
+            NewsSyncWorker.schedule(appContext);
+            return false;
+        });
     }
 
 
-    /**
-     * OnCreateLoader instantiates and returns a new Loader for the given ID
-     */
     @Override
-    public Loader<List<News>> onCreateLoader(int id, Bundle args) {
-
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-
-        // parse breaks apart the URI string that's passed into its parameter
-        Uri baseUri = Uri.parse(GUARDIAN_URL_REQUEST);
-
-        // TODO: Build the string through URL.
-
-        // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
-        Uri.Builder uriBuilder = baseUri.buildUpon();
+    protected void onStop() {
+        super.onStop();
+
+        // The process may be killed from now on, so save the list with the rows on the screen.
+        // The search results aren't saved, just the news below them.
+        int position = 0;
+        int offset = 0;
+        View firstRow = mRecyclerView.getChildAt(0);
+        if (mSearchQuery == null && firstRow != null) {
+            position = mLayoutManager.getPosition(firstRow);
+            offset = mLayoutManager.getDecoratedTop(firstRow) - mRecyclerView.getPaddingTop();
+        }
+        mViewModel.saveSnapshot(position, offset);
+    }
 
-        uriBuilder.path("search");
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("api-key", "test");
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
 
-        return new NewsLoader(this, uriBuilder.toString());
+        // The results of a search in progress would be shown by this activity, which is gone
+        mViewModel.cancelSearch();
     }
 
-
     @Override
-    public void onLoadFinished(Loader<List<News>> loader, List<News> news) {
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+
+        // Search the news on the device while the user types, without the network
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // The results are already shown, so just hide the keyboard
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                search(query);
+                return true;
+            }
+        });
 
-        // Clear the adapter of previous news data
-        mAdapter.clear();
+        // Show the loaded news again once the search is closed
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                mSearchQuery = null;
+                mViewModel.cancelSearch();
+                showNews();
+                return true;
+            }
+        });
+        return true;
+    }
 
-        // If there is a valid list of {@link Earthquake}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
-        if (news != null && !news.isEmpty()) {
-            mAdapter.addAll(news);
+    /**
+     * Show the news which match the query, from the best to the worst match. An empty query
+     * shows all of the loaded news. The index is searched in the background.
+     */
+    private void search(String query) {
+        if (query.trim().isEmpty()) {
+            mSearchQuery = null;
+            mViewModel.cancelSearch();
+            showNews();
+            return;
         }
 
-        TextView emptyTextView = findViewById(R.id.empty_view);
-        emptyTextView.setText(R.string.no_news_found);
+        mSearchQuery = query;
+        mViewModel.search(query, MAX_SEARCH_RESULTS, this::showSearchResults);
+    }
 
-        ProgressBar progressBar = findViewById(R.id.loading_spinner);
-        progressBar.setVisibility(View.GONE);
+    private void showSearchResults(@Nullable List<News> results) {
+        if (mSearchQuery == null || results == null) {
+            return;
+        }
+        mAdapter.submitList(results, this::prefetchVisibleBodiesAfterLayout);
 
+        mEmptyStateTextView.setText(R.string.no_news_found);
+        mEmptyStateTextView.setVisibility(results.isEmpty() ? View.VISIBLE : View.GONE);
     }
 
-    @Override
-    public void onLoaderReset(Loader<List<News>> loader) {
-        // Loader reset, so we can clear out our existing data.
-        mAdapter.clear();
+    /**
+     * Submit the news to the adapter, which computes the differences to the news on the screen
+     * in the background, and show the empty view if there are no news.
+     * While the user searches, the search results stay on the screen instead.
+     */
+    private void showNews() {
+        if (mSearchQuery != null) {
+            return;
+        }
+        FeedSnapshot restored = mViewModel.takeRestoredSnapshot();
+        mAdapter.submitList(mNews, () -> {
+            // Scroll back to the rows which were on the screen before the process was killed
+            if (restored != null) {
+                mLayoutManager.scrollToPositionWithOffset(restored.getScrollPosition(),
+                        restored.getScrollOffset());
+            }
+            prefetchVisibleBodiesAfterLayout();
+        });
+        mEmptyStateTextView.setVisibility(mNews.isEmpty() ? View.VISIBLE : View.GONE);
     }
-}
-
-
-
-
-
-
 
+    /**
+     * Prefetch the texts of the articles on the screen, once the list shows the news which were
+     * just submitted
+     */
+    private void prefetchVisibleBodiesAfterLayout() {
+        mRecyclerView.post(this::prefetchVisibleBodies);
+    }
 
+    /**
+     * Prefetch the texts of the articles on the screen, so they open right away in the reader
+     */
+    private void prefetchVisibleBodies() {
+        int first = mLayoutManager.findFirstVisibleItemPosition();
+        int last = mLayoutManager.findLastVisibleItemPosition();
+        List<News> shown = mAdapter.getCurrentList();
+        if (first == RecyclerView.NO_POSITION || last >= shown.size()) {
+            return;
+        }
+        mViewModel.prefetchBodies(shown.subList(first, last + 1));
+    }
+}
@@ -1,120 +1,185 @@
 package com.example.android.newsapp;
 
-import android.app.Activity;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
-import android.widget.LinearLayout;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.Objects;
 
-public class NewsAdapter extends ArrayAdapter<News> {
+public class NewsAdapter extends ListAdapter<News, NewsAdapter.NewsViewHolder> {
 
 
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
     /**
-     * This is our own custom constructor (it doesn't mirror a superclass constructor).
-     * The context is used to inflate the layout file, and the list is the data we want
-     * to populate into the lists.
-     *
-     * @param context The current context. Used to inflate the layout file.
-     * @param news    A List of News objects to display in a list
+     * Callback which is called when the user clicks on a news
      */
-    public NewsAdapter(Activity context, ArrayList<News> news) {
-        // Here, we initialize the ArrayAdapter's internal storage for the context and the list.
-        // the second argument is used when the ArrayAdapter is populating a single TextView.
-        // Because this is a custom adapter for four TextViews, the adapter is not
-        // going to use this second argument, so it can be any value. Here, we used 0.
-        super(context, 0, news);
+    public interface OnNewsClickListener {
+        void onNewsClick(News news);
     }
 
-    @NonNull
-    @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+    /**
+     * Compares the news of the old and the new list, so only the rows which changed are bound
+     * again. A news is identified by its URL.
+     */
+    private static final DiffUtil.ItemCallback<News> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<News>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull News oldNews, @NonNull News newNews) {
+                    return oldNews.getmURL().equals(newNews.getmURL());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull News oldNews, @NonNull News newNews) {
+                    return oldNews.getmTitle().equals(newNews.getmTitle())
+                            && oldNews.getmSectionName().equals(newNews.getmSectionName())
+                            && Objects.equals(oldNews.getmAuthor(), newNews.getmAuthor())
+                            && oldNews.getmDateMillis() == newNews.getmDateMillis()
+                            && Objects.equals(oldNews.getmThumbnailUrl(),
+                            newNews.getmThumbnailUrl());
+                }
+            };
+
+    // Listener for the clicks on the news
+    private final OnNewsClickListener mClickListener;
+
+    // Loads the thumbnails of the news in the background
+    private final ThumbnailLoader mThumbnailLoader;
 
+    /**
+     * Holds the references to the views of a single row, so they are only looked up
+     * once, when the row is created.
+     */
+    static class NewsViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView mTitleTextView;
+        final TextView mSectionNameTextView;
+        final TextView mAuthorTextView;
+        final TextView mDateTextView;
+        final ImageView mThumbnailImageView;
+
+        // The thumbnail which is being loaded into this row, or null
+        ThumbnailLoader.Request mThumbnailRequest;
+
+        NewsViewHolder(View itemView) {
+            super(itemView);
+            mTitleTextView = itemView.findViewById(R.id.TextViewTitle);
+            mSectionNameTextView = itemView.findViewById(R.id.TextViewSectionName);
+            mAuthorTextView = itemView.findViewById(R.id.TextViewAuthor);
+            mDateTextView = itemView.findViewById(R.id.TextViewDate);
+            mThumbnailImageView = itemView.findViewById(R.id.ImageViewThumbnail);
+        }
 
-        // Check if the existing view is being reused, otherwise inflate the view
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
+        /**
+         * Stop loading the thumbnail of the news which was shown in this row before
+         */
+        void cancelThumbnail() {
+            if (mThumbnailRequest != null) {
+                mThumbnailRequest.cancel();
+                mThumbnailRequest = null;
+            }
         }
+    }
 
+    /**
+     * Constructs a new {@link NewsAdapter}.
+     * The differences between the old and the new list are computed on a background thread,
+     * every time a new list is submitted with {@link #submitList(java.util.List)}.
+     *
+     * @param clickListener   which is called when the user clicks on a news
+     * @param thumbnailLoader which loads the thumbnails of the news
+     */
+    public NewsAdapter(OnNewsClickListener clickListener, ThumbnailLoader thumbnailLoader) {
+        super(DIFF_CALLBACK);
+        mClickListener = clickListener;
+        mThumbnailLoader = thumbnailLoader;
+    }
 
-        // Get the {@link News} object located at this position in the list
-        News currentNews = getItem(position);
+    @NonNull
+    @Override
+    public NewsViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View listItemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.list_item, parent, false);
+        NewsViewHolder holder = new NewsViewHolder(listItemView);
+
+        // Send the clicked news to the listener
+        listItemView.setOnClickListener(view -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                mClickListener.onNewsClick(getItem(position));
+            }
+        });
+        return holder;
+    }
 
+    @Override
+    public void onBindViewHolder(@NonNull NewsViewHolder holder, int position) {
+        long start = System.nanoTime();
 
-        // Find the TextView in the list_item.xml layout with the ID magnitude
-        TextView titleTextView = listItemView.findViewById(R.id.TextViewTitle);
-        // Set the text of this TextView to be the title of this News
-        titleTextView.setText(currentNews.getmTitle());
+        // Get the {@link News} object located at this position in the list.
+        // Its labels were already formatted on the loader thread by {@link NewsFormatter},
+        // so there is nothing left to build here.
+        News currentNews = getItem(position);
 
-        // Find the TextView in the list_item.xml layout with the TextViewSectionName
-        TextView sectionNameTextView = listItemView.findViewById(R.id.TextViewSectionName);
-        // Set the text of this TextView to be the section name of this news
-        sectionNameTextView.setText(String.format("%s %s",
-                getContext().getString(R.string.section_name), currentNews.getmSectionName()));
+        // Set the text of the title TextView to be the title of this News
+        holder.mTitleTextView.setText(currentNews.getmTitle());
 
-        // Find the TextView in the list_item.xml layout with the TextViewAuthor
-        TextView authorTextView = listItemView.findViewById(R.id.TextViewAuthor);
+        // Set the text of the section name TextView to be the section name of this news
+        holder.mSectionNameTextView.setText(currentNews.getSectionLabel());
 
 
         // We don't know if all the news will contain information about the Author. As explained
         // in the News class, if there is no information about the author, the instance is going
-        // to be created by constructing the object with the value "none" in place of the author
+        // to be created by constructing the object with null in place of the author
         if (currentNews.hasAuthor()) {
-            authorTextView.setText(String.format("%s %s",
-                    getContext().getString(R.string.author_name),
-                    currentNews.getmAuthor()));
-            authorTextView.setVisibility(View.VISIBLE);
+            holder.mAuthorTextView.setText(currentNews.getAuthorLabel());
+            holder.mAuthorTextView.setVisibility(View.VISIBLE);
         } else {
             // Hide the visibility of the TextViews for the author section
-            authorTextView.setVisibility(View.GONE);
+            holder.mAuthorTextView.setVisibility(View.GONE);
         }
 
 
-        // Find the TextView in the list_item.xml layout with the TextViewAuthor
-        TextView dateTextView = listItemView.findViewById(R.id.TextViewDate);
-
         // We don't know if all the news will contain information about the Date. As explained
         // in the News class, if there is no information about the date, the instance is going
-        // to be created by constructing the object with the value "none" in place of the author
+        // to be created by constructing the object with NO_DATE in place of the date
         if (currentNews.hasDate()) {
-            // Guardian api stores strings in format
-            // "yyyy-mm-dd + <part of the string that is not relevant for us>"
-            // So we get those values by calling method substring and building out the full date.
-
-            // First we get the full date
-            String fullDate = currentNews.getmDate();
-
-            // Year:
-            String year = fullDate.substring(0, 4);
-            // Month:
-            String month = fullDate.substring(5, 7);
-            // Day:
-            String day = fullDate.substring(8, 10);
-
-            // I'm gonna format the date in american date format [mm-dd-yyyy]:
-            String finalDate = month + ". " + day + ". " + year;
-
-            dateTextView.setText(String.format("%s %s",
-                    getContext().getString(R.string.date),
-                    finalDate));
+            holder.mDateTextView.setText(currentNews.getDateLabel());
+            // The row might be recycled from a news without a date, so show the TextView again
+            holder.mDateTextView.setVisibility(View.VISIBLE);
         } else {
             // Hide the visibility of the TextViews for the date section
-            dateTextView.setVisibility(View.GONE);
+            holder.mDateTextView.setVisibility(View.GONE);
+        }
+
+        // The thumbnail is loaded in the background, unless it is in the memory cache already.
+        // The row might still be loading the thumbnail of the news it showed before.
+        holder.cancelThumbnail();
+        if (currentNews.hasThumbnail()) {
+            holder.mThumbnailImageView.setVisibility(View.VISIBLE);
+            holder.mThumbnailRequest = mThumbnailLoader.load(currentNews.getmThumbnailUrl(),
+                    holder.mThumbnailImageView);
+        } else {
+            holder.mThumbnailImageView.setImageDrawable(null);
+            holder.mThumbnailImageView.setVisibility(View.GONE);
         }
 
-        return listItemView;
+        NewsMetrics.getInstance().record(NewsMetrics.Metric.BIND, System.nanoTime() - start);
+    }
 
+    @Override
+    public void onViewRecycled(@NonNull NewsViewHolder holder) {
+        // The row was scrolled out of the screen, so its thumbnail isn't needed anymore.
+        // Letting go of the image allows the memory cache to evict it.
+        holder.cancelThumbnail();
+        holder.mThumbnailImageView.setImageDrawable(null);
     }
 
 }
@@ -0,0 +1,21 @@
+package com.example.android.newsapp;
+
+import android.app.Application;
+import android.util.Log;
+
+/**
+ * Plugs the Android platform into the data pipeline, before any of it is used
+ */
+public class NewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Log to the Android log, parse the responses with the JSON reader of the platform,
+        // and make the requests with the key of the build
+        NewsLog.setSink(Log::e);
+        QueryUtils.setJsonParserFactory(AndroidJsonPullParser::new);
+        QueryUtils.setApiKey(BuildConfig.GUARDIAN_API_KEY);
+    }
+}
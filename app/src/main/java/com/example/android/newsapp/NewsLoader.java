@@ -5,44 +5,286 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import android.content.AsyncTaskLoader;
-import android.content.Context;
-
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
-public class NewsLoader extends AsyncTaskLoader<List<News>> {
+/**
+ * Loads a page of the news of all the sections from the memory cache, the disk cache and the
+ * network. It runs as a job of the {@link LoadEngine}, and stops as soon as its token is
+ * cancelled, aborting the requests which are in progress, so it can be pre-empted by a more
+ * urgent load. Its result holds the merged news, and how many news every section returned, so
+ * the caller knows which sections have more pages.
+ */
+public class NewsLoader implements LoadEngine.PreemptibleJob<MultiSectionFetcher.Result> {
 
     // Tag for LOG messages
     private static final String LOG_TAG = NewsLoader.class.getName();
 
-    // Query URL
-    private final String mURL;
+    /**
+     * Number of parsed news after which the first batch is shown. It is kept small so the first
+     * rows can be shown as soon as possible.
+     */
+    private static final int FIRST_BATCH_SIZE = 5;
+
+    /**
+     * Number of parsed news after which every following batch is shown
+     */
+    private static final int BATCH_SIZE = 20;
+
+    /**
+     * Name of the directory (inside of the app's cache directory) with the cached responses
+     */
+    private static final String DISK_CACHE_DIRECTORY = "news";
+
+    /**
+     * Number of stored articles which are shown while the first page is loaded
+     */
+    private static final int STORE_PAGE_SIZE = 40;
+
+    /**
+     * Callback that receives the news in batches on the main thread while the responses
+     * are still being downloaded. The full list is delivered afterwards as the result of the load.
+     */
+    public interface OnNewsBatchListener {
+
+        /**
+         * Called with news which replace the list while the load is still in progress: the news
+         * from the disk cache before the network requests are made, the stored articles, or the
+         * merged news of all the sections which were parsed so far. The final list is delivered
+         * as the result of the load.
+         */
+        void onNewsPreview(List<News> news);
+    }
+
+    // Query URLs, one for every section which is loaded
+    private final List<String> mURLs;
+
+    // Number of the page of the results which is requested by the URLs
+    private final int mPage;
+
+    // Loads the sections in parallel
+    private final MultiSectionFetcher mSectionFetcher = new MultiSectionFetcher();
+
+    // Cache of the parsed responses, which survives restarts of the app
+    private final NewsDiskCache mDiskCache;
+
+    // The articles which were synced in the background, or loaded before
+    private final ArticleStore mArticleStore;
 
+    // Builds the display labels of the news on the loader thread
+    private final NewsFormatter mFormatter;
+
+    // Executor used to post the batches to the main thread
+    private final Executor mMainExecutor;
+
+    // Listener for the batches, null if the news should only be delivered all at once
+    private final OnNewsBatchListener mBatchListener;
 
     /**
-     * Constructs a new {@link NewsLoader}
+     * Constructs a new {@link NewsLoader} for a page of the results of several sections.
+     * The sections are loaded in parallel and their news are merged by the published date.
      *
-     * @param context of the acitivty
-     * @param url     to load data from
+     * @param context  of the app
+     * @param urls     to load data from, one for every section
+     * @param page     number of the page which is requested by the URLs
+     * @param listener which receives the news in batches on the main thread, or null
      */
-    public NewsLoader(@NonNull Context context, String url) {
-        super(context);
-        mURL = url;
+    public NewsLoader(@NonNull Context context, List<String> urls, int page,
+                      @Nullable OnNewsBatchListener listener) {
+        mURLs = urls;
+        mPage = page;
+        mDiskCache = new NewsDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY));
+        mArticleStore = SQLiteArticleStore.getInstance(context);
+        mFormatter = new NewsFormatter(context.getString(R.string.section_name),
+                context.getString(R.string.author_name), context.getString(R.string.date));
+        mMainExecutor = context.getMainExecutor();
+        mBatchListener = listener;
     }
 
-    @Override
-    protected void onStartLoading() {
-        forceLoad();
+    /**
+     * @return the number of the page of the results which is loaded
+     */
+    public int getPage() {
+        return mPage;
     }
 
     @Nullable
     @Override
-    public List<News> loadInBackground() {
+    public MultiSectionFetcher.Result run(CancellationToken token) {
         // Check for the errors
-        if (mURL == null) return null;
+        if (mURLs == null || mURLs.isEmpty()) return null;
 
-        // Perform the network request, parse the JSON response and extract a list of News
-        return QueryUtils.fetchNewsData(mURL);
+        return loadSections(token);
     }
-}
 
+    /**
+     * Load the news of all the sections in parallel and merge them.
+     * The cached news of the sections are shown first, if there are any. Otherwise the
+     * stored articles are shown first, and then the merged news of the sections while they
+     * are being parsed.
+     * <p>
+     * The first page is merged into the article store. If none of its sections can be loaded,
+     * null is returned, and the caller shows the stored articles page by page instead.
+     */
+    private MultiSectionFetcher.Result loadSections(CancellationToken token) {
+        // Show the news of the sections which were cached on the disk right away
+        Map<String, NewsDiskCache.Entry> cachedEntries = new HashMap<>();
+        List<List<News>> cachedSections = new ArrayList<>();
+        if (mBatchListener != null) {
+            for (String url : mURLs) {
+                NewsDiskCache.Entry cached = mDiskCache.get(url);
+                if (cached != null) {
+                    cachedEntries.put(url, cached);
+                    cachedSections.add(cached.getNews());
+                }
+            }
+        }
+        if (!cachedSections.isEmpty()) {
+            List<News> preview = mFormatter.format(MultiSectionFetcher.merge(cachedSections));
+            postPreview(preview, token);
+        } else if (mBatchListener != null && mPage == 1) {
+            // Otherwise show the stored articles, so the list is never empty while
+            // waiting for the network
+            List<News> stored = mFormatter.format(mArticleStore.getNewest(STORE_PAGE_SIZE));
+            if (!stored.isEmpty()) {
+                postPreview(stored, token);
+            }
+        }
+
+        // Without cached news, show the news of the sections while they are being parsed
+        SectionStream stream = mBatchListener != null && cachedSections.isEmpty()
+                ? new SectionStream(token) : null;
+
+        // Every section is loaded with a token of its own, which is cancelled when the section
+        // misses its deadline, or when this token is cancelled
+        MultiSectionFetcher.Result result = mSectionFetcher.fetch(mURLs,
+                (url, sectionToken) ->
+                        loadSection(url, cachedEntries.get(url), stream, sectionToken),
+                null, token);
+
+        // Nobody wants the news anymore, so don't store them either
+        if (token.isCancelled()) {
+            return null;
+        }
+        if (mPage != 1 || result == null) {
+            return result;
+        }
+        mArticleStore.merge(result.getNews());
+        return result;
+    }
+
+    /**
+     * Load the news of a single section. This is called on the threads of the
+     * {@link MultiSectionFetcher}.
+     *
+     * @param cached the entry which was previously cached on the disk for this URL, or null
+     * @param stream which shows the news while they are being parsed, or null
+     * @param token  of the section, which aborts its request when it is cancelled
+     */
+    private List<News> loadSection(String url, @Nullable NewsDiskCache.Entry cached,
+                                   @Nullable SectionStream stream, CancellationToken token) {
+        // If the same query was loaded a moment ago, skip both the network and the parsing
+        NewsMemoryCache memoryCache = NewsMemoryCache.getInstance();
+        List<News> news = memoryCache.get(url);
+
+        if (news == null) {
+            if (cached == null) {
+                cached = mDiskCache.get(url);
+            }
+            // Make every news searchable the moment it is parsed. It is formatted once here, on
+            // the loader thread, instead of when its row is bound.
+            NewsSearchIndex index = NewsSearchIndex.getInstance();
+            List<News> formatted = new ArrayList<>();
+            QueryUtils.OnNewsParsedListener listener = item -> {
+                News formattedItem = mFormatter.format(item);
+                formatted.add(formattedItem);
+                index.add(formattedItem);
+                if (stream != null) {
+                    stream.onNewsParsed(url, formattedItem);
+                }
+            };
+            news = QueryUtils.fetchNewsData(url, mDiskCache, cached, listener, token);
+            if (news != null && !news.isEmpty()) {
+                // The news which weren't parsed, such as the cached ones of a response which
+                // didn't change, weren't formatted yet
+                news = formatted.size() == news.size() ? formatted : mFormatter.format(news);
+                memoryCache.put(url, news);
+            }
+        }
+
+        // A section which missed its deadline is left out
+        if (stream != null && news != null && !token.isCancelled()) {
+            stream.onSectionLoaded(url, news);
+        }
+        return news;
+    }
+
+    /**
+     * Post news which replace the list to the main thread.
+     */
+    private void postPreview(List<News> news, CancellationToken token) {
+        mMainExecutor.execute(() -> {
+            // Don't deliver anything if the load was cancelled in the meantime
+            if (!token.isCancelled()) {
+                mBatchListener.onNewsPreview(news);
+            }
+        });
+    }
+
+    /**
+     * Shows the news of the sections while they are being parsed. The news of all the sections
+     * which were parsed so far are merged by the published date and posted as a preview: after
+     * the first few news, so the first rows are shown as soon as possible, then after every
+     * batch, and after every section which finished loading.
+     * <p>
+     * It is called on the threads of the {@link MultiSectionFetcher}.
+     */
+    private class SectionStream {
+
+        private final CancellationToken mToken;
+
+        // The news of every section parsed so far, by the URL of the section. Guarded by this.
+        private final Map<String, List<News>> mSections = new LinkedHashMap<>();
+
+        // Number of news parsed so far, and after how many news the next batch is posted.
+        // Guarded by this.
+        private int mParsedCount;
+        private int mNextBatchCount = FIRST_BATCH_SIZE;
+
+        SectionStream(CancellationToken token) {
+            mToken = token;
+        }
+
+        synchronized void onNewsParsed(String url, News news) {
+            List<News> section = mSections.get(url);
+            if (section == null) {
+                section = new ArrayList<>();
+                mSections.put(url, section);
+            }
+            section.add(news);
+
+            mParsedCount++;
+            if (mParsedCount >= mNextBatchCount) {
+                mNextBatchCount = mParsedCount + BATCH_SIZE;
+                post();
+            }
+        }
+
+        /**
+         * Replace the news which were parsed for the section with all of its news
+         */
+        synchronized void onSectionLoaded(String url, List<News> news) {
+            mSections.put(url, news);
+            post();
+        }
+
+        private void post() {
+            postPreview(MultiSectionFetcher.merge(new ArrayList<>(mSections.values())), mToken);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically syncs the articles of the sections in the background, so they are already
+ * stored on the disk when the app is opened.
+ */
+public class NewsSyncWorker extends Worker {
+
+    private static final String LOG_TAG = NewsSyncWorker.class.getSimpleName();
+
+    /**
+     * Name of the periodic work, so it is only scheduled once
+     */
+    private static final String WORK_NAME = "news-sync";
+
+    /**
+     * Time between two syncs
+     */
+    private static final long SYNC_INTERVAL_HOURS = 1;
+
+    public NewsSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedule the periodic sync, if it isn't scheduled yet. It only runs while there is
+     * a network connection.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                NewsSyncWorker.class, SYNC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        SyncEngine engine = new SyncEngine(SQLiteArticleStore.getInstance(getApplicationContext()),
+                NewsViewModel.GUARDIAN_URL_REQUEST, Arrays.asList(NewsViewModel.SECTIONS));
+
+        int changed = engine.sync();
+        if (changed == SyncEngine.SYNC_FAILED) {
+            return Result.retry();
+        }
+        Log.i(LOG_TAG, "Synced " + changed + " new or changed articles");
+        return Result.success();
+    }
+}
@@ -0,0 +1,809 @@
+package com.example.android.newsapp;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the news of the list and loads them, so both survive configuration changes: a rotated
+ * activity shows the same news right away, and the loads in progress simply continue.
+ * <p>
+ * The loads run on the {@link LoadEngine}. The first page is loaded with the
+ * {@link LoadEngine.Priority#VISIBLE} priority, the pages which are loaded ahead of the scrolling
+ * with {@link LoadEngine.Priority#PREFETCH}, and the search index and the texts of the articles
+ * on the screen with {@link LoadEngine.Priority#BACKGROUND}. All of them are cancelled once the
+ * activity is finished for good.
+ * <p>
+ * How many news are requested per page, whether the authors and the thumbnails are requested,
+ * and how early the next page is requested is decided by an {@link AdaptiveRequestPolicy} from
+ * the network measured on the previous loads. The decision is kept for all of the pages of the
+ * list, so they line up.
+ * <p>
+ * When the app goes to the background, the news in the list and the scroll position are saved in
+ * a {@link FeedSnapshot}. If the process is killed and the activity is created again, the list
+ * is restored from it before anything is requested from the network. The news are then loaded
+ * again, as on a fresh start, and replace the restored ones once the first page is loaded.
+ */
+public class NewsViewModel extends AndroidViewModel implements NewsLoader.OnNewsBatchListener {
+
+    private static final String LOG_TAG = NewsViewModel.class.getSimpleName();
+
+    /**
+     * URL for news data from the Guardian dataset
+     */
+    static final String GUARDIAN_URL_REQUEST =
+            "https://content.guardianapis.com/";
+
+    /**
+     * Sections which are shown in the list. They are loaded in parallel and merged by the
+     * published date. The same sections are synced in the background.
+     */
+    static final String[] SECTIONS = {"world", "business", "technology", "sport"};
+
+    /**
+     * Number of stored news in a page of the list, when there is no network connection
+     */
+    private static final int STORED_PAGE_SIZE = 40;
+
+    /**
+     * Maximum number of pages kept in the list. Pages further away are evicted
+     * and loaded again once the user scrolls back to them.
+     */
+    private static final int MAX_PAGES_IN_LIST = 5;
+
+    /**
+     * The next page of the stored news is loaded once the user scrolls within this many rows
+     * of the end of the list
+     */
+    private static final int STORED_PREFETCH_DISTANCE = 5;
+
+    /**
+     * The maximum number of stored articles which are added to the search index
+     */
+    static final int SEARCH_SEED_SIZE = 20_000;
+
+    /**
+     * Number of the articles at the top of the screen whose text is prefetched
+     */
+    private static final int BODY_PREFETCH_COUNT = 5;
+
+    /**
+     * The maximum total size of the texts of the articles on the disk
+     */
+    private static final long MAX_BODY_CACHE_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * Name of the file of the snapshot of the list
+     */
+    private static final String SNAPSHOT_FILE_NAME = "feed.snapshot";
+
+    /**
+     * A snapshot older than this is not restored, because its news are out of date.
+     * The list is loaded again instead.
+     */
+    private static final long MAX_SNAPSHOT_AGE_MILLIS = 6 * 60 * 60 * 1000;
+
+    /**
+     * Writes the snapshots one after the other. It is separate from the {@link LoadEngine}, so
+     * a snapshot is never dropped because many loads are waiting, nor pre-empted and written
+     * again.
+     */
+    private static final ExecutorService sSnapshotExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "FeedSnapshot"));
+
+    private static LoadEngine sLoadEngine;
+    private static ArticleBodyLoader sArticleBodyLoader;
+
+    /**
+     * @return the engine shared by the whole app, which delivers the results on the main thread
+     */
+    static synchronized LoadEngine getLoadEngine(Context context) {
+        if (sLoadEngine == null) {
+            sLoadEngine = new LoadEngine(LoadEngine.DEFAULT_THREAD_COUNT,
+                    context.getMainExecutor());
+        }
+        return sLoadEngine;
+    }
+
+    /**
+     * @return the loader of the texts of the articles shared by the whole app, so the texts
+     * which were prefetched for the list are found by the reader
+     */
+    static synchronized ArticleBodyLoader getArticleBodyLoader(Context context) {
+        if (sArticleBodyLoader == null) {
+            ArticleBodyCache cache = new ArticleBodyCache(
+                    new File(context.getCacheDir(), "articles"), MAX_BODY_CACHE_BYTES);
+            sArticleBodyLoader = new ArticleBodyLoader(cache, GUARDIAN_URL_REQUEST);
+        }
+        return sArticleBodyLoader;
+    }
+
+    // The news which are shown, and whether the first news are still being loaded
+    private final MutableLiveData<List<News>> mNewsData = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> mLoading = new MutableLiveData<>(true);
+
+    /**
+     * The news in the list. Every change is published as a copy of this list.
+     */
+    private final ArrayList<News> mNews = new ArrayList<>();
+
+    /**
+     * Keeps track of the pages in the list, null until the first page is loaded
+     */
+    private NewsPager mPager;
+
+    /**
+     * Decides how big the requests are, from the speed of the network
+     */
+    private final AdaptiveRequestPolicy mPolicy =
+            new AdaptiveRequestPolicy(ThroughputEstimator.getInstance());
+
+    /**
+     * What the policy decided for the pages in the list: the number of news requested per page
+     * of every section, whether the authors and thumbnails are requested, and the number of
+     * rows from the end (or the start) of the list at which the next (or previous) page is loaded
+     */
+    private int mSectionPageSize;
+    private boolean mRequestExtraFields;
+    private int mPrefetchDistance;
+
+    private final LoadEngine mEngine;
+    private final StoredNewsLoader mStoredNewsLoader;
+
+    // Builds the display labels of the restored news and of the search results
+    private final NewsFormatter mFormatter;
+
+    /**
+     * Whether the first load was started, and whether there was no network connection then,
+     * or the first page couldn't be loaded. The list then shows the stored articles.
+     */
+    private boolean mStarted;
+    private boolean mOffline;
+
+    /**
+     * The loads in progress, null if there is none
+     */
+    private LoadEngine.Handle mFirstPageLoad;
+    private LoadEngine.Handle mPageLoad;
+    private LoadEngine.Handle mStoredPageLoad;
+    private LoadEngine.Handle mSearch;
+
+    /**
+     * The prefetches of the texts of the articles on the screen which are in progress,
+     * by the URL of the article
+     */
+    private final Map<String, LoadEngine.Handle> mBodyPrefetches = new HashMap<>();
+
+    /**
+     * Number of the page which is being loaded after (or before) the first one, 0 if there is none
+     */
+    private int mLoadingPage;
+
+    /**
+     * Whether the last page of the stored articles was loaded
+     */
+    private boolean mLastStoredPageLoaded;
+
+    /**
+     * The snapshot which the list was restored from, until the activity took its scroll position
+     */
+    private FeedSnapshot mRestoredSnapshot;
+
+    public NewsViewModel(@NonNull Application application) {
+        super(application);
+        mEngine = getLoadEngine(application);
+        mStoredNewsLoader = new StoredNewsLoader(application, STORED_PAGE_SIZE);
+        mFormatter = new NewsFormatter(application.getString(R.string.section_name),
+                application.getString(R.string.author_name), application.getString(R.string.date));
+    }
+
+    /**
+     * @return the news which are shown in the list
+     */
+    public LiveData<List<News>> getNews() {
+        return mNewsData;
+    }
+
+    /**
+     * @return whether the first news are still being loaded
+     */
+    public LiveData<Boolean> isLoading() {
+        return mLoading;
+    }
+
+    /**
+     * @return whether there was no network connection when the news were first loaded, or
+     * whether they couldn't be loaded
+     */
+    public boolean isOffline() {
+        return mOffline;
+    }
+
+    /**
+     * Start loading the first page. Nothing happens if it was already started by an
+     * activity before a configuration change.
+     * <p>
+     * Checking the network connection is a call to the system, so it is made on a thread of the
+     * engine, and the activity can draw its first frame in the meantime.
+     *
+     * @param restore whether the activity is created again after its process was killed, so the
+     *                list is restored from the snapshot, if there is a recent one
+     */
+    public void start(boolean restore) {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+
+        if (restore) {
+            File file = getSnapshotFile(getApplication());
+            mFirstPageLoad = mEngine.submit(LoadEngine.Priority.VISIBLE,
+                    token -> readSnapshot(file), this::onSnapshotRead);
+        } else {
+            checkConnection();
+        }
+    }
+
+    private void checkConnection() {
+        mFirstPageLoad = mEngine.submit(LoadEngine.Priority.VISIBLE, token -> isConnected(),
+                this::onConnectionChecked);
+    }
+
+    /**
+     * @return whether there is a network connection
+     */
+    private boolean isConnected() {
+        // Get a reference to the ConnectivityManager to check state of network connectivity
+        ConnectivityManager connMgr = getApplication().getSystemService(ConnectivityManager.class);
+
+        // Get details on the currently active default data network
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    private void onConnectionChecked(@Nullable Boolean connected) {
+        mFirstPageLoad = null;
+        mOffline = connected == null || !connected;
+
+        if (mOffline) {
+            // Without a network connection, show the articles which were stored the last time.
+            // They are loaded page by page while the user scrolls down.
+            loadStoredPage();
+        } else if (mPager != null) {
+            // The list was restored, so it is refreshed without moving the user back to the top
+            refreshRestoredPage();
+        } else {
+            loadFirstPage();
+        }
+    }
+
+    /**
+     * @return the file of the snapshot of the list
+     */
+    private static File getSnapshotFile(Context context) {
+        // The snapshot is only useful on this device, so it isn't backed up
+        return new File(context.getNoBackupFilesDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Read the snapshot of the list and format its news, on a thread of the engine.
+     *
+     * @return the snapshot, or null if there is none, or if it is corrupt or too old
+     */
+    @Nullable
+    private FeedSnapshot readSnapshot(File file) {
+        FeedSnapshot snapshot = FeedSnapshot.read(file);
+        if (snapshot == null
+                || System.currentTimeMillis() - snapshot.getSavedAtMillis()
+                > MAX_SNAPSHOT_AGE_MILLIS) {
+            return null;
+        }
+        if (snapshot.toPager(MAX_PAGES_IN_LIST).getSectionCount() != SECTIONS.length) {
+            // The sections changed with an update of the app
+            return null;
+        }
+        return snapshot.withNews(mFormatter.format(snapshot.getNews()));
+    }
+
+    private void onSnapshotRead(@Nullable FeedSnapshot snapshot) {
+        if (snapshot == null) {
+            // Load the list as on a fresh start
+            checkConnection();
+            return;
+        }
+        mFirstPageLoad = null;
+
+        // The next pages are requested with the size of the restored ones, so they line up
+        mPager = snapshot.toPager(MAX_PAGES_IN_LIST);
+        mSectionPageSize = mPager.getSectionPageSize();
+        mRequestExtraFields = mPolicy.shouldRequestExtraFields();
+        mPrefetchDistance = mPolicy.getPrefetchDistance(mPager.getPageSize());
+
+        mRestoredSnapshot = snapshot;
+        mNews.clear();
+        mNews.addAll(snapshot.getNews());
+        publishNews();
+        mLoading.setValue(false);
+
+        seedSearchIndex();
+
+        // The snapshot can be hours old, so the first page is loaded again if it is in the list.
+        // Without a connection, the stored articles follow the restored ones.
+        checkConnection();
+    }
+
+    /**
+     * @return the snapshot which the list was restored from, once. After that, or if the list
+     * wasn't restored, null.
+     */
+    @Nullable
+    public FeedSnapshot takeRestoredSnapshot() {
+        FeedSnapshot snapshot = mRestoredSnapshot;
+        mRestoredSnapshot = null;
+        return snapshot;
+    }
+
+    /**
+     * Save the news in the list and the scroll position in the snapshot, so they are restored
+     * if the process is killed in the background. The news are copied here, and the file is
+     * written on a thread of its own.
+     * <p>
+     * Nothing is saved while the first page is loading, or if the list shows the stored
+     * articles, which are loaded from the store again anyway.
+     *
+     * @param scrollPosition the position of the first row on the screen
+     * @param scrollOffset   the offset of that row from the top of the list, in pixels
+     */
+    public void saveSnapshot(int scrollPosition, int scrollOffset) {
+        if (mOffline || mPager == null || mFirstPageLoad != null || mNews.isEmpty()) {
+            return;
+        }
+
+        FeedSnapshot snapshot = new FeedSnapshot(new ArrayList<>(mNews), mPager, scrollPosition,
+                scrollOffset, System.currentTimeMillis());
+        File file = getSnapshotFile(getApplication());
+        sSnapshotExecutor.execute(() -> {
+            try {
+                snapshot.write(file);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem writing the snapshot of the list", e);
+            }
+        });
+    }
+
+    /**
+     * Start loading the next or previous page, if the user scrolled close enough to the end
+     * or the start of the list
+     */
+    public void onScrolled(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (mOffline) {
+            prefetchStoredPage(firstVisibleItem, visibleItemCount, totalItemCount);
+            return;
+        }
+
+        // Load one page at a time, and only after the first one
+        if (mPager == null || mFirstPageLoad != null || mLoadingPage != 0 || totalItemCount == 0) {
+            return;
+        }
+
+        if (firstVisibleItem + visibleItemCount >= totalItemCount - mPrefetchDistance) {
+            int nextPage = mPager.getNextPage();
+            if (nextPage != 0) {
+                loadPage(nextPage);
+                return;
+            }
+        }
+
+        if (firstVisibleItem <= mPrefetchDistance) {
+            int previousPage = mPager.getPreviousPage();
+            if (previousPage != 0) {
+                loadPage(previousPage);
+            }
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        // Nobody will show the news anymore, so stop loading them
+        cancel(mFirstPageLoad);
+        cancel(mPageLoad);
+        cancel(mStoredPageLoad);
+        cancel(mSearch);
+        cancelBodyPrefetches();
+    }
+
+    private static void cancel(@Nullable LoadEngine.Handle load) {
+        if (load != null) {
+            load.cancel();
+        }
+    }
+
+    /**
+     * Prefetch the texts of the first articles on the screen, so they open right away and can
+     * be read offline. This is called whenever the list comes to rest. The texts are loaded with
+     * the {@link LoadEngine.Priority#BACKGROUND} priority, so any load of the list comes first.
+     * The prefetches for the articles which left the screen are cancelled.
+     *
+     * @param visible the articles on the screen, from the top
+     */
+    public void prefetchBodies(List<News> visible) {
+        if (mOffline) {
+            return;
+        }
+
+        Set<String> urls = new HashSet<>();
+        for (int i = 0; i < Math.min(BODY_PREFETCH_COUNT, visible.size()); i++) {
+            urls.add(visible.get(i).getmURL());
+        }
+
+        Iterator<Map.Entry<String, LoadEngine.Handle>> iterator =
+                mBodyPrefetches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, LoadEngine.Handle> prefetch = iterator.next();
+            if (!urls.contains(prefetch.getKey())) {
+                prefetch.getValue().cancel();
+                iterator.remove();
+            }
+        }
+
+        ArticleBodyLoader loader = getArticleBodyLoader(getApplication());
+        for (String url : urls) {
+            if (mBodyPrefetches.containsKey(url)) {
+                // Still in progress
+                continue;
+            }
+            // The request is aborted by the token, so a more urgent load can pre-empt it
+            LoadEngine.PreemptibleJob<Void> job = token -> {
+                // Checking the cache reads the disk, so it isn't done on the main thread
+                if (!loader.isCached(url)) {
+                    loader.load(url, token);
+                }
+                return null;
+            };
+            LoadEngine.Handle prefetch = mEngine.submit(LoadEngine.Priority.BACKGROUND, job,
+                    result -> mBodyPrefetches.remove(url));
+            if (!prefetch.isCancelled()) {
+                mBodyPrefetches.put(url, prefetch);
+            }
+        }
+    }
+
+    private void cancelBodyPrefetches() {
+        for (LoadEngine.Handle prefetch : mBodyPrefetches.values()) {
+            prefetch.cancel();
+        }
+        mBodyPrefetches.clear();
+    }
+
+    /**
+     * Load the first page of all the sections, showing the news in batches along the way
+     */
+    private void loadFirstPage() {
+        // Size the pages for the network which was measured on the previous loads
+        mSectionPageSize = mPolicy.getSectionPageSize();
+        mRequestExtraFields = mPolicy.shouldRequestExtraFields();
+        mPager = new NewsPager(mSectionPageSize, SECTIONS.length, MAX_PAGES_IN_LIST);
+        mPrefetchDistance = mPolicy.getPrefetchDistance(mPager.getPageSize());
+
+        mLoadingPage = 0;
+
+        List<Integer> sections = getSectionsOfPage(1);
+        NewsLoader loader = new NewsLoader(getApplication(), buildSectionUrls(sections, 1), 1,
+                this);
+        mFirstPageLoad = mEngine.submit(LoadEngine.Priority.VISIBLE, loader,
+                result -> onFirstPageLoaded(sections, result));
+    }
+
+    /**
+     * Load the first page of the restored list again, with the size of the restored pages, so
+     * it can replace the restored one in place. The other restored pages are kept, and so is
+     * the restored list if the window doesn't start at the first page: only the first page gets
+     * newer news, and the pages further down are loaded again when the user scrolls to them
+     * after they were evicted.
+     */
+    private void refreshRestoredPage() {
+        if (mPager.getFirstPage() != 1) {
+            return;
+        }
+
+        List<Integer> sections = getSectionsOfPage(1);
+        NewsLoader loader = new NewsLoader(getApplication(), buildSectionUrls(sections, 1), 1,
+                null);
+        mFirstPageLoad = mEngine.submit(LoadEngine.Priority.VISIBLE, loader,
+                result -> onRestoredPageRefreshed(sections, result));
+    }
+
+    private void onRestoredPageRefreshed(List<Integer> sections,
+                                         @Nullable MultiSectionFetcher.Result result) {
+        mFirstPageLoad = null;
+
+        // If the page couldn't be loaded, the restored news stay in the list
+        if (result == null) {
+            return;
+        }
+        List<News> news = result.getNews();
+
+        // Replace the rows of the restored first page, and keep the pages after it
+        onSectionsLoaded(sections, 1, result);
+        int replaced = mPager.replaceFirstPage(news.size());
+        mNews.subList(0, replaced).clear();
+        mNews.addAll(0, news);
+        publishNews();
+    }
+
+    /**
+     * Called on the main thread with the news cached on the disk, so they are shown
+     * while the network requests revalidate them, or with the merged news of the sections
+     * which were parsed so far, so the first rows are shown before the whole load has finished.
+     */
+    @Override
+    public void onNewsPreview(List<News> news) {
+        mNews.clear();
+        mNews.addAll(news);
+        publishNews();
+        mLoading.setValue(false);
+    }
+
+    private void onFirstPageLoaded(List<Integer> sections,
+                                   @Nullable MultiSectionFetcher.Result result) {
+        mFirstPageLoad = null;
+
+        if (result == null) {
+            // None of the sections could be loaded, most likely because the connection is bad.
+            // Show the stored articles page by page, as without a connection, so the pages of
+            // the network never follow stored articles which don't belong to them.
+            mOffline = true;
+            mPager = null;
+            mNews.clear();
+            loadStoredPage();
+            return;
+        }
+        List<News> news = result.getNews();
+
+        // Replace the previews with the full list
+        mNews.clear();
+        mNews.addAll(news);
+        publishNews();
+
+        // The list now holds just the first page
+        onSectionsLoaded(sections, 1, result);
+        mPager.reset(1, news.size());
+        mLoading.setValue(false);
+
+        // Make the older stored articles searchable as well
+        seedSearchIndex();
+    }
+
+    /**
+     * Load the given page ahead of the scrolling
+     */
+    private void loadPage(int page) {
+        mLoadingPage = page;
+        List<Integer> sections = getSectionsOfPage(page);
+        NewsLoader loader = new NewsLoader(getApplication(), buildSectionUrls(sections, page),
+                page, null);
+        mPageLoad = mEngine.submit(LoadEngine.Priority.PREFETCH, loader,
+                result -> onPageLoaded(page, sections, result));
+        if (mPageLoad.isCancelled()) {
+            // Too many loads are waiting, so it is requested again on the next scroll
+            mPageLoad = null;
+            mLoadingPage = 0;
+        }
+    }
+
+    /**
+     * Add the loaded page to the end (or the start) of the list, without clearing it.
+     * If the list holds too many pages, the page on the other end is removed from it, while
+     * the rows on the screen are kept in place.
+     */
+    private void onPageLoaded(int page, List<Integer> sections,
+                              @Nullable MultiSectionFetcher.Result result) {
+        mPageLoad = null;
+        mLoadingPage = 0;
+
+        // If the page couldn't be loaded, it is requested again on the next scroll
+        if (result == null) {
+            return;
+        }
+        List<News> news = result.getNews();
+
+        if (page == mPager.getNextPage()) {
+            onSectionsLoaded(sections, page, result);
+            mNews.addAll(news);
+
+            // Remove the evicted first page from the start of the list
+            int evicted = mPager.appendPage(news.size());
+            mNews.subList(0, evicted).clear();
+        } else if (page == mPager.getPreviousPage()) {
+            mNews.addAll(0, news);
+
+            // Remove the evicted last page from the end of the list
+            int evicted = mPager.prependPage(news.size());
+            mNews.subList(mNews.size() - evicted, mNews.size()).clear();
+        }
+        publishNews();
+    }
+
+    /**
+     * Start loading the next page of the stored articles, if the user scrolled close enough
+     * to the end of the list
+     */
+    private void prefetchStoredPage(int firstVisibleItem, int visibleItemCount,
+                                    int totalItemCount) {
+        int rowsToTheEnd = totalItemCount - (firstVisibleItem + visibleItemCount);
+        if (mStoredPageLoad != null || mLastStoredPageLoaded
+                || rowsToTheEnd > STORED_PREFETCH_DISTANCE) {
+            return;
+        }
+        loadStoredPage();
+    }
+
+    /**
+     * Load the page of the stored articles after the ones in the list. The first page is
+     * visible right away, the others are loaded ahead of the scrolling.
+     */
+    private void loadStoredPage() {
+        News after = mNews.isEmpty() ? null : mNews.get(mNews.size() - 1);
+        LoadEngine.Priority priority = after == null
+                ? LoadEngine.Priority.VISIBLE : LoadEngine.Priority.PREFETCH;
+        mStoredPageLoad = mEngine.submit(priority, token -> mStoredNewsLoader.loadPage(after),
+                this::onStoredPageLoaded);
+        if (mStoredPageLoad.isCancelled()) {
+            mStoredPageLoad = null;
+        }
+    }
+
+    private void onStoredPageLoaded(@Nullable List<News> page) {
+        mStoredPageLoad = null;
+        if (page == null) {
+            return;
+        }
+
+        boolean firstPage = mNews.isEmpty();
+        mLastStoredPageLoaded = page.size() < mStoredNewsLoader.getPageSize();
+        mNews.addAll(page);
+        publishNews();
+        mLoading.setValue(false);
+
+        // Without a connection nothing is parsed, so the stored articles are what can be searched
+        if (firstPage) {
+            seedSearchIndex();
+        }
+    }
+
+    /**
+     * Search the news on the device on a thread of the {@link LoadEngine}, so the main thread
+     * never waits for the index while news are added to it. The search which is still in
+     * progress is cancelled, because its results would be replaced right away.
+     *
+     * @param query    which is searched for
+     * @param limit    the maximum number of results
+     * @param callback which receives the formatted results, from the best to the worst match
+     */
+    public void search(String query, int limit, LoadEngine.Callback<List<News>> callback) {
+        cancel(mSearch);
+        mSearch = mEngine.submit(LoadEngine.Priority.VISIBLE,
+                token -> mFormatter.format(NewsSearchIndex.getInstance().search(query, limit)),
+                results -> {
+                    mSearch = null;
+                    callback.onResult(results);
+                });
+    }
+
+    /**
+     * Cancel the search in progress, if there is one, so its results are never delivered
+     */
+    public void cancelSearch() {
+        cancel(mSearch);
+        mSearch = null;
+    }
+
+    /**
+     * Add the stored articles to the search index in the background. It is only done once.
+     */
+    private void seedSearchIndex() {
+        ArticleStore store = mStoredNewsLoader.getArticleStore();
+        mEngine.submit(LoadEngine.Priority.BACKGROUND, token -> {
+            NewsSearchIndex.getInstance().seed(store, SEARCH_SEED_SIZE);
+            return null;
+        }, result -> {
+        });
+    }
+
+    /**
+     * Publish a copy of the news in the list
+     */
+    private void publishNews() {
+        mNewsData.setValue(new ArrayList<>(mNews));
+    }
+
+    /**
+     * @return the indexes of the sections which have the given page, i.e. which didn't end
+     * before it
+     */
+    private List<Integer> getSectionsOfPage(int page) {
+        List<Integer> sections = new ArrayList<>(SECTIONS.length);
+        for (int section = 0; section < SECTIONS.length; section++) {
+            if (mPager.hasSectionPage(section, page)) {
+                sections.add(section);
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Let the pager know how many news every section returned for the given page, so it knows
+     * which sections ended
+     *
+     * @param sections the indexes of the sections which were loaded, in the order of their URLs
+     */
+    private void onSectionsLoaded(List<Integer> sections, int page,
+                                  MultiSectionFetcher.Result result) {
+        for (int i = 0; i < sections.size(); i++) {
+            int count = result.getSectionCount(i);
+            // A section which couldn't be loaded might still have more pages
+            if (count >= 0) {
+                mPager.onSectionLoaded(sections.get(i), page, count);
+            }
+        }
+    }
+
+    /**
+     * Build the URLs of the given page, one for every given section.
+     *
+     * @param sections the indexes of the sections
+     */
+    private List<String> buildSectionUrls(List<Integer> sections, int page) {
+        List<String> urls = new ArrayList<>(sections.size());
+        for (int section : sections) {
+            urls.add(buildSectionUrl(SECTIONS[section], page));
+        }
+        return urls;
+    }
+
+    /**
+     * Build the URL of the given page of news in the given section, with the size and the
+     * fields the policy decided on.
+     */
+    private String buildSectionUrl(String section, int page) {
+        // parse breaks apart the URI string that's passed into its parameter
+        Uri baseUri = Uri.parse(GUARDIAN_URL_REQUEST);
+
+        // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        uriBuilder.path("search");
+        uriBuilder.appendQueryParameter("section", section);
+        uriBuilder.appendQueryParameter("order-by", "newest");
+        if (mRequestExtraFields) {
+            uriBuilder.appendQueryParameter("show-tags", "contributor");
+            uriBuilder.appendQueryParameter("show-fields", "thumbnail");
+        }
+        uriBuilder.appendQueryParameter("page", String.valueOf(page));
+        uriBuilder.appendQueryParameter("page-size", String.valueOf(mSectionPageSize));
+        uriBuilder.appendQueryParameter("api-key", QueryUtils.getApiKey());
+
+        return uriBuilder.toString();
+    }
+}
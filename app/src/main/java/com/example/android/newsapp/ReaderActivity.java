@@ -0,0 +1,129 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Shows the text of a single article inside of the app.
+ * <p>
+ * The text of the articles on the screen is prefetched while the list is at rest, so it is
+ * usually read from the disk right away, also without a connection. Otherwise it is loaded from
+ * the content API. The full web page of the article can still be opened in the browser.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    private static final String EXTRA_URL = "com.example.android.newsapp.extra.URL";
+    private static final String EXTRA_TITLE = "com.example.android.newsapp.extra.TITLE";
+    private static final String EXTRA_SECTION = "com.example.android.newsapp.extra.SECTION";
+    private static final String EXTRA_AUTHOR = "com.example.android.newsapp.extra.AUTHOR";
+    private static final String EXTRA_DATE = "com.example.android.newsapp.extra.DATE";
+
+    /**
+     * The URL of the web page of the article
+     */
+    private String mUrl;
+
+    /**
+     * The load of the text, null once it finished
+     */
+    private LoadEngine.Handle mBodyLoad;
+
+    /**
+     * @return the intent which shows the given news in the reader. The labels of the news must
+     * be formatted already.
+     */
+    static Intent newIntent(Context context, News news) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_URL, news.getmURL());
+        intent.putExtra(EXTRA_TITLE, news.getmTitle());
+        intent.putExtra(EXTRA_SECTION, news.getSectionLabel());
+        intent.putExtra(EXTRA_AUTHOR, news.hasAuthor() ? news.getAuthorLabel() : null);
+        intent.putExtra(EXTRA_DATE, news.hasDate() ? news.getDateLabel() : null);
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+
+        TextView titleTextView = findViewById(R.id.reader_title);
+        titleTextView.setText(intent.getStringExtra(EXTRA_TITLE));
+        showLabel(findViewById(R.id.reader_section), intent.getStringExtra(EXTRA_SECTION));
+        showLabel(findViewById(R.id.reader_author), intent.getStringExtra(EXTRA_AUTHOR));
+        showLabel(findViewById(R.id.reader_date), intent.getStringExtra(EXTRA_DATE));
+
+        // Read the text from the cache, or else load it. Nothing else is waiting for it,
+        // so it is as urgent as the list on the screen.
+        ProgressBar progressBar = findViewById(R.id.reader_loading_spinner);
+        TextView bodyTextView = findViewById(R.id.reader_body);
+        ArticleBodyLoader loader = NewsViewModel.getArticleBodyLoader(this);
+        String url = mUrl;
+        mBodyLoad = NewsViewModel.getLoadEngine(this).submit(LoadEngine.Priority.VISIBLE,
+                token -> loader.load(url, token), body -> {
+                    mBodyLoad = null;
+                    progressBar.setVisibility(View.GONE);
+                    if (body != null) {
+                        bodyTextView.setText(body);
+                    } else {
+                        bodyTextView.setText(R.string.article_not_loaded);
+                    }
+                });
+    }
+
+    /**
+     * Show the label in the given view, or hide the view if there is no label
+     */
+    private static void showLabel(TextView textView, @Nullable String label) {
+        if (label != null) {
+            textView.setText(label);
+        } else {
+            textView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Nobody will show the text anymore. If it is downloading, the download stops.
+        if (mBodyLoad != null) {
+            mBodyLoad.cancel();
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.reader, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_open_in_browser) {
+            // Convert the String URL into a URI object (to pass into the Intent constructor)
+            Uri newsUri = Uri.parse(mUrl);
+
+            // Send an intent to a web browser to open the web page of the news
+            startActivity(new Intent(Intent.ACTION_VIEW, newsUri));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
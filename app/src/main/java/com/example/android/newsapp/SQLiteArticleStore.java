@@ -0,0 +1,287 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ArticleStore} backed by an SQLite database.
+ * <p>
+ * The articles are indexed by their published date and by their section, so the pages of the
+ * list are read straight from an index even when there are tens of thousands of articles.
+ * The articles are written in batches, with a single transaction per batch.
+ */
+public class SQLiteArticleStore extends SQLiteOpenHelper implements ArticleStore {
+
+    private static final String DATABASE_NAME = "articles.db";
+
+    /**
+     * Version of the schema. The articles can always be downloaded again, so an older
+     * database is simply dropped.
+     */
+    private static final int DATABASE_VERSION = 3;
+
+    /**
+     * The maximum number of stored articles. The oldest articles are deleted first.
+     */
+    static final int MAX_ARTICLES = 100_000;
+
+    /**
+     * Number of articles written in a single transaction
+     */
+    static final int MERGE_BATCH_SIZE = 500;
+
+    static final String TABLE = "articles";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_DATE = "date";
+    private static final String COLUMN_THUMBNAIL = "thumbnail";
+
+    // The sync watermark of every section
+    static final String SYNC_TABLE = "sync_state";
+    private static final String COLUMN_SYNCED_UNTIL = "synced_until";
+
+    private static final String[] COLUMNS = {COLUMN_URL, COLUMN_TITLE, COLUMN_SECTION,
+            COLUMN_AUTHOR, COLUMN_DATE, COLUMN_THUMBNAIL};
+
+    /**
+     * Order of the pages, from the newest to the oldest article. The URL breaks the ties,
+     * so every article has a distinct position which the next page can start from.
+     */
+    private static final String NEWEST_FIRST = COLUMN_DATE + " DESC, " + COLUMN_URL + " DESC";
+
+    /**
+     * Selects the articles after the given date and URL. It is written out (instead of
+     * comparing row values), so the index on the date is used with older versions of SQLite.
+     */
+    private static final String AFTER_SELECTION = COLUMN_DATE + " <= ? AND ("
+            + COLUMN_DATE + " < ? OR " + COLUMN_URL + " < ?)";
+
+    // Adds a new article. Both statements use the same numbered arguments.
+    private static final String INSERT_SQL = "INSERT OR IGNORE INTO " + TABLE + " ("
+            + COLUMN_URL + ", " + COLUMN_TITLE + ", " + COLUMN_SECTION + ", "
+            + COLUMN_AUTHOR + ", " + COLUMN_DATE + ", " + COLUMN_THUMBNAIL
+            + ") VALUES (?1, ?2, ?3, ?4, ?5, ?6)";
+
+    // Changes a stored article, but only if its content is different
+    private static final String UPDATE_SQL = "UPDATE " + TABLE + " SET "
+            + COLUMN_TITLE + " = ?2, " + COLUMN_SECTION + " = ?3, "
+            + COLUMN_AUTHOR + " = ?4, " + COLUMN_DATE + " = ?5, " + COLUMN_THUMBNAIL + " = ?6"
+            + " WHERE " + COLUMN_URL + " = ?1 AND ("
+            + COLUMN_TITLE + " <> ?2 OR " + COLUMN_SECTION + " <> ?3 OR "
+            + COLUMN_AUTHOR + " IS NOT ?4 OR " + COLUMN_DATE + " <> ?5 OR "
+            + COLUMN_THUMBNAIL + " IS NOT ?6)";
+
+    private static SQLiteArticleStore sInstance;
+
+    /**
+     * @return the store shared by the whole app, so there is only a single connection
+     * to the database
+     */
+    public static synchronized SQLiteArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SQLiteArticleStore(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructs a new {@link SQLiteArticleStore}
+     *
+     * @param context to open the database with
+     * @param name    of the database file, or null for a database in memory
+     */
+    public SQLiteArticleStore(Context context, @Nullable String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // The list can be read while the background sync writes to the database
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COLUMN_URL + " TEXT PRIMARY KEY NOT NULL, "
+                + COLUMN_TITLE + " TEXT NOT NULL, "
+                + COLUMN_SECTION + " TEXT NOT NULL, "
+                + COLUMN_AUTHOR + " TEXT, "
+                + COLUMN_DATE + " INTEGER NOT NULL, "
+                + COLUMN_THUMBNAIL + " TEXT)");
+
+        // The pages are read in the order of these indexes, so they never have to be sorted
+        db.execSQL("CREATE INDEX " + TABLE + "_date ON " + TABLE
+                + " (" + COLUMN_DATE + ", " + COLUMN_URL + ")");
+        db.execSQL("CREATE INDEX " + TABLE + "_section_date ON " + TABLE
+                + " (" + COLUMN_SECTION + ", " + COLUMN_DATE + ", " + COLUMN_URL + ")");
+
+        db.execSQL("CREATE TABLE " + SYNC_TABLE + " ("
+                + COLUMN_SECTION + " TEXT PRIMARY KEY NOT NULL, "
+                + COLUMN_SYNCED_UNTIL + " INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + SYNC_TABLE);
+        onCreate(db);
+    }
+
+    @Override
+    public List<News> getNewest(int limit) {
+        return getPage(null, null, limit);
+    }
+
+    @Override
+    public List<News> getPage(@Nullable String sectionName, @Nullable News after, int limit) {
+        StringBuilder selection = new StringBuilder();
+        List<String> selectionArgs = new ArrayList<>(4);
+        if (sectionName != null) {
+            selection.append(COLUMN_SECTION).append(" = ?");
+            selectionArgs.add(sectionName);
+        }
+        if (after != null) {
+            if (selection.length() > 0) {
+                selection.append(" AND ");
+            }
+            selection.append(AFTER_SELECTION);
+            String date = String.valueOf(after.getmDateMillis());
+            selectionArgs.add(date);
+            selectionArgs.add(date);
+            selectionArgs.add(after.getmURL());
+        }
+
+        List<News> page = new ArrayList<>(limit);
+        try (Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS,
+                selection.length() > 0 ? selection.toString() : null,
+                selectionArgs.toArray(new String[0]), null, null, NEWEST_FIRST,
+                String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                page.add(new News(cursor.getString(1), cursor.getString(2),
+                        cursor.isNull(3) ? null : cursor.getString(3),
+                        cursor.getLong(4), cursor.getString(0),
+                        cursor.isNull(5) ? null : cursor.getString(5)));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long getNewestDateMillis() {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MAX(" + COLUMN_DATE + ") FROM " + TABLE, null)) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+            return News.NO_DATE;
+        }
+    }
+
+    @Override
+    public int merge(List<News> news) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(INSERT_SQL);
+        SQLiteStatement update = db.compileStatement(UPDATE_SQL);
+
+        int changed = 0;
+        try {
+            // Write the articles in batches, so the readers never wait for a long transaction
+            for (int start = 0; start < news.size(); start += MERGE_BATCH_SIZE) {
+                int end = Math.min(start + MERGE_BATCH_SIZE, news.size());
+                db.beginTransactionNonExclusive();
+                try {
+                    for (News article : news.subList(start, end)) {
+                        bindArticle(insert, article);
+                        if (insert.executeInsert() != -1) {
+                            changed++;
+                        } else {
+                            // The article is already stored, so update it if it changed
+                            bindArticle(update, article);
+                            changed += update.executeUpdateDelete();
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        } finally {
+            insert.close();
+            update.close();
+        }
+
+        if (changed > 0) {
+            trimToSize(db);
+        }
+        return changed;
+    }
+
+    @Override
+    public long getSyncedUntilMillis(String section) {
+        try (Cursor cursor = getReadableDatabase().query(SYNC_TABLE,
+                new String[]{COLUMN_SYNCED_UNTIL}, COLUMN_SECTION + " = ?",
+                new String[]{section}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+            return News.NO_DATE;
+        }
+    }
+
+    @Override
+    public void setSyncedUntilMillis(String section, long dateMillis) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SECTION, section);
+        values.put(COLUMN_SYNCED_UNTIL, dateMillis);
+        getWritableDatabase().insertWithOnConflict(SYNC_TABLE, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public int size() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE);
+    }
+
+    /**
+     * Delete the oldest articles, until there are at most MAX_ARTICLES left
+     */
+    private static void trimToSize(SQLiteDatabase db) {
+        if (DatabaseUtils.queryNumEntries(db, TABLE) <= MAX_ARTICLES) {
+            return;
+        }
+        db.execSQL("DELETE FROM " + TABLE + " WHERE " + COLUMN_URL + " IN (SELECT "
+                + COLUMN_URL + " FROM " + TABLE + " ORDER BY " + NEWEST_FIRST
+                + " LIMIT -1 OFFSET " + MAX_ARTICLES + ")");
+    }
+
+    private static void bindArticle(SQLiteStatement statement, News article) {
+        statement.clearBindings();
+        statement.bindString(1, article.getmURL());
+        statement.bindString(2, article.getmTitle());
+        statement.bindString(3, article.getmSectionName());
+        if (article.hasAuthor()) {
+            statement.bindString(4, article.getmAuthor());
+        } else {
+            statement.bindNull(4);
+        }
+        statement.bindLong(5, article.getmDateMillis());
+        if (article.hasThumbnail()) {
+            statement.bindString(6, article.getmThumbnailUrl());
+        } else {
+            statement.bindNull(6);
+        }
+    }
+}
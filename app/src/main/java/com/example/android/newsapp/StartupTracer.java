@@ -0,0 +1,77 @@
+package com.example.android.newsapp;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+/**
+ * Measures how long the main activity takes to start: the time from its creation to its first
+ * frame, and to the first frame which shows news. Both are recorded in the {@link NewsMetrics},
+ * and the system is told once the activity is fully drawn.
+ * <p>
+ * A frame is counted as drawn once the messages which were queued while it was drawn have run,
+ * so the time includes the whole frame and not just the start of it.
+ */
+class StartupTracer implements ViewTreeObserver.OnDrawListener {
+
+    private static final String LOG_TAG = StartupTracer.class.getSimpleName();
+
+    private final long mStartNanos = System.nanoTime();
+
+    private final Activity mActivity;
+    private final ViewGroup mList;
+    private final View mDecorView;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Whether the first frame, and the first frame which shows news, were recorded
+    private boolean mFirstFrameRecorded;
+    private boolean mFirstContentRecorded;
+
+    /**
+     * Start measuring. Must be called at the start of the creation of the activity, once its
+     * content view is set.
+     *
+     * @param activity which is started
+     * @param list     the list of the news, which shows news once it has rows
+     */
+    StartupTracer(Activity activity, ViewGroup list) {
+        mActivity = activity;
+        mList = list;
+        mDecorView = activity.getWindow().getDecorView();
+        mDecorView.getViewTreeObserver().addOnDrawListener(this);
+    }
+
+    @Override
+    public void onDraw() {
+        boolean showsNews = mList.getChildCount() > 0;
+        // Record the frame once it is drawn completely
+        mMainHandler.postAtFrontOfQueue(() -> onFrameDrawn(showsNews));
+    }
+
+    private void onFrameDrawn(boolean showsNews) {
+        if (mFirstContentRecorded) {
+            return;
+        }
+
+        long elapsedNanos = System.nanoTime() - mStartNanos;
+        NewsMetrics metrics = NewsMetrics.getInstance();
+        if (!mFirstFrameRecorded) {
+            mFirstFrameRecorded = true;
+            metrics.record(NewsMetrics.Metric.TIME_TO_FIRST_FRAME, elapsedNanos);
+            Log.i(LOG_TAG, "First frame after " + elapsedNanos / 1_000_000 + " ms");
+        }
+        if (showsNews) {
+            mFirstContentRecorded = true;
+            metrics.record(NewsMetrics.Metric.TIME_TO_FIRST_CONTENT, elapsedNanos);
+            Log.i(LOG_TAG, "First news after " + elapsedNanos / 1_000_000 + " ms");
+            mActivity.reportFullyDrawn();
+
+            // The listener can't be removed while the frame is being drawn
+            mDecorView.getViewTreeObserver().removeOnDrawListener(this);
+        }
+    }
+}
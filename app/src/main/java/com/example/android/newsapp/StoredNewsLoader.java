@@ -0,0 +1,60 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Loads the stored articles page by page, without the network. The pages are loaded on the
+ * threads of the {@link LoadEngine}, and added to the list by the {@link NewsViewModel}.
+ */
+public class StoredNewsLoader {
+
+    // The articles which are loaded
+    private final ArticleStore mArticleStore;
+
+    // Number of articles in a page
+    private final int mPageSize;
+
+    // Builds the display labels of the news on the loader thread
+    private final NewsFormatter mFormatter;
+
+    /**
+     * Constructs a new {@link StoredNewsLoader}
+     *
+     * @param context  of the app
+     * @param pageSize number of articles in a page
+     */
+    public StoredNewsLoader(@NonNull Context context, int pageSize) {
+        mArticleStore = SQLiteArticleStore.getInstance(context);
+        mPageSize = pageSize;
+        mFormatter = new NewsFormatter(context.getString(R.string.section_name),
+                context.getString(R.string.author_name), context.getString(R.string.date));
+    }
+
+    /**
+     * @return the number of articles in a page. A shorter page is the last one.
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Load the page which starts after the given article.
+     *
+     * @param after the last article which was loaded, or null for the first page
+     */
+    public List<News> loadPage(@Nullable News after) {
+        return mFormatter.format(mArticleStore.getPage(null, after, mPageSize));
+    }
+
+    /**
+     * @return the store the articles are loaded from
+     */
+    public ArticleStore getArticleStore() {
+        return mArticleStore;
+    }
+}
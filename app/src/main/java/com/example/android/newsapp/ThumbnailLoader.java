@@ -0,0 +1,291 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the thumbnails of the news into the rows of the list.
+ * <p>
+ * The images are downloaded and decoded on background threads, at the size of the
+ * {@link ImageView} they are shown in rather than at their full size. The decoded images are
+ * kept in a memory cache which is bounded by their size in bytes, and the downloaded images in a
+ * {@link ThumbnailDiskCache}, so scrolling back never downloads or decodes an image again.
+ * A row which is recycled cancels its request, so the images of the rows which were scrolled
+ * past are never loaded. When the system runs low on memory, the memory cache is emptied.
+ */
+public class ThumbnailLoader implements ComponentCallbacks2 {
+
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    /**
+     * Number of threads which download and decode the images
+     */
+    private static final int THREAD_COUNT = 2;
+
+    /**
+     * Part of the memory available to the app which the decoded images may take
+     */
+    private static final int MEMORY_CACHE_FRACTION = 8;
+
+    /**
+     * The maximum total size of the downloaded images on the disk
+     */
+    private static final long MAX_DISK_CACHE_BYTES = 20 * 1024 * 1024;
+
+    /**
+     * The maximum size of a single downloaded image. Bigger images aren't thumbnails,
+     * so they aren't loaded at all.
+     */
+    private static final int MAX_IMAGE_BYTES = 1024 * 1024;
+
+    private static ThumbnailLoader sInstance;
+
+    /**
+     * A thumbnail which is being loaded into a row
+     */
+    public static class Request {
+
+        private volatile boolean mCancelled;
+        private Future<?> mFuture;
+
+        /**
+         * Stop loading the thumbnail. If it was already loaded, it isn't shown.
+         * Must be called on the main thread.
+         */
+        public void cancel() {
+            mCancelled = true;
+            if (mFuture != null) {
+                // The thread isn't interrupted, the request just stops at its next step
+                mFuture.cancel(false);
+            }
+        }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+
+    // The decoded images by their URL and size, bounded by their size in bytes
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    // The downloaded images
+    private final ThumbnailDiskCache mDiskCache;
+
+    // The images aren't recorded in the metrics, which measure the requests of the news
+    private final NewsHttpClient mHttpClient = new NewsHttpClient(
+            NewsHttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+            NewsHttpClient.DEFAULT_READ_TIMEOUT_MILLIS, null);
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Rows which show the same image wait for a single download
+    private final SingleFlight<String, byte[]> mDownloads = new SingleFlight<>();
+
+    /**
+     * @return the loader shared by the whole app, so the rows of all lists share the caches
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ThumbnailLoader(Context context) {
+        ActivityManager activityManager = context.getSystemService(ActivityManager.class);
+        int maxMemoryBytes = activityManager.getMemoryClass() * 1024 * 1024
+                / MEMORY_CACHE_FRACTION;
+        mMemoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+
+        mDiskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), "thumbnails"),
+                MAX_DISK_CACHE_BYTES);
+
+        // The threads run at a background priority, so they never slow down the scrolling
+        mExecutor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "ThumbnailLoader"));
+
+        context.registerComponentCallbacks(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            // The app is in the background, the images can be decoded again when it returns
+            mMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    /**
+     * Show the image at the given URL in the given view. The view must have a fixed width and
+     * height in its layout, the image is decoded at that size. Must be called on the main thread.
+     *
+     * @return the request, which must be cancelled when the view is recycled, or null if
+     * the image was shown right away
+     */
+    @Nullable
+    public Request load(String url, ImageView view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int width = params.width;
+        int height = params.height;
+
+        String key = url + '@' + width + 'x' + height;
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return null;
+        }
+
+        // Don't show the image of the news which was shown in the recycled row before
+        view.setImageDrawable(null);
+
+        Request request = new Request();
+        request.mFuture = mExecutor.submit(() -> {
+            if (request.isCancelled()) {
+                return;
+            }
+            Bitmap bitmap = loadBitmap(url, width, height, request);
+            if (bitmap == null) {
+                return;
+            }
+            mMemoryCache.put(key, bitmap);
+            mMainHandler.post(() -> {
+                if (!request.isCancelled()) {
+                    view.setImageBitmap(bitmap);
+                }
+            });
+        });
+        return request;
+    }
+
+    /**
+     * Read the image from the disk cache or download it, and decode it at the given size.
+     *
+     * @return the decoded image, or null if it couldn't be loaded or the request was cancelled
+     */
+    @Nullable
+    private Bitmap loadBitmap(String url, int width, int height, Request request) {
+        byte[] data = mDiskCache.get(url);
+        if (data == null) {
+            data = mDownloads.execute(url, () -> download(url));
+        }
+        if (data == null || request.isCancelled()) {
+            return null;
+        }
+        return decode(data, width, height);
+    }
+
+    /**
+     * Download the image and store it in the disk cache
+     *
+     * @return the downloaded image, or null if it couldn't be downloaded
+     */
+    @Nullable
+    private byte[] download(String url) {
+        try (NewsHttpClient.Response response = mHttpClient.get(new URL(url), null)) {
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code " + response.getCode() + " for " + url);
+                return null;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            InputStream body = response.getBody();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+                if (bytes.size() > MAX_IMAGE_BYTES) {
+                    Log.e(LOG_TAG, "The thumbnail " + url + " is too big");
+                    response.abort();
+                    return null;
+                }
+            }
+
+            byte[] data = bytes.toByteArray();
+            mDiskCache.put(url, data);
+            return data;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem downloading the thumbnail " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Decode the image, skipping as many pixels as possible while it still covers the given
+     * size. The thumbnails are JPEGs, which have no transparency, so every pixel takes 2 bytes
+     * instead of 4.
+     *
+     * @return the decoded image, or null if the data isn't an image
+     */
+    @Nullable
+    static Bitmap decode(byte[] data, int width, int height) {
+        // Read only the size of the image first
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                width, height);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    /**
+     * @return the largest power of two by which the size of the image can be divided, while the
+     * image still covers the requested size
+     */
+    static int calculateInSampleSize(int imageWidth, int imageHeight,
+                                     int requestedWidth, int requestedHeight) {
+        int sampleSize = 1;
+        while (imageWidth / (sampleSize * 2) >= requestedWidth
+                && imageHeight / (sampleSize * 2) >= requestedHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.android.newsapp;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the merges and the paged queries of the article store.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SQLiteArticleStoreTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private SQLiteArticleStore mStore;
+
+    @Before
+    public void setUp() {
+        // A database in memory
+        mStore = new SQLiteArticleStore(RuntimeEnvironment.application, null);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void mergeOnlyCountsNewAndChangedArticles() {
+        assertEquals(News.NO_DATE, mStore.getNewestDateMillis());
+        assertEquals(3, mStore.merge(articles(0, 3)));
+
+        // Nothing changed
+        assertEquals(0, mStore.merge(articles(0, 3)));
+
+        // A title changed, and an article was added
+        News changed = new News("Changed title", "World news", null, 0, "https://example.com/0");
+        assertEquals(2, mStore.merge(Arrays.asList(changed, article(3))));
+
+        assertEquals(4, mStore.size());
+        assertEquals(article(3).getmDateMillis(), mStore.getNewestDateMillis());
+        assertEquals("Changed title", mStore.getNewest(4).get(3).getmTitle());
+    }
+
+    @Test
+    public void pagesCoverAllArticlesInOrder() {
+        // Several articles share the same date, so the pages are keyed by the URL as well
+        List<News> articles = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            articles.add(new News("Title " + i, "World news", "Author", (i / 4) * HOUR_MILLIS,
+                    "https://example.com/" + i));
+        }
+        mStore.merge(articles);
+
+        List<News> all = new ArrayList<>();
+        News last = null;
+        List<News> page;
+        do {
+            page = mStore.getPage(null, last, 10);
+            all.addAll(page);
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 10);
+
+        assertEquals(95, all.size());
+        Set<String> urls = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue(urls.add(all.get(i).getmURL()));
+            if (i > 0) {
+                assertTrue(all.get(i - 1).getmDateMillis() >= all.get(i).getmDateMillis());
+            }
+        }
+    }
+
+    @Test
+    public void pagesOfSection() {
+        mStore.merge(articles(0, 20));
+
+        List<News> page = mStore.getPage("Sport", null, 100);
+        assertEquals(10, page.size());
+        for (News news : page) {
+            assertEquals("Sport", news.getmSectionName());
+        }
+    }
+
+    @Test
+    public void keepsSyncWatermarkOfEverySection() {
+        assertEquals(News.NO_DATE, mStore.getSyncedUntilMillis("world"));
+
+        mStore.setSyncedUntilMillis("world", HOUR_MILLIS);
+        mStore.setSyncedUntilMillis("sport", 2 * HOUR_MILLIS);
+        mStore.setSyncedUntilMillis("world", 3 * HOUR_MILLIS);
+
+        assertEquals(3 * HOUR_MILLIS, mStore.getSyncedUntilMillis("world"));
+        assertEquals(2 * HOUR_MILLIS, mStore.getSyncedUntilMillis("sport"));
+
+        // The articles merged by the list don't move the watermark
+        mStore.merge(articles(0, 10));
+        assertEquals(3 * HOUR_MILLIS, mStore.getSyncedUntilMillis("world"));
+    }
+
+    @Test
+    public void articlesWithoutAuthorOrDate() {
+        mStore.merge(Arrays.asList(
+                new News("No date", "World news", null, News.NO_DATE, "https://example.com/a"),
+                article(1)));
+
+        List<News> news = mStore.getNewest(10);
+        assertEquals(2, news.size());
+        assertFalse(news.get(1).hasAuthor());
+        assertFalse(news.get(1).hasDate());
+    }
+
+    @Test
+    public void storesThumbnails() {
+        News withThumbnail = new News("Title", "World news", null, 0, "https://example.com/0",
+                "https://media.guim.co.uk/0/500.jpg");
+        mStore.merge(Arrays.asList(withThumbnail, article(1)));
+
+        List<News> news = mStore.getNewest(10);
+        assertFalse(news.get(0).hasThumbnail());
+        assertEquals("https://media.guim.co.uk/0/500.jpg", news.get(1).getmThumbnailUrl());
+
+        // A thumbnail which was added later counts as a change
+        News article = article(1);
+        News changed = new News(article.getmTitle(), article.getmSectionName(),
+                article.getmAuthor(), article.getmDateMillis(), article.getmURL(),
+                "https://media.guim.co.uk/1/500.jpg");
+        assertEquals(0, mStore.merge(Arrays.asList(withThumbnail)));
+        assertEquals(1, mStore.merge(Arrays.asList(changed)));
+    }
+
+    @Test
+    public void pagesAreReadFromTheIndexes() {
+        mStore.merge(articles(0, 50_000));
+        News after = article(25_000);
+
+        assertUsesIndex("SELECT * FROM articles WHERE date <= ? AND (date < ? OR url < ?)"
+                + " ORDER BY date DESC, url DESC LIMIT 40", "1", "1", "a");
+        assertUsesIndex("SELECT * FROM articles WHERE section = ? AND date <= ?"
+                + " AND (date < ? OR url < ?) ORDER BY date DESC, url DESC LIMIT 40",
+                "Sport", "1", "1", "a");
+
+        long start = System.nanoTime();
+        List<News> page = mStore.getPage(null, after, 40);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(40, page.size());
+        assertEquals(article(24_999).getmURL(), page.get(0).getmURL());
+        assertTrue("A page took " + elapsedMillis + " ms", elapsedMillis < 500);
+    }
+
+    /**
+     * Assert that the query is answered from an index, without sorting the articles
+     */
+    private void assertUsesIndex(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = mStore.getReadableDatabase().rawQuery(
+                "EXPLAIN QUERY PLAN " + sql, args)) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        }
+        assertTrue(plan.toString(), plan.toString().contains("USING INDEX"));
+        assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+    }
+
+    private static List<News> articles(int from, int to) {
+        List<News> articles = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            articles.add(article(i));
+        }
+        return articles;
+    }
+
+    /**
+     * @return an article, which is newer the higher the index is
+     */
+    private static News article(int index) {
+        return new News("Title " + index, index % 2 == 0 ? "World news" : "Sport",
+                "Author " + index % 7, index * HOUR_MILLIS, "https://example.com/" + index);
+    }
+}
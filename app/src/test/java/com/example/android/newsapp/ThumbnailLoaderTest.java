@@ -0,0 +1,27 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how much the thumbnails are downsampled when they are decoded.
+ */
+public class ThumbnailLoaderTest {
+
+    @Test
+    public void keepsImagesWhichAreNotBiggerThanTheView() {
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 500, 300));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 288, 216));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(100, 100, 288, 216));
+    }
+
+    @Test
+    public void downsamplesWhileTheImageCoversTheView() {
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(500, 300, 192, 144));
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(2000, 1200, 300, 200));
+
+        // Both sides must still cover the view, so the narrow side decides
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(2000, 600, 200, 200));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates search responses which look like the ones of the Guardian API, with all of the
+ * fields the parser has to skip.
+ */
+final class GuardianPayloads {
+
+    private static final String[][] SECTIONS = {
+            {"world", "World news"}, {"business", "Business"}, {"technology", "Technology"},
+            {"sport", "Sport"}, {"politics", "Politics"}, {"environment", "Environment"}};
+
+    private static final String[] WORDS = {"government", "plans", "climate", "record", "after",
+            "minister", "market", "warns", "new", "report", "shows", "crisis", "deal", "over",
+            "league", "first", "year", "election", "global", "energy"};
+
+    private GuardianPayloads() {
+    }
+
+    /**
+     * @return a search response with the given number of results, encoded as UTF-8.
+     * The same number of results always gives the same response.
+     */
+    static byte[] searchResponse(int results) {
+        Random random = new Random(results);
+        StringBuilder json = new StringBuilder(results * 900);
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(results * 40).append(",\"startIndex\":1,\"pageSize\":").append(results)
+                .append(",\"currentPage\":1,\"pages\":40,\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            String[] section = SECTIONS[random.nextInt(SECTIONS.length)];
+            String slug = title(random, 3).toLowerCase().replace(' ', '-') + "-" + i;
+            String path = section[0] + "/2021/mar/" + String.format("%02d", 1 + i % 28) + "/" + slug;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(path).append('"')
+                    .append(",\"type\":\"article\"")
+                    .append(",\"sectionId\":\"").append(section[0]).append('"')
+                    .append(",\"sectionName\":\"").append(section[1]).append('"')
+                    .append(",\"webPublicationDate\":\"2021-03-")
+                    .append(String.format("%02d", 1 + i % 28)).append('T')
+                    .append(String.format("%02d:%02d:%02d", random.nextInt(24),
+                            random.nextInt(60), random.nextInt(60))).append("Z\"")
+                    .append(",\"webTitle\":\"").append(title(random, 6 + random.nextInt(8)))
+                    .append('"')
+                    .append(",\"webUrl\":\"https://www.theguardian.com/").append(path).append('"')
+                    .append(",\"apiUrl\":\"https://content.guardianapis.com/").append(path)
+                    .append('"')
+                    .append(",\"tags\":[");
+            // Most of the news have one contributor, some have none or two
+            int contributors = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(10) / 9;
+            for (int c = 0; c < contributors; c++) {
+                String first = capitalize(WORDS[random.nextInt(WORDS.length)]);
+                String last = capitalize(WORDS[random.nextInt(WORDS.length)]);
+                if (c > 0) {
+                    json.append(',');
+                }
+                json.append("{\"id\":\"profile/").append(first.toLowerCase()).append('-')
+                        .append(last.toLowerCase()).append('"')
+                        .append(",\"type\":\"contributor\"")
+                        .append(",\"webTitle\":\"").append(first).append(' ').append(last)
+                        .append('"')
+                        .append(",\"webUrl\":\"https://www.theguardian.com/profile/")
+                        .append(first.toLowerCase()).append('"')
+                        .append(",\"apiUrl\":\"https://content.guardianapis.com/profile/")
+                        .append(first.toLowerCase()).append('"')
+                        .append(",\"bio\":\"<p>").append(title(random, 12)).append("</p>\"")
+                        .append(",\"firstName\":\"").append(first).append('"')
+                        .append(",\"lastName\":\"").append(last).append("\"}");
+            }
+            json.append("],\"isHosted\":false,\"pillarId\":\"pillar/news\"")
+                    .append(",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String title(Random random, int words) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(i == 0 ? capitalize(word) : word);
+        }
+        return title.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
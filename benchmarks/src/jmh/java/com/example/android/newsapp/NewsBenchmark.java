@@ -0,0 +1,54 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Builds and formats single news, the work done for every result of a response.
+ */
+@State(Scope.Benchmark)
+public class NewsBenchmark {
+
+    private static final String TITLE = "Government plans new climate record after minister warns";
+    private static final String SECTION = "World news";
+    private static final String AUTHOR = "Jane Market";
+    private static final String DATE = "2021-03-19T17:11:03Z";
+    private static final String URL =
+            "https://www.theguardian.com/world/2021/mar/19/government-plans-new-climate-record";
+
+    private final NewsFormatter mFormatter = new NewsFormatter("Section Name:  ", "Author: ", "Date: ");
+    private final long mDateMillis = News.parseDate(DATE);
+
+    @Benchmark
+    public long parseDate() {
+        return News.parseDate(DATE);
+    }
+
+    @Benchmark
+    public News construct() {
+        return new News(TITLE, SECTION, AUTHOR, mDateMillis, URL);
+    }
+
+    @Benchmark
+    public News constructAndParseDate() {
+        return new News(TITLE, SECTION, AUTHOR, News.parseDate(DATE), URL);
+    }
+
+    /**
+     * The date formatting which used to be done while binding every row
+     */
+    @Benchmark
+    public String formatDate() {
+        return NewsFormatter.formatDate(mDateMillis);
+    }
+
+    /**
+     * All of the labels of a news. A new news is needed every time, since it is only
+     * formatted once, so subtract {@link #construct()} to get the formatting alone.
+     */
+    @Benchmark
+    public News constructAndFormat() {
+        return mFormatter.format(new News(TITLE, SECTION, AUTHOR, mDateMillis, URL));
+    }
+}
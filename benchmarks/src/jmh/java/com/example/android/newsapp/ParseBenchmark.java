@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+/**
+ * Parses whole search responses, the way they are read from the network.
+ */
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "200", "5000"})
+    public int results;
+
+    private byte[] mPayload;
+
+    @Setup
+    public void setUp() {
+        mPayload = GuardianPayloads.searchResponse(results);
+    }
+
+    @Benchmark
+    public List<News> extractFeatureFromJson() {
+        return QueryUtils.extractFeatureFromJson(new ByteArrayInputStream(mPayload), null);
+    }
+
+    @Benchmark
+    public List<News> extractFeatureFromJsonWithListener() {
+        final int[] parsed = {0};
+        List<News> news = QueryUtils.extractFeatureFromJson(new ByteArrayInputStream(mPayload),
+                item -> parsed[0]++);
+        if (parsed[0] != news.size()) {
+            throw new IllegalStateException("The listener missed some news");
+        }
+        return news;
+    }
+}
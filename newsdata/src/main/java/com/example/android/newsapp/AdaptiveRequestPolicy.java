@@ -0,0 +1,108 @@
+package com.example.android.newsapp;
+
+/**
+ * Decides how big the requests for the list are, from the throughput and the latency the
+ * {@link ThroughputEstimator} measured on the recent responses.
+ * <p>
+ * On a slow network, a small first page is requested, without the extra fields such as the
+ * authors and the thumbnails, so the first rows are shown quickly. On a fast network, bigger
+ * pages are requested, so the list needs fewer round trips while the user scrolls. The slower
+ * a page loads, the earlier the next one is requested, so it is ready when the user reaches it.
+ * As long as nothing was measured, the default sizes are used.
+ */
+public class AdaptiveRequestPolicy {
+
+    /**
+     * The smallest, default and biggest number of news requested per page of every section
+     */
+    static final int MIN_SECTION_PAGE_SIZE = 3;
+    static final int DEFAULT_SECTION_PAGE_SIZE = 10;
+    static final int MAX_SECTION_PAGE_SIZE = 30;
+
+    /**
+     * The time in which the first page should be loaded, in milliseconds
+     */
+    static final long FIRST_PAGE_TARGET_MILLIS = 1000;
+
+    /**
+     * Below this throughput, in bytes per second, the extra fields aren't requested
+     */
+    static final long SLOW_BYTES_PER_SECOND = 16 * 1024;
+
+    /**
+     * The smallest and biggest number of rows before the end of the list at which
+     * the next page is requested
+     */
+    static final int MIN_PREFETCH_DISTANCE = 5;
+    static final int MAX_PREFETCH_DISTANCE = 30;
+
+    /**
+     * The time it takes a user who skims the list to scroll past a row, in milliseconds
+     */
+    private static final long SCROLL_MILLIS_PER_ROW = 150;
+
+    private final ThroughputEstimator mEstimator;
+
+    /**
+     * Constructs a new {@link AdaptiveRequestPolicy}
+     *
+     * @param estimator which measures the network
+     */
+    public AdaptiveRequestPolicy(ThroughputEstimator estimator) {
+        mEstimator = estimator;
+    }
+
+    /**
+     * The throughput is sampled per response, and the responses of the sections share the
+     * network while they are loaded in parallel, so it already is the share of a single section.
+     *
+     * @return the number of news to request per page of every section, so that the pages of all
+     * the sections are loaded within {@link #FIRST_PAGE_TARGET_MILLIS}
+     */
+    public int getSectionPageSize() {
+        long bytesPerSecond = mEstimator.getBytesPerSecond();
+        long bytesPerNews = mEstimator.getBytesPerNews();
+        if (bytesPerSecond <= 0 || bytesPerNews <= 0) {
+            return DEFAULT_SECTION_PAGE_SIZE;
+        }
+
+        // The time left for the bodies once the headers of the responses arrived
+        long downloadMillis = FIRST_PAGE_TARGET_MILLIS - Math.max(0, mEstimator.getLatencyMillis());
+        long pageBytes = bytesPerSecond * Math.max(0, downloadMillis) / 1000;
+        long pageSize = pageBytes / bytesPerNews;
+        return (int) clamp(pageSize, MIN_SECTION_PAGE_SIZE, MAX_SECTION_PAGE_SIZE);
+    }
+
+    /**
+     * @return whether the fields which aren't needed to show a row, i.e. the authors and the
+     * thumbnails, should be requested
+     */
+    public boolean shouldRequestExtraFields() {
+        long bytesPerSecond = mEstimator.getBytesPerSecond();
+        return bytesPerSecond < 0 || bytesPerSecond >= SLOW_BYTES_PER_SECOND;
+    }
+
+    /**
+     * @param pageSize number of news in a page of the list
+     * @return the number of rows before the end of the list at which the next page should be
+     * requested, so it is loaded by the time the user scrolls to the end
+     */
+    public int getPrefetchDistance(int pageSize) {
+        long bytesPerSecond = mEstimator.getBytesPerSecond();
+        long bytesPerNews = mEstimator.getBytesPerNews();
+        if (bytesPerSecond <= 0 || bytesPerNews <= 0) {
+            return MIN_PREFETCH_DISTANCE;
+        }
+
+        long pageMillis = Math.max(0, mEstimator.getLatencyMillis())
+                + pageSize * bytesPerNews * 1000 / bytesPerSecond;
+        long rows = (pageMillis + SCROLL_MILLIS_PER_ROW - 1) / SCROLL_MILLIS_PER_ROW;
+        // Requesting the next page before the current one is even on the screen doesn't help
+        long maxRows = Math.max(MIN_PREFETCH_DISTANCE, Math.min(MAX_PREFETCH_DISTANCE, pageSize));
+        return (int) clamp(rows, MIN_PREFETCH_DISTANCE, maxRows);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
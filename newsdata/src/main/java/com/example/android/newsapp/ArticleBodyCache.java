@@ -0,0 +1,40 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Disk cache for the text of the articles, by the URL of the article, bounded by the total
+ * number of bytes. The least recently read articles are deleted first when the cache grows
+ * too big.
+ */
+public class ArticleBodyCache extends LruDiskCache {
+
+    /**
+     * Constructs a new {@link ArticleBodyCache}
+     *
+     * @param directory in which the texts are stored. It is created if it doesn't exist.
+     * @param maxBytes  the maximum total size of the texts
+     */
+    public ArticleBodyCache(File directory, long maxBytes) {
+        super(directory, maxBytes, ".txt");
+    }
+
+    /**
+     * @return the text of the article at the given URL, or null if it isn't cached
+     */
+    @Nullable
+    public String getBody(String articleUrl) {
+        byte[] data = get(articleUrl);
+        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Store the text of the article at the given URL
+     */
+    public void putBody(String articleUrl, String body) {
+        put(articleUrl, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
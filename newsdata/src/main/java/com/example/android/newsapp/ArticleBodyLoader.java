@@ -0,0 +1,88 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Loads the text of the articles from the content API of the Guardian, and keeps it in an
+ * {@link ArticleBodyCache}. Once an article was loaded, it can be read again without the network.
+ * <p>
+ * The content API serves every article at the path of its web URL, so the texts are only
+ * requested for the articles which are read, or prefetched, and never for the whole list.
+ */
+public class ArticleBodyLoader {
+
+    private static final String LOG_TAG = ArticleBodyLoader.class.getSimpleName();
+
+    private final ArticleBodyCache mCache;
+
+    // URL of the content API, which the paths of the articles are added to
+    private final String mBaseUrl;
+
+    /**
+     * Constructs a new {@link ArticleBodyLoader}
+     *
+     * @param cache   which keeps the loaded texts
+     * @param baseUrl of the content API, ending with a slash
+     */
+    public ArticleBodyLoader(ArticleBodyCache cache, String baseUrl) {
+        mCache = cache;
+        mBaseUrl = baseUrl;
+    }
+
+    /**
+     * @return whether the text of the article at the given URL is cached. This reads the
+     * directory of the cache the first time, so it shouldn't be called on the main thread.
+     */
+    public boolean isCached(String articleUrl) {
+        return mCache.contains(articleUrl);
+    }
+
+    /**
+     * Load the text of the article at the given web URL, from the cache or else from the network.
+     *
+     * @param token which cancels the request, or null
+     * @return the text, or null if it couldn't be loaded or the load was cancelled
+     */
+    @Nullable
+    public String load(String articleUrl, @Nullable CancellationToken token) {
+        String body = mCache.getBody(articleUrl);
+        if (body != null) {
+            return body;
+        }
+
+        String requestUrl = buildContentUrl(articleUrl);
+        if (requestUrl == null) {
+            return null;
+        }
+        body = QueryUtils.fetchArticleBody(requestUrl, token);
+        if (body != null) {
+            mCache.putBody(articleUrl, body);
+        }
+        return body;
+    }
+
+    /**
+     * Build the URL of the article in the content API, from the web URL of the article.
+     * E.g. https://www.theguardian.com/world/2021/mar/19/some-article is at
+     * https://content.guardianapis.com/world/2021/mar/19/some-article
+     *
+     * @return the URL, or null if the web URL is malformed
+     */
+    @Nullable
+    String buildContentUrl(String articleUrl) {
+        String path;
+        try {
+            path = new URL(articleUrl).getPath();
+        } catch (MalformedURLException e) {
+            NewsLog.e(LOG_TAG, "Malformed article URL " + articleUrl, e);
+            return null;
+        }
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return mBaseUrl + path + "?show-fields=bodyText&api-key=" + QueryUtils.getApiKey();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Local store of the articles, keyed by their URL.
+ * The background sync merges the new articles into the store, so the app can show them
+ * when it is opened without waiting for the network.
+ */
+public interface ArticleStore {
+
+    /**
+     * @return at most the given number of articles, from the newest to the oldest one
+     */
+    List<News> getNewest(int limit);
+
+    /**
+     * Get a page of the articles, from the newest to the oldest one. The pages are keyed by
+     * the last article of the previous page, so a page is found just as fast no matter how
+     * far down the list it is.
+     *
+     * @param sectionName of the articles, or null for the articles of all the sections
+     * @param after       the last article of the previous page, or null for the first page
+     * @param limit       the maximum number of articles in the page
+     */
+    List<News> getPage(@Nullable String sectionName, @Nullable News after, int limit);
+
+    /**
+     * @return the published date of the newest article, or {@link News#NO_DATE} if the
+     * store is empty
+     */
+    long getNewestDateMillis();
+
+    /**
+     * Add the given articles to the store. An article which is already stored (with the
+     * same URL) is replaced, if it changed.
+     *
+     * @return the number of articles which were added or changed
+     */
+    int merge(List<News> news);
+
+    /**
+     * @return the sync watermark of the section: all of its articles which were published up to
+     * this date were synced. {@link News#NO_DATE} if the section was never synced.
+     */
+    long getSyncedUntilMillis(String section);
+
+    /**
+     * Set the sync watermark of the section. Only the sync sets it, once the articles up to
+     * the given date were merged into the store.
+     */
+    void setSyncedUntilMillis(String section, long dateMillis);
+
+    /**
+     * @return the number of stored articles
+     */
+    int size();
+}
@@ -0,0 +1,86 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Tells a load that it should stop. The load checks {@link #isCancelled()} between its steps,
+ * and registers a listener which aborts a blocking step (such as a network read) the moment
+ * the token is cancelled.
+ * <p>
+ * The token also carries the priority of its load, so the requests the load makes are
+ * scheduled with that priority.
+ */
+public class CancellationToken {
+
+    private final LoadEngine.Priority mPriority;
+
+    private volatile boolean mCancelled;
+
+    // Called once when the token is cancelled
+    private Runnable mOnCancelListener;
+
+    /**
+     * Constructs a new {@link CancellationToken} for a load which somebody is waiting for
+     */
+    public CancellationToken() {
+        this(LoadEngine.Priority.VISIBLE);
+    }
+
+    /**
+     * Constructs a new {@link CancellationToken} for a load with the given priority
+     */
+    public CancellationToken(LoadEngine.Priority priority) {
+        mPriority = priority;
+    }
+
+    /**
+     * @return the priority of the load
+     */
+    public LoadEngine.Priority getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Cancel the token and call its listener. Cancelling it again does nothing.
+     */
+    public void cancel() {
+        Runnable listener;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            listener = mOnCancelListener;
+            mOnCancelListener = null;
+        }
+        // Called outside of the lock, since it might block, e.g. to close a connection
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return whether the token was cancelled
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Set the listener which is called when the token is cancelled, replacing the previous one.
+     * If the token is already cancelled, the listener is called right away.
+     *
+     * @param listener to call, or null to remove the previous one
+     */
+    public void setOnCancelListener(@Nullable Runnable listener) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mOnCancelListener = listener;
+                return;
+            }
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+
+/**
+ * Stops the requests to an API which keeps failing, so the app shows the cached news right away
+ * instead of waiting for requests which will fail as well, and the API gets time to recover.
+ * <p>
+ * The breaker is closed as long as the requests succeed. After a number of failures in a row,
+ * it opens, and no requests are made for a while. After that, it is half open: a single trial
+ * request is let through. If it succeeds, the breaker closes again, otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Default number of failures in a row which open the breaker
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time the breaker stays open
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 30_000;
+
+    /**
+     * Thrown instead of making a request while the breaker is open
+     */
+    public static class OpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String message) {
+            super(message);
+        }
+    }
+
+    public enum State {
+        /** The requests are made */
+        CLOSED,
+        /** No requests are made */
+        OPEN,
+        /** A single trial request is made, which decides whether the breaker closes */
+        HALF_OPEN
+    }
+
+    private final int mFailureThreshold;
+    private final long mOpenNanos;
+
+    private State mState = State.CLOSED;
+
+    // Number of failures in a row
+    private int mFailures;
+
+    // While the breaker is open, the time at which it becomes half open. While it is half open,
+    // the time at which the next trial request may be made, in case the previous one never
+    // reported back (because it was cancelled).
+    private long mNextTrialNanos;
+
+    /**
+     * Constructs a new {@link CircuitBreaker} with the default threshold and time
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@link CircuitBreaker}
+     *
+     * @param failureThreshold number of failures in a row which open the breaker
+     * @param openMillis       time the breaker stays open
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenNanos = openMillis * 1_000_000;
+    }
+
+    /**
+     * @return whether a request may be made now. If the breaker is half open, this lets a single
+     * trial request through, and the caller must report its result.
+     */
+    public synchronized boolean allowRequest() {
+        if (mState == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - mNextTrialNanos < 0) {
+            return false;
+        }
+        mState = State.HALF_OPEN;
+        mNextTrialNanos = now + mOpenNanos;
+        return true;
+    }
+
+    /**
+     * Report a request which succeeded. This closes the breaker.
+     */
+    public synchronized void onSuccess() {
+        mState = State.CLOSED;
+        mFailures = 0;
+    }
+
+    /**
+     * Report a request which failed
+     *
+     * @param retryAfterMillis the time the server asked to wait, or -1 if it didn't ask.
+     *                         If the breaker opens, it stays open for at least that long.
+     */
+    public synchronized void onFailure(long retryAfterMillis) {
+        mFailures++;
+        if (mState == State.HALF_OPEN || mFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mNextTrialNanos = System.nanoTime()
+                    + Math.max(mOpenNanos, retryAfterMillis * 1_000_000);
+        }
+    }
+
+    /**
+     * @return the state of the breaker. An open breaker whose time is over is only reported as
+     * half open once a request was allowed.
+     */
+    public synchronized State getState() {
+        return mState;
+    }
+}
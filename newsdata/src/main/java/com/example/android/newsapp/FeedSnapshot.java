@@ -0,0 +1,272 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A snapshot of the feed on the screen: its news, the window of pages they belong to, and the
+ * scroll position. It is written to a file when the app goes to the background, so that after
+ * the process was killed, the same feed is shown again right away, without the network and
+ * without parsing any JSON.
+ * <p>
+ * The file starts with a header: a magic number, the version of the format, the length of the
+ * data and its CRC32 checksum. The data holds the news written with {@link NewsCodec}, followed
+ * by the pages and the scroll position. A file which is truncated, corrupt or of another version
+ * is ignored. The file is written with a single write to a temporary file, which then replaces
+ * the previous snapshot, and it is read with a single read.
+ */
+public class FeedSnapshot {
+
+    private static final String LOG_TAG = FeedSnapshot.class.getSimpleName();
+
+    /**
+     * Written at the start of every file, so other files aren't read as a snapshot
+     */
+    private static final int MAGIC = 0x46454544;
+
+    /**
+     * Version of the format. Snapshots with another version are ignored.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Size of the header: the magic number, the version, the length and the checksum of the data
+     */
+    static final int HEADER_BYTES = 16;
+
+    /**
+     * A snapshot with more sections than this is corrupt
+     */
+    private static final int MAX_SECTIONS = 64;
+
+    private final List<News> mNews;
+
+    // The window of pages: the number of news requested per page of every section, the first
+    // page in the window, the number of news in every page of the window, and the last page of
+    // every section (0 if it isn't known)
+    private final int mSectionPageSize;
+    private final int mFirstPage;
+    private final int[] mPageCounts;
+    private final int[] mSectionLastPages;
+
+    // The first row on the screen, and how far its top was scrolled past the top of the list
+    private final int mScrollPosition;
+    private final int mScrollOffset;
+
+    // The time the snapshot was taken, in milliseconds since the epoch
+    private final long mSavedAtMillis;
+
+    /**
+     * Constructs a new {@link FeedSnapshot}
+     *
+     * @param news           the news in the list
+     * @param pager          the window of pages which the news belong to
+     * @param scrollPosition the position of the first row on the screen
+     * @param scrollOffset   the offset of that row from the top of the list, in pixels
+     * @param savedAtMillis  the time the snapshot is taken, in milliseconds since the epoch
+     */
+    public FeedSnapshot(List<News> news, NewsPager pager, int scrollPosition, int scrollOffset,
+                        long savedAtMillis) {
+        this(news, pager.getSectionPageSize(), pager.getFirstPage(), pager.getPageCounts(),
+                pager.getSectionLastPages(), scrollPosition, scrollOffset, savedAtMillis);
+    }
+
+    private FeedSnapshot(List<News> news, int sectionPageSize, int firstPage, int[] pageCounts,
+                         int[] sectionLastPages, int scrollPosition, int scrollOffset,
+                         long savedAtMillis) {
+        mNews = news;
+        mSectionPageSize = sectionPageSize;
+        mFirstPage = firstPage;
+        mPageCounts = pageCounts;
+        mSectionLastPages = sectionLastPages;
+        mScrollPosition = scrollPosition;
+        mScrollOffset = scrollOffset;
+        mSavedAtMillis = savedAtMillis;
+    }
+
+    /**
+     * @return the news in the list
+     */
+    public List<News> getNews() {
+        return mNews;
+    }
+
+    /**
+     * @return a copy of this snapshot with the given news instead, e.g. the formatted ones
+     */
+    public FeedSnapshot withNews(List<News> news) {
+        return new FeedSnapshot(news, mSectionPageSize, mFirstPage, mPageCounts,
+                mSectionLastPages, mScrollPosition, mScrollOffset, mSavedAtMillis);
+    }
+
+    /**
+     * @param maxPages maximum number of pages which are kept in the list
+     * @return a pager with the window of pages which the news belong to, with the same size of
+     * the pages and the same sections
+     */
+    public NewsPager toPager(int maxPages) {
+        NewsPager pager = new NewsPager(mSectionPageSize, mSectionLastPages.length, maxPages);
+        pager.restore(mFirstPage, mPageCounts, mSectionLastPages);
+        return pager;
+    }
+
+    /**
+     * @return the position of the first row on the screen
+     */
+    public int getScrollPosition() {
+        return mScrollPosition;
+    }
+
+    /**
+     * @return the offset of the first row on the screen from the top of the list, in pixels
+     */
+    public int getScrollOffset() {
+        return mScrollOffset;
+    }
+
+    /**
+     * @return the time the snapshot was taken, in milliseconds since the epoch
+     */
+    public long getSavedAtMillis() {
+        return mSavedAtMillis;
+    }
+
+    /**
+     * Write the snapshot to the given file, replacing the previous one. If the writing fails,
+     * the previous snapshot is kept.
+     */
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + mNews.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        // Leave room for the header, which is filled in once the length of the data is known
+        out.write(new byte[HEADER_BYTES]);
+        NewsCodec.writeNewsList(out, mNews);
+        out.writeInt(mSectionPageSize);
+        out.writeInt(mFirstPage);
+        out.writeInt(mPageCounts.length);
+        for (int count : mPageCounts) {
+            out.writeInt(count);
+        }
+        out.writeInt(mSectionLastPages.length);
+        for (int lastPage : mSectionLastPages) {
+            out.writeInt(lastPage);
+        }
+        out.writeInt(mScrollPosition);
+        out.writeInt(mScrollOffset);
+        out.writeLong(mSavedAtMillis);
+        out.flush();
+
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data, HEADER_BYTES, data.length - HEADER_BYTES);
+        ByteBuffer.wrap(data)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(data.length - HEADER_BYTES)
+                .putInt((int) crc.getValue());
+
+        // Write to a temporary file first and then rename it, so a snapshot which is read
+        // is always complete
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile)) {
+            fileOut.write(data);
+            // The snapshot is written when the process might be killed soon after
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Couldn't move the snapshot to " + file);
+        }
+    }
+
+    /**
+     * Read the snapshot in the given file.
+     *
+     * @return the snapshot, or null if there is none, or if it is corrupt or of another version
+     */
+    @Nullable
+    public static FeedSnapshot read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            if (data.length < HEADER_BYTES) {
+                throw new IOException("Truncated header");
+            }
+            ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                // Not an error, the app was updated since the snapshot was taken
+                return null;
+            }
+            int length = header.getInt();
+            if (length != data.length - HEADER_BYTES) {
+                throw new IOException("Truncated data: " + (data.length - HEADER_BYTES)
+                        + " of " + length + " bytes");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, HEADER_BYTES, length);
+            if (header.getInt() != (int) crc.getValue()) {
+                throw new IOException("Checksum mismatch");
+            }
+
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(data, HEADER_BYTES, length));
+            List<News> news = NewsCodec.readNewsList(in);
+            int sectionPageSize = in.readInt();
+            int firstPage = in.readInt();
+            int pageCount = in.readInt();
+            if (sectionPageSize <= 0 || firstPage < 1 || pageCount < 0
+                    || pageCount > news.size() + 1) {
+                throw new IOException("Invalid pages");
+            }
+            int[] pageCounts = new int[pageCount];
+            int total = 0;
+            for (int i = 0; i < pageCount; i++) {
+                pageCounts[i] = in.readInt();
+                total += pageCounts[i];
+            }
+            if (total != news.size()) {
+                throw new IOException("The pages hold " + total + " news instead of "
+                        + news.size());
+            }
+            int sectionCount = in.readInt();
+            if (sectionCount < 1 || sectionCount > MAX_SECTIONS) {
+                throw new IOException("Invalid number of sections: " + sectionCount);
+            }
+            int[] sectionLastPages = new int[sectionCount];
+            for (int i = 0; i < sectionCount; i++) {
+                sectionLastPages[i] = in.readInt();
+            }
+            int scrollPosition = in.readInt();
+            int scrollOffset = in.readInt();
+            long savedAtMillis = in.readLong();
+
+            return new FeedSnapshot(news, sectionPageSize, firstPage, pageCounts,
+                    sectionLastPages, scrollPosition, scrollOffset, savedAtMillis);
+        } catch (IOException e) {
+            NewsLog.e(LOG_TAG, "Ignoring the corrupt snapshot " + file, e);
+            return null;
+        }
+    }
+}
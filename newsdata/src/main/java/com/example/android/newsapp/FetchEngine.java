@@ -0,0 +1,401 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the requests of a {@link NewsHttpClient} resilient to a slow or failing API.
+ * <ul>
+ * <li>A request which fails, or which is answered with 429 Too Many Requests or a server error,
+ * is made again after the wait of the {@link RetryPolicy}, which honors the Retry-After header.
+ * A request which timed out is not, since it already took the whole timeout.</li>
+ * <li>A request whose response takes longer than most (by default, longer than 95% of the
+ * previous responses) is hedged: the same request is made a second time, and whichever response
+ * arrives first is used. The other one is aborted.</li>
+ * <li>While the API keeps failing, the {@link CircuitBreaker} stops the requests, so the callers
+ * fall back to the cached news right away.</li>
+ * <li>Every request, also every retry and hedged request, is scheduled by the
+ * {@link RequestScheduler}, so the app stays within the rate limits of the API. A request is only
+ * hedged if the scheduler can let it through right away.</li>
+ * </ul>
+ * Only the requests up to the headers of the response are retried or hedged. Once the body is
+ * being read, its news are already handed to the callers, so a request isn't made again then.
+ */
+public class FetchEngine {
+
+    private static final String LOG_TAG = FetchEngine.class.getSimpleName();
+
+    /**
+     * By default, a request is hedged once it takes longer than this percentage of the
+     * previous responses
+     */
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95;
+
+    /**
+     * Number of responses which are measured before any request is hedged
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
+    /**
+     * A request is never hedged earlier than this, so a fast network isn't sent every request
+     * twice because of a small hiccup
+     */
+    static final long MIN_HEDGE_DELAY_MILLIS = 100;
+
+    /**
+     * Runs the requests which race each other. The threads mostly wait for the network.
+     */
+    private static final ExecutorService sHedgeExecutor;
+
+    static {
+        AtomicInteger threadNumber = new AtomicInteger();
+        sHedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "FetchEngine-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final NewsHttpClient mClient;
+    private final RetryPolicy mRetryPolicy;
+    private final CircuitBreaker mBreaker;
+    private final RequestScheduler mScheduler;
+
+    // Percentile of the latencies after which a request is hedged, 0 to never hedge
+    private final double mHedgePercentile;
+
+    // Time from the start of the successful requests to the headers of their responses
+    private final Log2Histogram mLatencies = new Log2Histogram();
+
+    /**
+     * Constructs a new {@link FetchEngine} with the default retries, circuit breaker and hedging,
+     * whose requests are scheduled by the scheduler of the process
+     */
+    public FetchEngine(NewsHttpClient client) {
+        this(client, new RetryPolicy(), new CircuitBreaker(), RequestScheduler.getInstance(),
+                DEFAULT_HEDGE_PERCENTILE);
+    }
+
+    /**
+     * Constructs a new {@link FetchEngine}
+     *
+     * @param client          which makes the requests
+     * @param retryPolicy     which decides whether and when a failed request is made again
+     * @param breaker         which stops the requests while the API keeps failing
+     * @param scheduler       which keeps the requests within the rate limits
+     * @param hedgePercentile percentile of the latencies of the previous responses after which
+     *                        a request is hedged, or 0 to never hedge
+     */
+    public FetchEngine(NewsHttpClient client, RetryPolicy retryPolicy, CircuitBreaker breaker,
+                       RequestScheduler scheduler, double hedgePercentile) {
+        mClient = client;
+        mRetryPolicy = retryPolicy;
+        mBreaker = breaker;
+        mScheduler = scheduler;
+        mHedgePercentile = hedgePercentile;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return mBreaker;
+    }
+
+    /**
+     * Make a GET request to the given URL, retrying and hedging it as needed.
+     * The returned {@link NewsHttpClient.Response} must always be closed. It can still be an
+     * error response, if the last attempt was answered with one.
+     *
+     * @param headers additional request headers, or null
+     * @param token   which cancels the request, also while waiting for a retry, or null.
+     *                The request is scheduled with the priority of the token.
+     * @throws CircuitBreaker.OpenException             if no request is made, because the API
+     *                                                  keeps failing
+     * @throws RequestScheduler.QuotaExceededException if no request is made, because the quota
+     *                                                  is kept for more urgent requests
+     * @throws InterruptedIOException                   if the token was cancelled
+     * @throws IOException                              if the last attempt failed
+     */
+    public NewsHttpClient.Response get(URL url, @Nullable Map<String, String> headers,
+                                       @Nullable CancellationToken token) throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                checkCancelled(token);
+                if (!mBreaker.allowRequest()) {
+                    throw new CircuitBreaker.OpenException("Not requesting " + url.getHost()
+                            + " while it keeps failing");
+                }
+                mScheduler.acquire(token);
+
+                NewsHttpClient.Response response;
+                try {
+                    response = getHedged(url, headers, token, requests);
+                } catch (IOException e) {
+                    checkCancelled(token);
+                    mBreaker.onFailure(-1);
+                    long delayMillis = e instanceof SocketTimeoutException
+                            ? -1 : mRetryPolicy.getDelayMillis(attempt, -1);
+                    if (delayMillis < 0) {
+                        throw e;
+                    }
+                    NewsLog.e(LOG_TAG, "Retrying " + url + " in " + delayMillis + " ms", e);
+                    waitBeforeRetry(delayMillis, token);
+                    continue;
+                }
+
+                mScheduler.onResponse(response);
+                int code = response.getCode();
+                if (!RetryPolicy.isRetryable(code)) {
+                    mBreaker.onSuccess();
+                    mLatencies.record(response.getLatencyNanos());
+                    return response;
+                }
+
+                long retryAfterMillis = RetryPolicy.parseRetryAfter(
+                        response.getHeader("Retry-After"), System.currentTimeMillis());
+                mBreaker.onFailure(retryAfterMillis);
+                long delayMillis = mRetryPolicy.getDelayMillis(attempt, retryAfterMillis);
+                if (delayMillis < 0) {
+                    return response;
+                }
+                NewsLog.e(LOG_TAG, "Retrying " + url + " in " + delayMillis
+                        + " ms after response code " + code);
+                // The connection can't be reused if the rest of the response can't be read
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    checkCancelled(token);
+                }
+                waitBeforeRetry(delayMillis, token);
+            }
+        } finally {
+            NewsMetrics.getInstance().record(NewsMetrics.Metric.ATTEMPTS, requests.get());
+        }
+    }
+
+    /**
+     * @return how long a request may take before it is hedged, in nanoseconds, or 0 if it
+     * shouldn't be hedged
+     */
+    long getHedgeDelayNanos() {
+        if (mHedgePercentile <= 0) {
+            return 0;
+        }
+        Log2Histogram.Snapshot latencies = mLatencies.snapshot();
+        if (latencies.getCount() < MIN_HEDGE_SAMPLES) {
+            return 0;
+        }
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(MIN_HEDGE_DELAY_MILLIS),
+                latencies.getPercentile(mHedgePercentile));
+    }
+
+    /**
+     * Make the request, and make it a second time if the first response takes too long
+     *
+     * @param requests counts the requests which are made
+     */
+    private NewsHttpClient.Response getHedged(URL url, @Nullable Map<String, String> headers,
+                                              @Nullable CancellationToken token,
+                                              AtomicInteger requests) throws IOException {
+        long hedgeDelayNanos = getHedgeDelayNanos();
+        if (hedgeDelayNanos == 0) {
+            requests.incrementAndGet();
+            return mClient.get(url, headers, token);
+        }
+
+        Race race = new Race(url, headers);
+        if (token != null) {
+            token.setOnCancelListener(race::cancel);
+        }
+        try {
+            requests.incrementAndGet();
+            race.start();
+            if (!race.await(hedgeDelayNanos)) {
+                // The response is later than most, so ask again and take the first response,
+                // unless that would hold up other requests
+                LoadEngine.Priority priority =
+                        token != null ? token.getPriority() : LoadEngine.Priority.BACKGROUND;
+                if (mScheduler.tryAcquire(priority)) {
+                    requests.incrementAndGet();
+                    race.start();
+                }
+                race.await(Long.MAX_VALUE);
+            }
+            return race.getResult();
+        } catch (InterruptedIOException e) {
+            race.cancel();
+            throw e;
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+    }
+
+    /**
+     * Wait before the next attempt, unless the token is cancelled in the meantime
+     */
+    private static void waitBeforeRetry(long delayMillis, @Nullable CancellationToken token)
+            throws InterruptedIOException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        if (token != null) {
+            token.setOnCancelListener(cancelled::countDown);
+        }
+        try {
+            cancelled.await(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+        checkCancelled(token);
+    }
+
+    private static void checkCancelled(@Nullable CancellationToken token)
+            throws InterruptedIOException {
+        if (token != null && token.isCancelled()) {
+            throw new InterruptedIOException("Cancelled");
+        }
+    }
+
+    /**
+     * The same request made once or twice, of which the first response wins. Every request has
+     * its own token, so the requests which are still connecting or waiting for their headers
+     * are aborted once another one wins, or the race is cancelled. The responses which arrive
+     * anyway are aborted as well.
+     */
+    private class Race {
+
+        private final URL mUrl;
+        private final Map<String, String> mHeaders;
+
+        // The tokens of the requests which were started
+        private final List<CancellationToken> mLegs = new ArrayList<>();
+
+        // Number of requests which didn't get a response or an error yet
+        private int mRunning;
+
+        private NewsHttpClient.Response mWinner;
+        private IOException mError;
+        private boolean mCancelled;
+
+        Race(URL url, @Nullable Map<String, String> headers) {
+            mUrl = url;
+            mHeaders = headers;
+        }
+
+        /**
+         * Make the request on a thread of the executor
+         */
+        void start() {
+            CancellationToken leg = new CancellationToken();
+            synchronized (this) {
+                mRunning++;
+                mLegs.add(leg);
+            }
+            sHedgeExecutor.execute(() -> {
+                try {
+                    onResponse(leg, mClient.get(mUrl, mHeaders, leg));
+                } catch (IOException e) {
+                    onError(e);
+                } catch (RuntimeException e) {
+                    onError(new IOException(e));
+                }
+            });
+        }
+
+        private void onResponse(CancellationToken leg, NewsHttpClient.Response response) {
+            List<CancellationToken> losers;
+            synchronized (this) {
+                mRunning--;
+                if (mWinner != null || mCancelled) {
+                    losers = Collections.singletonList(leg);
+                } else {
+                    mWinner = response;
+                    notifyAll();
+                    losers = new ArrayList<>(mLegs);
+                    losers.remove(leg);
+                }
+            }
+            // Cancelled outside of the lock, since closing a connection might block
+            for (CancellationToken loser : losers) {
+                loser.cancel();
+            }
+        }
+
+        private synchronized void onError(IOException error) {
+            mRunning--;
+            if (mError == null) {
+                mError = error;
+            }
+            notifyAll();
+        }
+
+        void cancel() {
+            List<CancellationToken> legs;
+            synchronized (this) {
+                mCancelled = true;
+                notifyAll();
+                legs = new ArrayList<>(mLegs);
+            }
+            for (CancellationToken leg : legs) {
+                leg.cancel();
+            }
+        }
+
+        /**
+         * Wait until there is a response, every request failed, or the race was cancelled
+         *
+         * @return false if the time ran out before that
+         */
+        synchronized boolean await(long timeoutNanos) throws InterruptedIOException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (mWinner == null && mRunning > 0 && !mCancelled) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    // The caller cancels the race once it released the lock
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a response");
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the first response
+         * @throws IOException the error of the first request, if every request failed
+         */
+        synchronized NewsHttpClient.Response getResult() throws IOException {
+            if (mCancelled) {
+                if (mWinner != null) {
+                    mWinner.abort();
+                }
+                throw new InterruptedIOException("Cancelled");
+            }
+            if (mWinner == null) {
+                throw mError;
+            }
+            return mWinner;
+        }
+    }
+}
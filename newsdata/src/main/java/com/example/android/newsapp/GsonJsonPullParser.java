@@ -0,0 +1,74 @@
+package com.example.android.newsapp;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@link JsonPullParser} backed by the streaming reader of Gson, used on a plain JVM
+ */
+public class GsonJsonPullParser implements JsonPullParser {
+
+    private final JsonReader mReader;
+
+    public GsonJsonPullParser(Reader reader) {
+        mReader = new JsonReader(reader);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        mReader.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        mReader.endArray();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        mReader.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        mReader.endObject();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return mReader.hasNext();
+    }
+
+    @Override
+    public Token peek() throws IOException {
+        // Both have the same tokens
+        return Token.valueOf(mReader.peek().name());
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        return mReader.nextName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        return mReader.nextString();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        mReader.nextNull();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        mReader.skipValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
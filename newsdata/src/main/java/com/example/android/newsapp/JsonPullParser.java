@@ -0,0 +1,55 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser which reads a JSON document one token at a time. The parser of the responses
+ * only depends on this interface, so the JSON library behind it can be swapped.
+ */
+public interface JsonPullParser extends Closeable {
+
+    /**
+     * Kind of the next token in the document
+     */
+    enum Token {
+        BEGIN_ARRAY,
+        END_ARRAY,
+        BEGIN_OBJECT,
+        END_OBJECT,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    /**
+     * Creates a parser which reads the given document
+     */
+    interface Factory {
+        JsonPullParser create(Reader reader);
+    }
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    void beginObject() throws IOException;
+
+    void endObject() throws IOException;
+
+    boolean hasNext() throws IOException;
+
+    Token peek() throws IOException;
+
+    String nextName() throws IOException;
+
+    String nextString() throws IOException;
+
+    void nextNull() throws IOException;
+
+    void skipValue() throws IOException;
+}
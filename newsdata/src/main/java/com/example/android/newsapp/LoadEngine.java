@@ -0,0 +1,338 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the loads of the news on a small pool of background threads, by their priority.
+ * <p>
+ * Every load gets a {@link CancellationToken}, which is cancelled when the load is cancelled, so
+ * a load which is in progress stops at once (e.g. by aborting its network read). The token
+ * carries the priority of the load, so its requests are scheduled by it as well. The result of
+ * a load is delivered on the callback executor (the main thread of the app), unless the load
+ * was cancelled.
+ * <p>
+ * Loads with a higher priority run first. When all of the threads are busy and a load with a
+ * higher priority arrives, the running {@link PreemptibleJob} with the lowest priority is
+ * pre-empted: its token is cancelled, and it is started again once there is a free thread. Other
+ * loads are never pre-empted, since they wouldn't stop, and would run twice. Loads which aren't
+ * visible are dropped when too many loads are waiting already, so fast scrolling can't pile them
+ * up.
+ */
+public class LoadEngine {
+
+    private static final String LOG_TAG = LoadEngine.class.getSimpleName();
+
+    /**
+     * Default number of threads which run the loads
+     */
+    public static final int DEFAULT_THREAD_COUNT = 2;
+
+    /**
+     * The maximum number of waiting loads. More loads which aren't visible are dropped.
+     */
+    static final int MAX_WAITING_LOADS = 8;
+
+    /**
+     * How urgent a load is, from the least to the most urgent one
+     */
+    public enum Priority {
+        /** Work which nobody waits for, e.g. making the stored articles searchable */
+        BACKGROUND,
+        /** News which aren't on the screen yet, but will be soon */
+        PREFETCH,
+        /** News which the user is waiting for */
+        VISIBLE
+    }
+
+    /**
+     * A load which runs on a thread of the engine
+     *
+     * @param <T> type of the result
+     */
+    public interface Job<T> {
+
+        /**
+         * Run the load. It should stop as soon as the token is cancelled.
+         *
+         * @return the result, or null if the load failed
+         */
+        @Nullable
+        T run(CancellationToken token);
+    }
+
+    /**
+     * A load which stops as soon as its token is cancelled, and which can be run again from the
+     * start. Only these loads are pre-empted by more urgent ones.
+     *
+     * @param <T> type of the result
+     */
+    public interface PreemptibleJob<T> extends Job<T> {
+    }
+
+    /**
+     * Receives the result of a load on the callback executor
+     *
+     * @param <T> type of the result
+     */
+    public interface Callback<T> {
+        void onResult(@Nullable T result);
+    }
+
+    /**
+     * A load which was submitted to the engine
+     */
+    public interface Handle {
+
+        /**
+         * Cancel the load. If it is running, its token is cancelled. Its result is never
+         * delivered, even if the load already finished.
+         */
+        void cancel();
+
+        /**
+         * @return whether the load was cancelled, or dropped because too many loads were waiting
+         */
+        boolean isCancelled();
+    }
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Executor mCallbackExecutor;
+    private final int mThreadCount;
+
+    // The loads which are running right now. Guarded by itself.
+    private final Set<Task<?>> mRunning = new HashSet<>();
+
+    // Orders the loads of the same priority by the time they were submitted
+    private final AtomicLong mSequence = new AtomicLong();
+
+    // The number of loads which were pre-empted and dropped
+    private final AtomicInteger mPreemptedCount = new AtomicInteger();
+    private final AtomicInteger mDroppedCount = new AtomicInteger();
+
+    /**
+     * Constructs a new {@link LoadEngine}
+     *
+     * @param threadCount      number of threads which run the loads
+     * @param callbackExecutor on which the results are delivered
+     */
+    public LoadEngine(int threadCount, Executor callbackExecutor) {
+        mThreadCount = threadCount;
+        mCallbackExecutor = callbackExecutor;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "LoadEngine-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Every load goes through the queue, so the loads always start in the order of
+        // their priority
+        mExecutor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Submit a load.
+     *
+     * @param priority of the load
+     * @param job      which loads the result on a thread of the engine
+     * @param callback which receives the result on the callback executor
+     * @return the handle to cancel the load with
+     */
+    public <T> Handle submit(Priority priority, Job<T> job, Callback<T> callback) {
+        Task<T> task = new Task<>(priority, mSequence.getAndIncrement(), job, callback);
+
+        CancellationToken preempted = null;
+        synchronized (mRunning) {
+            if (priority != Priority.VISIBLE
+                    && mExecutor.getQueue().size() >= MAX_WAITING_LOADS) {
+                // The load would only start long after it was asked for, so drop it
+                mDroppedCount.incrementAndGet();
+                task.mCancelled = true;
+                return task;
+            }
+            if (countNotPreempted() >= mThreadCount) {
+                preempted = preemptLowerThan(priority);
+            }
+            // Queue the load before the pre-empted load can queue itself again, so the
+            // pre-empted load can't take the free thread first. The queue never blocks.
+            mExecutor.execute(task);
+        }
+        // Cancelled outside of the lock, since aborting the requests of the load might block
+        if (preempted != null) {
+            preempted.cancel();
+        }
+        return task;
+    }
+
+    /**
+     * @return the number of loads which were pre-empted by more urgent loads
+     */
+    public int getPreemptedCount() {
+        return mPreemptedCount.get();
+    }
+
+    /**
+     * @return the number of loads which were dropped because too many loads were waiting
+     */
+    public int getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Stop the threads of the engine. The running loads are cancelled, and the waiting loads
+     * never start.
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+        synchronized (mRunning) {
+            for (Task<?> task : mRunning) {
+                task.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return the number of running loads which weren't pre-empted yet. Must hold the lock.
+     */
+    private int countNotPreempted() {
+        int count = 0;
+        for (Task<?> task : mRunning) {
+            if (!task.mPreempted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Mark the running pre-emptible load with the lowest priority as pre-empted, if it is lower
+     * than the given one. Must hold the lock.
+     *
+     * @return the token of the run which was pre-empted, which the caller has to cancel once it
+     * released the lock, or null if no load was pre-empted
+     */
+    @Nullable
+    private CancellationToken preemptLowerThan(Priority priority) {
+        Task<?> lowest = null;
+        for (Task<?> task : mRunning) {
+            if (!task.mPreempted && task.mJob instanceof PreemptibleJob
+                    && task.mPriority.compareTo(priority) < 0
+                    && (lowest == null || task.compareTo(lowest) > 0)) {
+                lowest = task;
+            }
+        }
+        if (lowest == null) {
+            return null;
+        }
+        mPreemptedCount.incrementAndGet();
+        lowest.mPreempted = true;
+        return lowest.mToken;
+    }
+
+    /**
+     * A load, which is ordered in the queue by its priority and then by the time it was submitted
+     */
+    private class Task<T> implements Runnable, Comparable<Task<?>>, Handle {
+
+        private final Priority mPriority;
+        private final long mSequence;
+        private final Job<T> mJob;
+        private final Callback<T> mCallback;
+
+        private volatile boolean mCancelled;
+
+        // Whether the current run was pre-empted, and the token of the current run.
+        // Guarded by the lock of the engine.
+        private boolean mPreempted;
+        private CancellationToken mToken;
+
+        Task(Priority priority, long sequence, Job<T> job, Callback<T> callback) {
+            mPriority = priority;
+            mSequence = sequence;
+            mJob = job;
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            CancellationToken token = new CancellationToken(mPriority);
+            synchronized (mRunning) {
+                if (mCancelled) {
+                    return;
+                }
+                mToken = token;
+                mPreempted = false;
+                mRunning.add(this);
+            }
+
+            T result = null;
+            try {
+                result = mJob.run(token);
+            } catch (RuntimeException e) {
+                NewsLog.e(LOG_TAG, "Problem running a load", e);
+            }
+
+            boolean preempted;
+            synchronized (mRunning) {
+                mRunning.remove(this);
+                preempted = mPreempted;
+            }
+
+            if (mCancelled || mExecutor.isShutdown()) {
+                return;
+            }
+            if (preempted) {
+                // Start again once a thread is free. The task keeps its place in the order,
+                // so it runs before the loads of its priority which came after it.
+                mExecutor.execute(this);
+                return;
+            }
+
+            T delivered = result;
+            mCallbackExecutor.execute(() -> {
+                // The load might have been cancelled while the result was on its way
+                if (!mCancelled) {
+                    mCallback.onResult(delivered);
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            CancellationToken token;
+            synchronized (mRunning) {
+                mCancelled = true;
+                token = mToken;
+            }
+            // Don't keep the load in the queue until its turn comes
+            mExecutor.remove(this);
+            if (token != null) {
+                token.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * The more urgent load comes first
+         */
+        @Override
+        public int compareTo(Task<?> other) {
+            int byPriority = other.mPriority.compareTo(mPriority);
+            return byPriority != 0 ? byPriority : Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values (such as durations in nanoseconds, or sizes in bytes), with
+ * a bucket for every power of two. Bucket i counts the values from 2^(i-1) up to 2^i - 1, and
+ * bucket 0 counts the zeros.
+ * <p>
+ * Recording a value only increments a few counters, without locks or allocations, so it can be
+ * done on every call of a hot path and from several threads at once. The percentiles are
+ * estimated from the buckets, so they are accurate to within a factor of two.
+ */
+public class Log2Histogram {
+
+    /**
+     * Number of buckets, enough for every positive long
+     */
+    static final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // Another thread recorded a value in the meantime, try again
+        }
+    }
+
+    /**
+     * Forget all of the recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * @return a copy of the recorded values. Values which are recorded while the copy is made
+     * might be only partly included.
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(buckets, mCount.get(), mSum.get(), mMax.get());
+    }
+
+    /**
+     * @return the bucket of the given value
+     */
+    static int bucketOf(long value) {
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * The values of a histogram at one point in time
+     */
+    public static class Snapshot {
+
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        /**
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return the sum of the recorded values
+         */
+        public long getSum() {
+            return mSum;
+        }
+
+        /**
+         * @return the largest recorded value
+         */
+        public long getMax() {
+            return mMax;
+        }
+
+        /**
+         * @return the average of the recorded values, or 0 if there are none
+         */
+        public long getMean() {
+            return mCount > 0 ? mSum / mCount : 0;
+        }
+
+        /**
+         * @return the number of values in the given bucket
+         */
+        public long getBucketCount(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return an estimate of the value below which the given percentage of the values are.
+         * It is the upper bound of the bucket the percentile falls into, but never more than
+         * the largest value.
+         */
+        public long getPercentile(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * mCount);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && mBuckets[i] > 0) {
+                    long upperBound = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upperBound, mMax);
+                }
+            }
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + " mean=" + getMean() + " p50=" + getPercentile(50)
+                    + " p90=" + getPercentile(90) + " p99=" + getPercentile(99) + " max=" + mMax;
+        }
+    }
+}
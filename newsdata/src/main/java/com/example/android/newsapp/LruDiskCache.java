@@ -0,0 +1,175 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disk cache of byte arrays by their URL, bounded by the total number of bytes.
+ * <p>
+ * Every entry is stored in a file of its own, named by the hash of its URL. The cache keeps the
+ * list of its files in the order they were used, so the least recently used entries are deleted
+ * first when the cache grows too big. When the app starts again, that order is restored from the
+ * modification times of the files.
+ */
+public class LruDiskCache {
+
+    private static final String LOG_TAG = LruDiskCache.class.getSimpleName();
+
+    // Directory in which the entries are stored, and the suffix of their files
+    private final File mDirectory;
+    private final String mSuffix;
+
+    // The maximum total size of the entries
+    private final long mMaxBytes;
+
+    // Size of every stored file by its name, from the least to the most recently used one.
+    // It is read from the directory when the cache is used for the first time.
+    private LinkedHashMap<String, Long> mEntries;
+    private long mSize;
+
+    /**
+     * Constructs a new {@link LruDiskCache}
+     *
+     * @param directory in which the entries are stored. It is created if it doesn't exist.
+     * @param maxBytes  the maximum total size of the entries
+     * @param suffix    of the files of the entries, e.g. ".img"
+     */
+    public LruDiskCache(File directory, long maxBytes, String suffix) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mSuffix = suffix;
+    }
+
+    /**
+     * @return whether there is an entry for the given URL, without reading it
+     */
+    public synchronized boolean contains(String url) {
+        // Don't mark the entry as used, it isn't read
+        return entries().containsKey(nameFor(url));
+    }
+
+    /**
+     * @return the cached entry for the given URL, or null if there is none
+     */
+    @Nullable
+    public byte[] get(String url) {
+        String name = nameFor(url);
+        synchronized (this) {
+            // Looking the entry up marks it as the most recently used one
+            if (entries().get(name) == null) {
+                return null;
+            }
+        }
+
+        // Read the file without holding the lock, so the other threads aren't blocked
+        File file = new File(mDirectory, name);
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            // The file was deleted in the meantime
+            synchronized (this) {
+                remove(name);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Store the entry for the given URL, and delete the least recently used entries if the
+     * cache grew too big. Entries bigger than the whole cache aren't stored at all.
+     */
+    public void put(String url, byte[] data) {
+        if (data.length > mMaxBytes) {
+            return;
+        }
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            NewsLog.e(LOG_TAG, "Couldn't create the cache directory " + mDirectory);
+            return;
+        }
+
+        // Write to a temporary file first and then rename it, so a reader never sees
+        // a half-written entry
+        String name = nameFor(url);
+        File tmpFile = new File(mDirectory, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            out.write(data);
+        } catch (IOException e) {
+            NewsLog.e(LOG_TAG, "Problem writing the entry for " + url, e);
+            tmpFile.delete();
+            return;
+        }
+        if (!tmpFile.renameTo(new File(mDirectory, name))) {
+            NewsLog.e(LOG_TAG, "Couldn't move the entry for " + url + " in place");
+            tmpFile.delete();
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = entries().put(name, (long) data.length);
+            mSize += data.length - (previous != null ? previous : 0);
+            trimToSize();
+        }
+    }
+
+    /**
+     * @return the total size of the stored entries
+     */
+    public synchronized long size() {
+        entries();
+        return mSize;
+    }
+
+    /**
+     * Delete the least recently used entries, until the total size is at most the maximum
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mSize -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = mEntries.remove(name);
+        if (size != null) {
+            mSize -= size;
+        }
+    }
+
+    /**
+     * @return the stored files, which are read from the directory the first time
+     */
+    private LinkedHashMap<String, Long> entries() {
+        if (mEntries == null) {
+            // Access order, so every lookup moves the entry to the end
+            mEntries = new LinkedHashMap<>(64, 0.75f, true);
+            File[] files = mDirectory.listFiles((dir, name) -> name.endsWith(mSuffix));
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                for (File file : files) {
+                    mEntries.put(file.getName(), file.length());
+                    mSize += file.length();
+                }
+            }
+        }
+        return mEntries;
+    }
+
+    private String nameFor(String url) {
+        return NewsDiskCache.hash(url) + mSuffix;
+    }
+}
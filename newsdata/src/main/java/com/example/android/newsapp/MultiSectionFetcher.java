@@ -0,0 +1,370 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the news of several sections at once, on a bounded pool of threads, and merges them
+ * into a single list ordered by the published date, without duplicates.
+ * <p>
+ * Every section is loaded with a {@link CancellationToken} of its own, and has to be loaded
+ * within a deadline from the moment its request starts. The token of a section which misses the
+ * deadline is cancelled, which aborts its request and frees its thread, and the section is left
+ * out, so one slow section can't hold back the others. Cancelling the token of the whole fetch
+ * cancels all of its sections.
+ */
+public class MultiSectionFetcher {
+
+    private static final String LOG_TAG = MultiSectionFetcher.class.getSimpleName();
+
+    /**
+     * The maximum number of sections which are loaded at the same time
+     */
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    /**
+     * Default deadline for loading a section, from the moment its request starts
+     */
+    public static final long DEFAULT_DEADLINE_MILLIS = 8000;
+
+    /**
+     * Orders the news from the newest to the oldest one. News without a date come last.
+     */
+    static final Comparator<News> NEWEST_FIRST = (first, second) ->
+            Long.compare(second.getmDateMillis(), first.getmDateMillis());
+
+    private static final ExecutorService sExecutor = createExecutor();
+
+    /**
+     * Cancels the sections which miss their deadline
+     */
+    private static final ScheduledThreadPoolExecutor sDeadlineTimer = createDeadlineTimer();
+
+    /**
+     * Loads the news of a single section
+     */
+    public interface SectionLoader {
+
+        /**
+         * @param token which is cancelled when the section misses its deadline, or when the
+         *              whole fetch is cancelled. The request of the section should be aborted
+         *              then.
+         */
+        @Nullable
+        List<News> load(String url, CancellationToken token);
+    }
+
+    /**
+     * Callback which receives the merged news of all the sections loaded so far, every time
+     * another section finishes loading
+     */
+    public interface OnSectionLoadedListener {
+        void onSectionLoaded(List<News> mergedNews);
+    }
+
+    /**
+     * The merged news of the sections which were loaded, and how many news every section
+     * returned
+     */
+    public static class Result {
+
+        private final List<News> mNews;
+
+        // The number of news of every section, by its index among the URLs, or -1 if the
+        // section couldn't be loaded
+        private final int[] mSectionCounts;
+
+        /**
+         * Constructs a new {@link Result}
+         *
+         * @param news          the merged news
+         * @param sectionCounts the number of news of every section, or -1 for a section which
+         *                      couldn't be loaded
+         */
+        public Result(List<News> news, int[] sectionCounts) {
+            mNews = news;
+            mSectionCounts = sectionCounts;
+        }
+
+        /**
+         * @return the merged news of the sections, from the newest to the oldest one
+         */
+        public List<News> getNews() {
+            return mNews;
+        }
+
+        /**
+         * @param section the index of the section among the URLs
+         * @return the number of news the section returned, before they were merged, or -1 if
+         * the section couldn't be loaded
+         */
+        public int getSectionCount(int section) {
+            return mSectionCounts[section];
+        }
+    }
+
+    private final ExecutorService mExecutor;
+    private final long mDeadlineMillis;
+
+    /**
+     * Constructs a new {@link MultiSectionFetcher} which uses the shared pool of threads
+     * and the default deadline
+     */
+    public MultiSectionFetcher() {
+        this(sExecutor, DEFAULT_DEADLINE_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@link MultiSectionFetcher}
+     *
+     * @param executor       on which the sections are loaded
+     * @param deadlineMillis time after which a section which is still loading is cancelled and
+     *                       left out, from the moment its request starts
+     */
+    public MultiSectionFetcher(ExecutorService executor, long deadlineMillis) {
+        mExecutor = executor;
+        mDeadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Load all of the sections in parallel and merge their news, like
+     * {@link #fetch(List, SectionLoader, OnSectionLoadedListener, CancellationToken)}, without
+     * a way to cancel the fetch.
+     */
+    @Nullable
+    public Result fetch(List<String> urls, SectionLoader loader,
+                       @Nullable OnSectionLoadedListener listener) {
+        return fetch(urls, loader, listener, null);
+    }
+
+    /**
+     * Load all of the sections in parallel and merge their news.
+     * Sections which fail or miss their deadline are left out.
+     *
+     * @param urls     of the sections
+     * @param loader   which loads a single section
+     * @param listener which is called (on this thread) after every section that was loaded, or null
+     * @param token    which cancels all of the sections, or null. The sections are loaded with
+     *                 its priority.
+     * @return the merged news and the number of news of every section, or null if none of the
+     * sections could be loaded, or if the fetch was cancelled
+     */
+    @Nullable
+    public Result fetch(List<String> urls, SectionLoader loader,
+                        @Nullable OnSectionLoadedListener listener,
+                        @Nullable CancellationToken token) {
+        LoadEngine.Priority priority =
+                token != null ? token.getPriority() : LoadEngine.Priority.VISIBLE;
+        BlockingQueue<Section> finished = new LinkedBlockingQueue<>();
+        List<Section> sections = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            Section section = new Section(url, new CancellationToken(priority), finished);
+            sections.add(section);
+            section.setFuture(mExecutor.submit(() -> section.run(loader)));
+        }
+        if (token != null) {
+            token.setOnCancelListener(() -> cancelAll(sections));
+        }
+
+        // Collect the sections in the order in which they finish loading. Every section
+        // finishes exactly once: loaded, failed, or cancelled by its deadline.
+        List<List<News>> loaded = new ArrayList<>(urls.size());
+        try {
+            for (int i = 0; i < sections.size(); i++) {
+                List<News> news = finished.take().getNews();
+                if (news == null) {
+                    continue;
+                }
+                loaded.add(news);
+                if (listener != null) {
+                    listener.onSectionLoaded(merge(loaded));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+            // Cancel the sections which are still loading, e.g. if this thread was interrupted
+            cancelAll(sections);
+        }
+
+        if (loaded.isEmpty() || (token != null && token.isCancelled())) {
+            return null;
+        }
+        int[] sectionCounts = new int[sections.size()];
+        for (int i = 0; i < sections.size(); i++) {
+            List<News> news = sections.get(i).getNews();
+            sectionCounts[i] = news != null ? news.size() : -1;
+        }
+        return new Result(merge(loaded), sectionCounts);
+    }
+
+    private static void cancelAll(List<Section> sections) {
+        for (Section section : sections) {
+            section.cancel();
+        }
+    }
+
+    /**
+     * Merge the news of several sections into a single list, ordered from the newest to the
+     * oldest one. A news which appears in more than one section (with the same URL) is only
+     * kept once.
+     */
+    public static List<News> merge(List<List<News>> sections) {
+        int size = 0;
+        for (List<News> section : sections) {
+            size += section.size();
+        }
+
+        List<News> merged = new ArrayList<>(size);
+        Set<String> urls = new HashSet<>(size * 2);
+        for (List<News> section : sections) {
+            for (News news : section) {
+                if (urls.add(news.getmURL())) {
+                    merged.add(news);
+                }
+            }
+        }
+
+        // The sort is stable, so news with the same date keep the order of their sections
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged;
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "news-section-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Don't keep the threads around when there is nothing to load
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "news-section-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most sections finish in time, so their deadlines shouldn't pile up in the queue
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * A section which is loaded with a token of its own
+     */
+    private class Section {
+
+        private final String mUrl;
+        private final CancellationToken mToken;
+
+        // Receives the section once it finished
+        private final BlockingQueue<Section> mFinished;
+
+        // The load of the section on the executor, and its deadline. Guarded by this.
+        private Future<?> mFuture;
+        private ScheduledFuture<?> mDeadline;
+
+        // Whether the section finished, and its news, null if it failed or was cancelled.
+        // Guarded by this.
+        private boolean mDone;
+        private List<News> mNews;
+
+        Section(String url, CancellationToken token, BlockingQueue<Section> finished) {
+            mUrl = url;
+            mToken = token;
+            mFinished = finished;
+        }
+
+        synchronized void setFuture(Future<?> future) {
+            mFuture = future;
+            if (mDone) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * Load the section on a thread of the executor, unless it was cancelled before
+         */
+        void run(SectionLoader loader) {
+            synchronized (this) {
+                if (mDone) {
+                    return;
+                }
+                // The time the section waited for a free thread doesn't count
+                mDeadline = sDeadlineTimer.schedule(this::onDeadline, mDeadlineMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+
+            List<News> news = null;
+            try {
+                news = loader.load(mUrl, mToken);
+            } catch (RuntimeException e) {
+                NewsLog.e(LOG_TAG, "Problem loading the section " + mUrl, e);
+            }
+            finish(news);
+        }
+
+        /**
+         * @return the news of the section, or null if it failed, was cancelled, or didn't
+         * finish yet
+         */
+        synchronized List<News> getNews() {
+            return mNews;
+        }
+
+        private void onDeadline() {
+            NewsLog.e(LOG_TAG, "Deadline passed while loading the section " + mUrl);
+            cancel();
+        }
+
+        /**
+         * Cancel the token of the section, which aborts its request, and leave it out
+         */
+        void cancel() {
+            mToken.cancel();
+            finish(null);
+        }
+
+        private void finish(@Nullable List<News> news) {
+            synchronized (this) {
+                if (mDone) {
+                    return;
+                }
+                mDone = true;
+                mNews = mToken.isCancelled() ? null : news;
+                if (mDeadline != null) {
+                    mDeadline.cancel(false);
+                }
+                // A section which didn't start yet doesn't need to wait for a thread anymore
+                if (mFuture != null) {
+                    mFuture.cancel(false);
+                }
+            }
+            mFinished.add(this);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+public class News {
+
+    private static final String LOG_TAG = QueryUtils.class.getSimpleName();
+
+    /**
+     * Value of the date when the published date is unknown
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Title of the News
+     */
+    private final String mTitle;
+
+    /**
+     * Name of the section
+     * Section names repeat across many news, so they are taken from the shared {@link StringPool}
+     */
+    private final String mSectionName;
+
+    /**
+     * The name of the author, taken from the shared {@link StringPool}
+     * Note, that not all instances will contain information about the author. In that case
+     * the author is null.
+     */
+    private final String mAuthor;
+
+    /**
+     * The date of the published News, in milliseconds since the epoch (Unix time)
+     * Note, that not all instances will constain information about the date of the publication.
+     * In that case the date is {@link #NO_DATE}.
+     */
+    private final long mDateMillis;
+
+    /**
+     * The URL address of the article
+     */
+    private final String mURL;
+
+    /**
+     * The URL address of the thumbnail image of the article
+     * Note, that not all instances will contain a thumbnail. In that case the URL is null.
+     */
+    private final String mThumbnailUrl;
+
+    /**
+     * The texts which are displayed in the list, or null until the news is formatted. They are
+     * built by {@link NewsFormatter} on the loader thread, so binding a row doesn't have to
+     * format anything. They repeat across many news as well, so they are pooled too.
+     */
+    private final String mSectionLabel;
+    private final String mAuthorLabel;
+    private final String mDateLabel;
+
+    /**
+     * When the computer will parse the JSON data, it will check for each item in the file if
+     * there is information about the author and the date of the publication.
+     * If there isn't, the instance will be constructed with null in place of the author
+     * and {@link #NO_DATE} in place of the date.
+     * The methods hasAuthor() and hasDate() are defined to check, whether there two variables
+     * are known.
+     */
+
+    /**
+     * Constructs a new {@link News} object.
+     *
+     * @param title       is the title of this news
+     * @param sectionName is the name of the section of this news
+     * @param author      is the author of this news, or null if it is unknown
+     * @param dateMillis  is the time published of this news in milliseconds since the epoch,
+     *                    or {@link #NO_DATE} if it is unknown
+     * @param URL         is the the URL of this news
+     */
+    public News(String title, String sectionName, @Nullable String author, long dateMillis,
+                String URL) {
+        this(title, sectionName, author, dateMillis, URL, null);
+    }
+
+    /**
+     * Constructs a new {@link News} object with a thumbnail.
+     *
+     * @param title        is the title of this news
+     * @param sectionName  is the name of the section of this news
+     * @param author       is the author of this news, or null if it is unknown
+     * @param dateMillis   is the time published of this news in milliseconds since the epoch,
+     *                     or {@link #NO_DATE} if it is unknown
+     * @param URL          is the the URL of this news
+     * @param thumbnailUrl is the URL of the thumbnail image of this news, or null if it has none
+     */
+    public News(String title, String sectionName, @Nullable String author, long dateMillis,
+                String URL, @Nullable String thumbnailUrl) {
+        StringPool pool = StringPool.getShared();
+        mTitle = title;
+        mSectionName = pool.intern(sectionName);
+        mAuthor = pool.intern(author);
+        mDateMillis = dateMillis;
+        mURL = URL;
+        mThumbnailUrl = thumbnailUrl;
+        mSectionLabel = null;
+        mAuthorLabel = null;
+        mDateLabel = null;
+    }
+
+    /**
+     * Constructs a copy of the given {@link News} with the display labels, built by
+     * {@link NewsFormatter}.
+     */
+    News(News news, String sectionLabel, @Nullable String authorLabel,
+         @Nullable String dateLabel) {
+        mTitle = news.mTitle;
+        mSectionName = news.mSectionName;
+        mAuthor = news.mAuthor;
+        mDateMillis = news.mDateMillis;
+        mURL = news.mURL;
+        mThumbnailUrl = news.mThumbnailUrl;
+        mSectionLabel = sectionLabel;
+        mAuthorLabel = authorLabel;
+        mDateLabel = dateLabel;
+    }
+
+    /**
+     * Parse the published date from the Guardian API, which is in the ISO-8601 format
+     * (e.g. "2021-03-19T17:11:03Z").
+     *
+     * @return the date in milliseconds since the epoch, or {@link #NO_DATE} if the date is
+     * null or can't be parsed
+     */
+    public static long parseDate(@Nullable String date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        try {
+            return Instant.parse(date).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            NewsLog.e(LOG_TAG, "Problem parsing the published date " + date, e);
+            return NO_DATE;
+        }
+    }
+
+    /**
+     * @return information if this news contains information about the author
+     */
+    public boolean hasAuthor() {
+        return mAuthor != null;
+    }
+
+    /**
+     * @return information if this news contains information about the published date
+     */
+
+    public boolean hasDate() {
+        return mDateMillis != NO_DATE;
+    }
+
+    /**
+     * @return the title of the news
+     */
+    public String getmTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return the section name of the news
+     */
+    public String getmSectionName() {
+        return mSectionName;
+    }
+
+    /**
+     * @return the name of the author, or null if it is unknown.
+     * Note that special cases when the author is unknown will be handled in other classes
+     * with the help of the method hasAuthor().
+     */
+    @Nullable
+    public String getmAuthor() {
+        return mAuthor;
+    }
+
+    /**
+     * @return the published date of the news in milliseconds since the epoch
+     * Note that special cases when the published date is unknown will be handled in other classes
+     * with the help of the method hasDate().
+     */
+    public long getmDateMillis() {
+        return mDateMillis;
+    }
+
+    /**
+     * @return the URL of the news
+     */
+    public String getmURL() {
+        return mURL;
+    }
+
+    /**
+     * @return information if this news has a thumbnail image
+     */
+    public boolean hasThumbnail() {
+        return mThumbnailUrl != null;
+    }
+
+    /**
+     * @return the URL of the thumbnail image, or null if the news has none
+     */
+    @Nullable
+    public String getmThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    /**
+     * @return whether the display labels were already built by a {@link NewsFormatter}
+     */
+    public boolean isFormatted() {
+        return mSectionLabel != null;
+    }
+
+    /**
+     * @return the label with the section name, which is displayed in the list
+     */
+    public String getSectionLabel() {
+        return mSectionLabel;
+    }
+
+    /**
+     * @return the label with the author, which is displayed in the list, or null if the
+     * author is unknown
+     */
+    public String getAuthorLabel() {
+        return mAuthorLabel;
+    }
+
+    /**
+     * @return the label with the published date, which is displayed in the list, or null if the
+     * published date is unknown
+     */
+    public String getDateLabel() {
+        return mDateLabel;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.example.android.newsapp;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes lists of {@link News} records in a compact binary format.
+ * <p>
+ * Section names and authors repeat across many news, so a list starts with a dictionary of
+ * their distinct values, and every record refers to them by their index. Every record starts
+ * with a byte of flags which tells whether the author, the date and the thumbnail are known,
+ * so the missing values aren't written at all.
+ */
+public final class NewsCodec {
+
+    /**
+     * Flag which is set when the record contains the author
+     */
+    private static final int FLAG_HAS_AUTHOR = 1;
+
+    /**
+     * Flag which is set when the record contains the published date
+     */
+    private static final int FLAG_HAS_DATE = 1 << 1;
+
+    /**
+     * Flag which is set when the record contains the URL of the thumbnail
+     */
+    private static final int FLAG_HAS_THUMBNAIL = 1 << 2;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsCodec} object.
+     */
+    private NewsCodec() {
+    }
+
+    /**
+     * Write the dictionary of the section names and authors, followed by the number of news
+     * and every news in the list.
+     */
+    public static void writeNewsList(DataOutput out, List<News> news) throws IOException {
+        // Give every distinct section name and author an index in the dictionary
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (News item : news) {
+            addToDictionary(item.getmSectionName(), indexes, dictionary);
+            if (item.hasAuthor()) {
+                addToDictionary(item.getmAuthor(), indexes, dictionary);
+            }
+        }
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            out.writeUTF(value);
+        }
+
+        out.writeInt(news.size());
+        for (News item : news) {
+            writeNews(out, item, indexes);
+        }
+    }
+
+    /**
+     * Read a list of news which was written with {@link #writeNewsList(DataOutput, List)}.
+     */
+    public static List<News> readNewsList(DataInput in) throws IOException {
+        int dictionarySize = in.readInt();
+        if (dictionarySize < 0) {
+            throw new IOException("Invalid size of the dictionary: " + dictionarySize);
+        }
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readUTF();
+        }
+
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid number of news: " + size);
+        }
+        List<News> news = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            news.add(readNews(in, dictionary));
+        }
+        return news;
+    }
+
+    private static void addToDictionary(String value, Map<String, Integer> indexes,
+                                        List<String> dictionary) {
+        if (!indexes.containsKey(value)) {
+            indexes.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    /**
+     * Write a single news, with its section name and author as indexes into the dictionary.
+     */
+    private static void writeNews(DataOutput out, News news, Map<String, Integer> indexes)
+            throws IOException {
+        int flags = 0;
+        if (news.hasAuthor()) {
+            flags |= FLAG_HAS_AUTHOR;
+        }
+        if (news.hasDate()) {
+            flags |= FLAG_HAS_DATE;
+        }
+        if (news.hasThumbnail()) {
+            flags |= FLAG_HAS_THUMBNAIL;
+        }
+        out.writeByte(flags);
+        out.writeUTF(news.getmTitle());
+        out.writeInt(indexes.get(news.getmSectionName()));
+        if (news.hasAuthor()) {
+            out.writeInt(indexes.get(news.getmAuthor()));
+        }
+        if (news.hasDate()) {
+            out.writeLong(news.getmDateMillis());
+        }
+        out.writeUTF(news.getmURL());
+        if (news.hasThumbnail()) {
+            out.writeUTF(news.getmThumbnailUrl());
+        }
+    }
+
+    /**
+     * Read a single news which was written with {@link #writeNews(DataOutput, News, Map)}.
+     */
+    private static News readNews(DataInput in, String[] dictionary) throws IOException {
+        int flags = in.readUnsignedByte();
+        String title = in.readUTF();
+        String sectionName = lookUp(dictionary, in.readInt());
+        String author = (flags & FLAG_HAS_AUTHOR) != 0 ? lookUp(dictionary, in.readInt()) : null;
+        long dateMillis = (flags & FLAG_HAS_DATE) != 0 ? in.readLong() : News.NO_DATE;
+        String url = in.readUTF();
+        String thumbnailUrl = (flags & FLAG_HAS_THUMBNAIL) != 0 ? in.readUTF() : null;
+        return new News(title, sectionName, author, dateMillis, url, thumbnailUrl);
+    }
+
+    private static String lookUp(String[] dictionary, int index) throws IOException {
+        if (index < 0 || index >= dictionary.length) {
+            throw new IOException("Invalid index into the dictionary: " + index);
+        }
+        return dictionary[index];
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Disk cache for the parsed responses of the Guardian API.
+ * Every entry is keyed by the request URL and stores the parsed {@link News} (written with
+ * {@link NewsCodec}) together with the ETag and Last-Modified headers of the response,
+ * so the entry can be revalidated with a conditional GET.
+ */
+public class NewsDiskCache {
+
+    private static final String LOG_TAG = NewsDiskCache.class.getSimpleName();
+
+    /**
+     * Written at the start of every file, so files which aren't cache entries are ignored
+     */
+    private static final int MAGIC = 0x4E455753;
+
+    /**
+     * Version of the file format. Entries with a different version are treated as missing.
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * The maximum number of entries. The least recently written entries are deleted first.
+     */
+    private static final int MAX_ENTRIES = 32;
+
+    /**
+     * A single cached response
+     */
+    public static class Entry {
+
+        private final String mETag;
+        private final String mLastModified;
+        private final List<News> mNews;
+
+        public Entry(@Nullable String eTag, @Nullable String lastModified, List<News> news) {
+            mETag = eTag;
+            mLastModified = lastModified;
+            mNews = news;
+        }
+
+        /**
+         * @return the ETag header of the cached response, or null if there was none
+         */
+        @Nullable
+        public String getETag() {
+            return mETag;
+        }
+
+        /**
+         * @return the Last-Modified header of the cached response, or null if there was none
+         */
+        @Nullable
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        /**
+         * @return the news parsed from the cached response
+         */
+        public List<News> getNews() {
+            return mNews;
+        }
+    }
+
+    // Directory in which the entries are stored
+    private final File mDirectory;
+
+    /**
+     * Constructs a new {@link NewsDiskCache}
+     *
+     * @param directory in which the entries are stored. It is created if it doesn't exist.
+     */
+    public NewsDiskCache(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * @return the cached entry for the given request URL, or null if there is none
+     */
+    @Nullable
+    public Entry get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String eTag = readNullableString(in);
+            String lastModified = readNullableString(in);
+            List<News> news = NewsCodec.readNewsList(in);
+            return new Entry(eTag, lastModified, news);
+        } catch (IOException e) {
+            NewsLog.e(LOG_TAG, "Problem reading the cache entry for " + url, e);
+            // The entry is broken, so delete it
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Store the parsed response for the given request URL.
+     * The entry is written to a temporary file first and then renamed, so a reader never
+     * sees a half-written entry.
+     */
+    public void put(String url, @Nullable String eTag, @Nullable String lastModified,
+                    List<News> news) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            NewsLog.e(LOG_TAG, "Couldn't create the cache directory " + mDirectory);
+            return;
+        }
+
+        File file = fileFor(url);
+        File tmpFile = new File(mDirectory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeNullableString(out, eTag);
+            writeNullableString(out, lastModified);
+            NewsCodec.writeNewsList(out, news);
+        } catch (IOException e) {
+            NewsLog.e(LOG_TAG, "Problem writing the cache entry for " + url, e);
+            tmpFile.delete();
+            return;
+        }
+
+        if (!tmpFile.renameTo(file)) {
+            NewsLog.e(LOG_TAG, "Couldn't move the cache entry for " + url + " in place");
+            tmpFile.delete();
+            return;
+        }
+
+        trimToSize();
+    }
+
+    /**
+     * Delete the least recently written entries, until there are at most MAX_ENTRIES left
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles((dir, name) -> name.endsWith(".news"));
+        if (files == null || files.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * @return the file of the entry for the given URL. Its name is the SHA-1 hash of the URL.
+     */
+    private File fileFor(String url) {
+        return new File(mDirectory, hash(url) + ".news");
+    }
+
+    /**
+     * @return the SHA-1 hash of the given URL in hexadecimal, which is safe to use as a file name
+     */
+    static String hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
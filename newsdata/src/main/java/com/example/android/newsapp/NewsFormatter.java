@@ -0,0 +1,90 @@
+package com.example.android.newsapp;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the texts of the news which are displayed in the list.
+ * The news are formatted once, on the loader thread, so binding a row on the UI thread
+ * only has to set the prepared texts. A news never changes, so it is formatted into a copy
+ * with the texts.
+ */
+public class NewsFormatter {
+
+    /**
+     * The date is displayed in american date format [mm. dd. yyyy]. The Guardian API publishes
+     * the dates in UTC, so that is the day that is shown.
+     */
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MM. dd. yyyy").withZone(ZoneOffset.UTC);
+
+    private final String mSectionPrefix;
+    private final String mAuthorPrefix;
+    private final String mDatePrefix;
+
+    /**
+     * Constructs a new {@link NewsFormatter}
+     *
+     * @param sectionPrefix is the text displayed before the section name
+     * @param authorPrefix  is the text displayed before the author
+     * @param datePrefix    is the text displayed before the published date
+     */
+    public NewsFormatter(String sectionPrefix, String authorPrefix, String datePrefix) {
+        mSectionPrefix = sectionPrefix;
+        mAuthorPrefix = authorPrefix;
+        mDatePrefix = datePrefix;
+    }
+
+    /**
+     * Build the display labels of the news, unless it was already formatted.
+     * The labels repeat across many news, so they are taken from the shared {@link StringPool}.
+     *
+     * @return a copy of the news with the labels, or the news itself if it was already formatted
+     */
+    public News format(News news) {
+        if (news.isFormatted()) {
+            return news;
+        }
+
+        StringPool pool = StringPool.getShared();
+        String sectionLabel = pool.intern(mSectionPrefix + " " + news.getmSectionName());
+        String authorLabel = news.hasAuthor()
+                ? pool.intern(mAuthorPrefix + " " + news.getmAuthor()) : null;
+        String dateLabel = news.hasDate()
+                ? pool.intern(mDatePrefix + " " + formatDate(news.getmDateMillis())) : null;
+        return new News(news, sectionLabel, authorLabel, dateLabel);
+    }
+
+    /**
+     * Build the display labels of all of the news in the list. The list itself is left as it is,
+     * since it might be shared, e.g. by a cache.
+     *
+     * @return a new list with the formatted news, in the same order, or the list itself if all
+     * of its news were already formatted
+     */
+    public List<News> format(List<News> news) {
+        List<News> formatted = null;
+        for (int i = 0; i < news.size(); i++) {
+            News item = news.get(i);
+            if (formatted == null && item.isFormatted()) {
+                continue;
+            }
+            if (formatted == null) {
+                formatted = new ArrayList<>(news.size());
+                formatted.addAll(news.subList(0, i));
+            }
+            formatted.add(format(item));
+        }
+        return formatted != null ? formatted : news;
+    }
+
+    /**
+     * @return the date in the displayed format
+     */
+    static String formatDate(long dateMillis) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(dateMillis));
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client for the requests to the Guardian API.
+ * <p>
+ * The responses are requested gzip-compressed and decompressed transparently. The connections
+ * are never disconnected after a successful request; instead, the rest of the response is read
+ * and the stream is closed, which hands the socket back to the keep-alive pool of
+ * {@link HttpURLConnection}. Following requests to the same host (other pages, other sections)
+ * then reuse that socket instead of opening a new one.
+ * <p>
+ * The time of every stage of a request is recorded in the {@link NewsMetrics}, unless the
+ * client is made for other requests than the ones of the news, such as the images.
+ */
+public class NewsHttpClient {
+
+    /**
+     * Default timeout for establishing the connection
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000;
+
+    /**
+     * Default timeout for waiting on the data of the response
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * The maximum number of bytes which are read from the unread rest of a response so its
+     * connection can be reused. If more are left, the connection is closed instead.
+     */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+
+    // Where the stages of the requests are recorded, or null to record nothing
+    @Nullable
+    private final NewsMetrics mMetrics;
+
+    /**
+     * Constructs a new {@link NewsHttpClient} with the default timeouts
+     */
+    public NewsHttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@link NewsHttpClient}, which records its requests in the
+     * {@link NewsMetrics} of the process
+     *
+     * @param connectTimeoutMillis timeout for establishing the connection
+     * @param readTimeoutMillis    timeout for waiting on the data of the response
+     */
+    public NewsHttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, NewsMetrics.getInstance());
+    }
+
+    /**
+     * Constructs a new {@link NewsHttpClient}
+     *
+     * @param connectTimeoutMillis timeout for establishing the connection
+     * @param readTimeoutMillis    timeout for waiting on the data of the response
+     * @param metrics              where the stages of the requests are recorded, or null for
+     *                             requests which shouldn't be mixed into the metrics of the news
+     */
+    public NewsHttpClient(int connectTimeoutMillis, int readTimeoutMillis,
+                          @Nullable NewsMetrics metrics) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+        mMetrics = metrics;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return mConnectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return mReadTimeoutMillis;
+    }
+
+    /**
+     * Make a GET request to the given URL.
+     * The returned {@link Response} must always be closed, so its connection can be reused.
+     *
+     * @param headers additional request headers, or null
+     */
+    public Response get(URL url, @Nullable Map<String, String> headers) throws IOException {
+        return get(url, headers, null);
+    }
+
+    /**
+     * Make a GET request to the given URL, which is aborted as soon as the token is cancelled:
+     * while connecting, while waiting for the headers of the response, and while its body is read.
+     * The returned {@link Response} must always be closed, so its connection can be reused.
+     *
+     * @param headers additional request headers, or null
+     * @param token   which aborts the request, or null
+     * @throws InterruptedIOException if the token was cancelled
+     */
+    public Response get(URL url, @Nullable Map<String, String> headers,
+                        @Nullable CancellationToken token) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeoutMillis);
+        urlConnection.setReadTimeout(mReadTimeoutMillis);
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+
+        // Cancelling the token closes the connection, which stops the connect or the read in
+        // progress. The caller can replace the listener once it has the response.
+        if (token != null) {
+            token.setOnCancelListener(urlConnection::disconnect);
+        }
+
+        try {
+            checkCancelled(token);
+
+            // The host is resolved while connecting, and only if no pooled connection is reused
+            long start = System.nanoTime();
+            urlConnection.connect();
+            long connected = System.nanoTime();
+            record(mMetrics, NewsMetrics.Metric.CONNECT, connected - start);
+
+            int code = urlConnection.getResponseCode();
+            checkCancelled(token);
+            long headersReceived = System.nanoTime();
+            record(mMetrics, NewsMetrics.Metric.TIME_TO_FIRST_BYTE, headersReceived - connected);
+            return new Response(urlConnection, code, headersReceived - start, mMetrics);
+        } catch (IOException e) {
+            // The connection is broken, so don't give it back to the pool
+            urlConnection.disconnect();
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+            checkCancelled(token);
+            throw e;
+        }
+    }
+
+    private static void checkCancelled(@Nullable CancellationToken token)
+            throws InterruptedIOException {
+        if (token != null && token.isCancelled()) {
+            throw new InterruptedIOException("Cancelled");
+        }
+    }
+
+    private static void record(@Nullable NewsMetrics metrics, NewsMetrics.Metric metric,
+                               long value) {
+        if (metrics != null) {
+            metrics.record(metric, value);
+        }
+    }
+
+    /**
+     * The response to a request. Closing it reads the rest of the body, so the connection
+     * can be reused for the next request.
+     */
+    public static class Response implements Closeable {
+
+        private final HttpURLConnection mConnection;
+        private final int mCode;
+
+        @Nullable
+        private final NewsMetrics mMetrics;
+
+        // Whether the response was aborted, so there is nothing left to read when it is closed
+        private volatile boolean mAborted;
+
+        // Time from the start of the request to the headers of the response
+        private final long mLatencyNanos;
+
+        // The raw (possibly compressed) body, and the decompressed body given to the caller
+        private CountingInputStream mRawBody;
+        private InputStream mBody;
+
+        Response(HttpURLConnection connection, int code, long latencyNanos,
+                 @Nullable NewsMetrics metrics) {
+            mConnection = connection;
+            mCode = code;
+            mLatencyNanos = latencyNanos;
+            mMetrics = metrics;
+        }
+
+        /**
+         * @return the HTTP status code
+         */
+        public int getCode() {
+            return mCode;
+        }
+
+        /**
+         * @return the time from the start of the request to the headers of the response,
+         * in nanoseconds
+         */
+        public long getLatencyNanos() {
+            return mLatencyNanos;
+        }
+
+        /**
+         * @return the value of the given response header, or null if there is none
+         */
+        @Nullable
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * @return the decompressed body of the response
+         */
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                InputStream stream = mCode < HttpURLConnection.HTTP_BAD_REQUEST
+                        ? mConnection.getInputStream() : mConnection.getErrorStream();
+                if (stream == null) {
+                    // Responses such as 304 Not Modified have no body
+                    stream = new ByteArrayInputStream(new byte[0]);
+                }
+                mRawBody = new CountingInputStream(stream);
+                mBody = "gzip".equalsIgnoreCase(mConnection.getContentEncoding())
+                        ? new GZIPInputStream(mRawBody) : mRawBody;
+            }
+            return mBody;
+        }
+
+        /**
+         * @return the number of bytes of the body which were received over the network so far,
+         * before decompression
+         */
+        public long getReceivedBytes() {
+            return mRawBody != null ? mRawBody.getCount() : 0;
+        }
+
+        /**
+         * @return the time spent waiting for the body of the response so far, in nanoseconds
+         */
+        public long getDownloadNanos() {
+            return mRawBody != null ? mRawBody.getReadNanos() : 0;
+        }
+
+        /**
+         * Abort the response, closing its connection instead of reusing it. This can be
+         * called from another thread to stop a read which is in progress. On Android this
+         * closes the socket right away, while the HttpURLConnection of the JVM waits for a
+         * read which is blocked on the network.
+         */
+        public void abort() {
+            mAborted = true;
+            mConnection.disconnect();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mAborted) {
+                // The connection is closed already, and the download is incomplete
+                return;
+            }
+            try {
+                InputStream body = getBody();
+                // Read the rest of the body, so the connection is handed back to the pool
+                byte[] buffer = new byte[4096];
+                long drained = 0;
+                int read;
+                while (drained <= MAX_DRAIN_BYTES && (read = body.read(buffer)) != -1) {
+                    drained += read;
+                }
+                if (drained > MAX_DRAIN_BYTES) {
+                    // Too much is left, it is cheaper to open a new connection later
+                    mConnection.disconnect();
+                }
+                body.close();
+
+                record(mMetrics, NewsMetrics.Metric.DOWNLOAD, getDownloadNanos());
+                record(mMetrics, NewsMetrics.Metric.BYTES_READ, getReceivedBytes());
+            } catch (IOException e) {
+                mConnection.disconnect();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes which are read from the underlying stream, and the time spent
+     * waiting for them.
+     */
+    static class CountingInputStream extends FilterInputStream {
+
+        private long mCount;
+        private long mReadNanos;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return mCount;
+        }
+
+        long getReadNanos() {
+            return mReadNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            mReadNanos += System.nanoTime() - start;
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(b, off, len);
+            mReadNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            long skipped = super.skip(n);
+            mReadNanos += System.nanoTime() - start;
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
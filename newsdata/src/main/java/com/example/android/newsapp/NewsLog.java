@@ -0,0 +1,41 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Log of the data pipeline. The messages go to a pluggable sink, so the pipeline logs to
+ * java.util.logging on a plain JVM, and the app can send them to the Android log instead.
+ */
+public final class NewsLog {
+
+    /**
+     * Receives the log messages
+     */
+    public interface Sink {
+        void error(String tag, String message, @Nullable Throwable error);
+    }
+
+    private static volatile Sink sSink = (tag, message, error) ->
+            Logger.getLogger(tag).logp(Level.SEVERE, tag, null, message, error);
+
+    private NewsLog() {
+    }
+
+    /**
+     * Send all of the following log messages to the given sink
+     */
+    public static void setSink(Sink sink) {
+        sSink = sink;
+    }
+
+    public static void e(String tag, String message) {
+        sSink.error(tag, message, null);
+    }
+
+    public static void e(String tag, String message, @Nullable Throwable error) {
+        sSink.error(tag, message, error);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide, in-memory cache of the parsed responses, keyed by the request URL.
+ * <p>
+ * The cache holds at most a fixed number of news in total. When it is full, the least recently
+ * used responses are evicted first. A response also expires once it is older than the
+ * time-to-live, so the news are downloaded again from time to time.
+ */
+public class NewsMemoryCache {
+
+    /**
+     * The maximum number of news which are held by the shared cache
+     */
+    private static final int DEFAULT_MAX_NEWS = 1000;
+
+    /**
+     * How long the responses in the shared cache stay valid
+     */
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final NewsMemoryCache sInstance =
+            new NewsMemoryCache(DEFAULT_MAX_NEWS, DEFAULT_TTL_MILLIS, System::nanoTime);
+
+    /**
+     * A single cached response with the time it was stored at
+     */
+    private static class Entry {
+        final List<News> mNews;
+        final long mStoredAtNanos;
+
+        Entry(List<News> news, long storedAtNanos) {
+            mNews = news;
+            mStoredAtNanos = storedAtNanos;
+        }
+    }
+
+    // The entries, ordered from the least to the most recently used one
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int mMaxNews;
+    private final long mTtlNanos;
+    private final LongSupplier mClock;
+
+    // The number of news in all of the entries
+    private int mSize;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Constructs a new {@link NewsMemoryCache}
+     *
+     * @param maxNews   the maximum number of news in all of the entries together
+     * @param ttlMillis how long an entry stays valid
+     * @param clock     source of the current time in nanoseconds
+     */
+    NewsMemoryCache(int maxNews, long ttlMillis, LongSupplier clock) {
+        mMaxNews = maxNews;
+        mTtlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        mClock = clock;
+    }
+
+    /**
+     * @return the cache which is shared by the whole process
+     */
+    public static NewsMemoryCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @return the news cached for the given request URL, or null if there are none or
+     * they have expired
+     */
+    @Nullable
+    public synchronized List<News> get(String url) {
+        Entry entry = mEntries.get(url);
+        if (entry != null && mClock.getAsLong() - entry.mStoredAtNanos > mTtlNanos) {
+            // The entry has expired
+            remove(url);
+            entry = null;
+        }
+
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mNews;
+    }
+
+    /**
+     * Store the news for the given request URL, evicting the least recently used entries
+     * if the cache gets too big. Lists bigger than the whole cache aren't stored at all.
+     */
+    public synchronized void put(String url, List<News> news) {
+        if (news.size() > mMaxNews) {
+            return;
+        }
+
+        remove(url);
+        mEntries.put(url, new Entry(Collections.unmodifiableList(news), mClock.getAsLong()));
+        mSize += news.size();
+
+        // Evict the least recently used entries until the news fit into the cache
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxNews && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().mNews.size();
+            iterator.remove();
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * Remove the entry for the given request URL
+     */
+    public synchronized void remove(String url) {
+        Entry entry = mEntries.remove(url);
+        if (entry != null) {
+            mSize -= entry.mNews.size();
+        }
+    }
+
+    /**
+     * Remove all of the entries
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * @return the number of news in all of the entries
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the number of times {@link #get(String)} returned cached news
+     */
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of times {@link #get(String)} returned null
+     */
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return the number of entries which were evicted to make room for new ones
+     */
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("NewsMemoryCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                mSize, mMaxNews, mHitCount, mMissCount, mEvictionCount);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.android.newsapp;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Process-wide metrics of the stages of a load, from resolving the host to binding the rows,
+ * and of the start of the app.
+ * <p>
+ * Every metric is a {@link Log2Histogram}, so recording a value is cheap and allocation-free,
+ * and can be done on the hot paths. A {@link Snapshot} of all of the metrics can be taken at
+ * any time, e.g. to log or export them.
+ */
+public class NewsMetrics {
+
+    /**
+     * The metrics which are recorded
+     */
+    public enum Metric {
+        /** Time to resolve the host and open the connection, zero if a pooled one is reused */
+        CONNECT("ns"),
+        /** Time from the open connection to the headers of the response */
+        TIME_TO_FIRST_BYTE("ns"),
+        /** Time spent waiting for the body of a response */
+        DOWNLOAD("ns"),
+        /** Bytes of the body of a response received over the network, before decompression */
+        BYTES_READ("bytes"),
+        /** Time spent decompressing and parsing a response, without the download */
+        PARSE("ns"),
+        /** Number of news parsed from a response */
+        ITEMS("news"),
+        /** Time of a whole request, from the start to the parsed news */
+        LOAD("ns"),
+        /** Number of requests made for a single fetch, with the retries and hedged requests */
+        ATTEMPTS("requests"),
+        /** Time a request waited for its turn in the {@link RequestScheduler} */
+        SCHEDULER_WAIT("ns"),
+        /** Time to bind a row of the list */
+        BIND("ns"),
+        /** Time from the creation of the main activity to its first frame */
+        TIME_TO_FIRST_FRAME("ns"),
+        /** Time from the creation of the main activity to the first frame which shows news */
+        TIME_TO_FIRST_CONTENT("ns");
+
+        private final String mUnit;
+
+        Metric(String unit) {
+            mUnit = unit;
+        }
+
+        /**
+         * @return the unit of the recorded values
+         */
+        public String getUnit() {
+            return mUnit;
+        }
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    private static final NewsMetrics sInstance = new NewsMetrics();
+
+    // The histogram of every metric, by the ordinal of the metric
+    private final Log2Histogram[] mHistograms = new Log2Histogram[METRICS.length];
+
+    /**
+     * @return the metrics which are shared by the whole process
+     */
+    public static NewsMetrics getInstance() {
+        return sInstance;
+    }
+
+    NewsMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new Log2Histogram();
+        }
+    }
+
+    /**
+     * Record a value of the given metric
+     */
+    public void record(Metric metric, long value) {
+        mHistograms[metric.ordinal()].record(value);
+    }
+
+    /**
+     * Forget all of the recorded values
+     */
+    public void reset() {
+        for (Log2Histogram histogram : mHistograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return a copy of the values of all of the metrics
+     */
+    public Snapshot snapshot() {
+        EnumMap<Metric, Log2Histogram.Snapshot> histograms = new EnumMap<>(Metric.class);
+        for (Metric metric : METRICS) {
+            histograms.put(metric, mHistograms[metric.ordinal()].snapshot());
+        }
+        return new Snapshot(histograms);
+    }
+
+    /**
+     * The values of all of the metrics at one point in time
+     */
+    public static class Snapshot {
+
+        private final EnumMap<Metric, Log2Histogram.Snapshot> mHistograms;
+
+        Snapshot(EnumMap<Metric, Log2Histogram.Snapshot> histograms) {
+            mHistograms = histograms;
+        }
+
+        /**
+         * @return the values of the given metric
+         */
+        public Log2Histogram.Snapshot get(Metric metric) {
+            return mHistograms.get(metric);
+        }
+
+        /**
+         * @return one line for every metric, with its name, unit and summary
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<Metric, Log2Histogram.Snapshot> entry : mHistograms.entrySet()) {
+                text.append(entry.getKey().name().toLowerCase())
+                        .append(" [").append(entry.getKey().getUnit()).append("] ")
+                        .append(entry.getValue()).append('\n');
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Keeps track of the pages of search results which are currently in the list.
+ * <p>
+ * A page of the list holds the same page of the results of every section. A section has no
+ * further pages once it returns fewer news than requested. The pages of the list go on as long as
+ * any section has more pages, since a merged page can be shorter than the page size for other
+ * reasons, e.g. because sections were left out or share news.
+ * <p>
+ * The loaded pages always form a contiguous window. When a page is added to one end of the
+ * window and the window gets bigger than the maximum number of pages, the page on the other
+ * end is evicted, so the number of news held in memory stays bounded however far the user
+ * scrolls. Evicted pages are loaded again when the user scrolls back to them.
+ */
+public class NewsPager {
+
+    // Number of news requested per page of every section
+    private final int mSectionPageSize;
+
+    // The last page of every section, 0 while it isn't known yet
+    private final int[] mSectionLastPages;
+
+    // Maximum number of pages in the window
+    private final int mMaxPages;
+
+    // Number of news in every page of the window, from the first to the last page
+    private final ArrayDeque<Integer> mPageCounts = new ArrayDeque<>();
+
+    // Number of the first page in the window, starting at 1. 0 if there are no pages.
+    private int mFirstPage;
+
+    /**
+     * Constructs a new {@link NewsPager} for the results of a single section
+     *
+     * @param pageSize number of news requested per page
+     * @param maxPages maximum number of pages which are kept in the list
+     */
+    public NewsPager(int pageSize, int maxPages) {
+        this(pageSize, 1, maxPages);
+    }
+
+    /**
+     * Constructs a new {@link NewsPager} for the merged results of several sections
+     *
+     * @param sectionPageSize number of news requested per page of every section
+     * @param sectionCount    number of sections
+     * @param maxPages        maximum number of pages which are kept in the list
+     */
+    public NewsPager(int sectionPageSize, int sectionCount, int maxPages) {
+        mSectionPageSize = sectionPageSize;
+        mSectionLastPages = new int[sectionCount];
+        mMaxPages = maxPages;
+    }
+
+    /**
+     * @return the number of news requested per page of all of the sections together
+     */
+    public int getPageSize() {
+        return mSectionPageSize * mSectionLastPages.length;
+    }
+
+    /**
+     * @return the number of news requested per page of every section
+     */
+    public int getSectionPageSize() {
+        return mSectionPageSize;
+    }
+
+    /**
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return mSectionLastPages.length;
+    }
+
+    /**
+     * Record the number of news a section returned for the given page. If it returned fewer
+     * news than requested, the page is the last one of the section.
+     *
+     * @param section the index of the section
+     */
+    public void onSectionLoaded(int section, int page, int count) {
+        if (count < mSectionPageSize
+                && (mSectionLastPages[section] == 0 || page < mSectionLastPages[section])) {
+            mSectionLastPages[section] = page;
+        }
+    }
+
+    /**
+     * @param section the index of the section
+     * @return whether the given page of the section should be requested, i.e. whether it
+     * isn't after the last page of the section
+     */
+    public boolean hasSectionPage(int section, int page) {
+        return mSectionLastPages[section] == 0 || page <= mSectionLastPages[section];
+    }
+
+    /**
+     * Remove all of the pages from the window
+     */
+    public void clear() {
+        mPageCounts.clear();
+        mFirstPage = 0;
+        Arrays.fill(mSectionLastPages, 0);
+    }
+
+    /**
+     * Start again with the given page as the only one in the window.
+     *
+     * @param count the number of news in the page
+     */
+    public void reset(int page, int count) {
+        mPageCounts.clear();
+        mPageCounts.add(count);
+        mFirstPage = page;
+    }
+
+    /**
+     * Replace the first page of the window with a page which was loaded again, keeping the
+     * other pages of the window. The window must not be empty.
+     *
+     * @param count the number of news in the page which was loaded again
+     * @return the number of news which were in the page before, which are to be removed from the
+     * start of the list
+     */
+    public int replaceFirstPage(int count) {
+        int replaced = mPageCounts.removeFirst();
+        mPageCounts.addFirst(count);
+        return replaced;
+    }
+
+    /**
+     * Add the page after the last page of the window.
+     *
+     * @param count the number of news in the page
+     * @return the number of news to remove from the start of the list, because the first page
+     * was evicted from the window
+     */
+    public int appendPage(int count) {
+        mPageCounts.addLast(count);
+        if (mPageCounts.size() <= mMaxPages) {
+            return 0;
+        }
+        mFirstPage++;
+        return mPageCounts.removeFirst();
+    }
+
+    /**
+     * Add the page before the first page of the window.
+     *
+     * @param count the number of news in the page
+     * @return the number of news to remove from the end of the list, because the last page
+     * was evicted from the window
+     */
+    public int prependPage(int count) {
+        mPageCounts.addFirst(count);
+        mFirstPage--;
+        if (mPageCounts.size() <= mMaxPages) {
+            return 0;
+        }
+        return mPageCounts.removeLast();
+    }
+
+    /**
+     * Restore a window which was saved with {@link #getFirstPage()}, {@link #getPageCounts()}
+     * and {@link #getSectionLastPages()}.
+     *
+     * @param firstPage        the number of the first page in the window
+     * @param pageCounts       the number of news in every page of the window, from the first to
+     *                         the last page
+     * @param sectionLastPages the last page of every section, 0 if it isn't known
+     */
+    public void restore(int firstPage, int[] pageCounts, int[] sectionLastPages) {
+        clear();
+        System.arraycopy(sectionLastPages, 0, mSectionLastPages, 0, mSectionLastPages.length);
+        if (pageCounts.length == 0) {
+            return;
+        }
+        for (int count : pageCounts) {
+            mPageCounts.addLast(count);
+        }
+        mFirstPage = firstPage;
+    }
+
+    /**
+     * @return the number of the first page in the window, or 0 if there are no pages
+     */
+    public int getFirstPage() {
+        return mFirstPage;
+    }
+
+    /**
+     * @return the number of news in every page of the window, from the first to the last page
+     */
+    public int[] getPageCounts() {
+        int[] counts = new int[mPageCounts.size()];
+        int i = 0;
+        for (int count : mPageCounts) {
+            counts[i++] = count;
+        }
+        return counts;
+    }
+
+    /**
+     * @return the last page of every section, 0 if it isn't known yet
+     */
+    public int[] getSectionLastPages() {
+        return mSectionLastPages.clone();
+    }
+
+    /**
+     * @return the number of the page after the window, or 0 if no section has more pages
+     */
+    public int getNextPage() {
+        if (mPageCounts.isEmpty()) {
+            return 0;
+        }
+        int nextPage = mFirstPage + mPageCounts.size();
+        for (int section = 0; section < mSectionLastPages.length; section++) {
+            if (hasSectionPage(section, nextPage)) {
+                return nextPage;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of the page before the window, or 0 if the first page is in the window
+     */
+    public int getPreviousPage() {
+        if (mPageCounts.isEmpty() || mFirstPage <= 1) {
+            return 0;
+        }
+        return mFirstPage - 1;
+    }
+}
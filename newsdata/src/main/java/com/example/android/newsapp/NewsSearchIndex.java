@@ -0,0 +1,326 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide, in-memory inverted index over the titles, sections and authors of the news,
+ * so they can be searched as the user types, without the network.
+ * <p>
+ * Every word points to the news which contain it (its postings). The words are kept sorted,
+ * so all of the words which start with a prefix are next to each other. Every word of a query
+ * is treated as a prefix, and a news has to match all of them. The results are ranked by the
+ * fields the words were found in, and then by the published date.
+ * <p>
+ * The index holds a bounded number of news. Once it is full, the oldest news (by the published
+ * date) are dropped and the index is rebuilt with the newest ones.
+ */
+public class NewsSearchIndex {
+
+    /**
+     * How much a match in every field counts
+     */
+    static final int TITLE_WEIGHT = 4;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int SECTION_WEIGHT = 1;
+
+    /**
+     * A word which matches the query word exactly counts this many times more than a word
+     * which only starts with it
+     */
+    static final int EXACT_MATCH_FACTOR = 2;
+
+    /**
+     * The maximum number of news in the index which is shared by the whole process
+     */
+    public static final int DEFAULT_MAX_SIZE = 25_000;
+
+    /**
+     * The stored articles are added in chunks of this many news, and the lock of the index is
+     * released after every chunk, so a search never waits for all of them
+     */
+    static final int SEED_CHUNK_SIZE = 250;
+
+    // Initial capacity of the queue with the best matches
+    private static final int MAX_INITIAL_CAPACITY = 64;
+
+    private static final NewsSearchIndex sInstance = new NewsSearchIndex();
+
+    /**
+     * The news which contain a word, and the weight of the word in each of them
+     */
+    private static class Postings {
+        int[] mDocuments = new int[4];
+        int[] mWeights = new int[4];
+        int mSize;
+
+        void add(int document, int weight) {
+            // The same word can appear more than once in the same news
+            if (mSize > 0 && mDocuments[mSize - 1] == document) {
+                mWeights[mSize - 1] = Math.max(mWeights[mSize - 1], weight);
+                return;
+            }
+            if (mSize == mDocuments.length) {
+                mDocuments = Arrays.copyOf(mDocuments, mSize * 2);
+                mWeights = Arrays.copyOf(mWeights, mSize * 2);
+            }
+            mDocuments[mSize] = document;
+            mWeights[mSize] = weight;
+            mSize++;
+        }
+    }
+
+    // The postings of every word, sorted by the word
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+
+    // The news by their document number, and the document number of every URL
+    private final List<News> mDocuments = new ArrayList<>();
+    private final Map<String, Integer> mDocumentsByUrl = new HashMap<>();
+
+    // Documents of news which were replaced by a newer version. They are skipped in the
+    // results until the index is rebuilt.
+    private final BitSet mRemoved = new BitSet();
+    private int mRemovedCount;
+
+    // Whether the stored articles were added to the index already
+    private final AtomicBoolean mSeeded = new AtomicBoolean();
+
+    // The maximum number of news in the index
+    private final int mMaxSize;
+
+    /**
+     * Constructs a new {@link NewsSearchIndex} which holds at most {@link #DEFAULT_MAX_SIZE} news
+     */
+    public NewsSearchIndex() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link NewsSearchIndex}
+     *
+     * @param maxSize the maximum number of news in the index
+     */
+    public NewsSearchIndex(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the index which is shared by the whole process
+     */
+    public static NewsSearchIndex getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Add a news to the index. If a news with the same URL was indexed before, it is replaced.
+     */
+    public synchronized void add(News news) {
+        Integer previous = mDocumentsByUrl.get(news.getmURL());
+        if (previous != null) {
+            News indexed = mDocuments.get(previous);
+            if (indexed == news || sameText(indexed, news)) {
+                // Keep the indexed words, but show the latest version of the news
+                mDocuments.set(previous, news);
+                return;
+            }
+            mRemoved.set(previous);
+            mRemovedCount++;
+        }
+
+        int document = mDocuments.size();
+        mDocuments.add(news);
+        mDocumentsByUrl.put(news.getmURL(), document);
+
+        addWords(news.getmSectionName(), document, SECTION_WEIGHT);
+        if (news.hasAuthor()) {
+            addWords(news.getmAuthor(), document, AUTHOR_WEIGHT);
+        }
+        addWords(news.getmTitle(), document, TITLE_WEIGHT);
+
+        // Drop the oldest news once the index is full, and the replaced documents once they
+        // make up half of the index
+        if (size() > mMaxSize || mRemovedCount > mDocuments.size() / 2) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Add all of the given news to the index
+     */
+    public synchronized void addAll(List<News> news) {
+        for (News item : news) {
+            add(item);
+        }
+    }
+
+    /**
+     * Add the newest stored articles to the index, so they can be found even if they weren't
+     * downloaded since the app was started. This only happens once, the following articles
+     * are added while they are parsed.
+     *
+     * @param limit the maximum number of stored articles which are added
+     */
+    public void seed(ArticleStore store, int limit) {
+        if (!mSeeded.compareAndSet(false, true)) {
+            return;
+        }
+        // The store is read without holding the lock, and the articles are added in small
+        // chunks, so a search waits for a single chunk at most
+        List<News> articles = store.getNewest(limit);
+        for (int start = 0; start < articles.size(); start += SEED_CHUNK_SIZE) {
+            addAll(articles.subList(start, Math.min(start + SEED_CHUNK_SIZE, articles.size())));
+        }
+    }
+
+    /**
+     * @return the number of news in the index
+     */
+    public synchronized int size() {
+        return mDocuments.size() - mRemovedCount;
+    }
+
+    /**
+     * Find the news which match every word of the query, from the best to the worst match.
+     *
+     * @param query which is searched for. Every word is treated as the start of a word.
+     * @param limit the maximum number of results
+     */
+    public synchronized List<News> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        int[] scores = new int[mDocuments.size()];
+        int[] matchedWords = new int[mDocuments.size()];
+
+        for (int i = 0; i < queryWords.size(); i++) {
+            String prefix = queryWords.get(i);
+
+            // All of the words which start with the prefix
+            NavigableMap<String, Postings> words =
+                    mPostings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Postings> entry : words.entrySet()) {
+                int factor = entry.getKey().length() == prefix.length() ? EXACT_MATCH_FACTOR : 1;
+                Postings postings = entry.getValue();
+                for (int p = 0; p < postings.mSize; p++) {
+                    int document = postings.mDocuments[p];
+                    // Skip the news which missed one of the previous query words
+                    if (matchedWords[document] == i) {
+                        matchedWords[document] = i + 1;
+                    } else if (matchedWords[document] != i + 1) {
+                        continue;
+                    }
+                    scores[document] += postings.mWeights[p] * factor;
+                }
+            }
+        }
+
+        // Orders the documents from the best to the worst match
+        Comparator<Integer> bestFirst = (first, second) -> {
+            int byScore = Integer.compare(scores[second], scores[first]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            return Long.compare(mDocuments.get(second).getmDateMillis(),
+                    mDocuments.get(first).getmDateMillis());
+        };
+
+        // Keep the best matches of the news which matched every word. The worst of them is
+        // at the head of the queue, so it can be replaced by a better one.
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, MAX_INITIAL_CAPACITY) + 1,
+                bestFirst.reversed());
+        for (int document = 0; document < scores.length; document++) {
+            if (matchedWords[document] != queryWords.size() || mRemoved.get(document)) {
+                continue;
+            }
+            best.add(document);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Integer> matches = new ArrayList<>(best);
+        matches.sort(bestFirst);
+        List<News> results = new ArrayList<>(matches.size());
+        for (int document : matches) {
+            results.add(mDocuments.get(document));
+        }
+        return results;
+    }
+
+    /**
+     * Split the text into lower case words, at every character which isn't a letter or a digit
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void addWords(String text, int document, int weight) {
+        for (String word : tokenize(text)) {
+            Postings postings = mPostings.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(word, postings);
+            }
+            postings.add(document, weight);
+        }
+    }
+
+    /**
+     * Index the news again, without the replaced documents. If the index is full, only the
+     * newest three quarters of it are kept, so it isn't rebuilt again on the next news.
+     */
+    private void rebuild() {
+        List<News> documents = new ArrayList<>(size());
+        for (int document = 0; document < mDocuments.size(); document++) {
+            if (!mRemoved.get(document)) {
+                documents.add(mDocuments.get(document));
+            }
+        }
+        if (documents.size() > mMaxSize) {
+            documents.sort(MultiSectionFetcher.NEWEST_FIRST);
+            documents = documents.subList(0, mMaxSize - mMaxSize / 4);
+        }
+
+        mPostings.clear();
+        mDocuments.clear();
+        mDocumentsByUrl.clear();
+        mRemoved.clear();
+        mRemovedCount = 0;
+        for (News news : documents) {
+            add(news);
+        }
+    }
+
+    /**
+     * @return whether both news have the same indexed words
+     */
+    private static boolean sameText(News first, News second) {
+        return first.getmTitle().equals(second.getmTitle())
+                && first.getmSectionName().equals(second.getmSectionName())
+                && first.hasAuthor() == second.hasAuthor()
+                && (!first.hasAuthor() || first.getmAuthor().equals(second.getmAuthor()));
+    }
+}
@@ -0,0 +1,661 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.regex.Pattern.quote;
+
+public class QueryUtils {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = QueryUtils.class.getSimpleName();
+
+    // private float DECREASE_AMOUNT_IN_PX = getResources().getDimensionPixelOffset(R.dimen.list_item_height);
+
+    /**
+     * Makes the HTTP requests, retrying and hedging them, and stops them while the API keeps
+     * failing. Its client reuses the connections and decompresses the responses.
+     */
+    private static volatile FetchEngine sFetchEngine = new FetchEngine(new NewsHttpClient());
+
+    /**
+     * Creates the JSON parsers of the responses. Gson is used unless another backend is set.
+     */
+    private static volatile JsonPullParser.Factory sJsonParserFactory = GsonJsonPullParser::new;
+
+    /**
+     * The key which every request to the API is made with. The "test" key works without
+     * registering, but has a small quota.
+     */
+    private static volatile String sApiKey = "test";
+
+    /**
+     * The requests which are in flight, by their URL. Concurrent requests for the same URL
+     * share a single network call and a single parse.
+     */
+    private static final SingleFlight<String, List<News>> sInFlightRequests = new SingleFlight<>();
+
+    /**
+     * Create a private constructor because no one should ever create a {@link QueryUtils} object.
+     * This class is only meant to hold static variables and methods, which can be accessed
+     * directly from the class name QueryUtils (and an object instance of QueryUtils is not needed).
+     */
+    private QueryUtils() {
+    }
+
+
+    /**
+     * Replace the client which makes the HTTP requests, for example to change the timeouts.
+     */
+    public static void setHttpClient(NewsHttpClient httpClient) {
+        sFetchEngine = new FetchEngine(httpClient);
+    }
+
+    /**
+     * Replace the engine which makes the HTTP requests, for example to change how the requests
+     * are retried.
+     */
+    public static void setFetchEngine(FetchEngine fetchEngine) {
+        sFetchEngine = fetchEngine;
+    }
+
+    /**
+     * Replace the JSON backend which parses the responses, for example with the parser
+     * of the platform.
+     */
+    public static void setJsonParserFactory(JsonPullParser.Factory factory) {
+        sJsonParserFactory = factory;
+    }
+
+    /**
+     * Set the key which every request to the API is made with
+     */
+    public static void setApiKey(String apiKey) {
+        sApiKey = apiKey;
+    }
+
+    /**
+     * @return the key which every request to the API is made with
+     */
+    public static String getApiKey() {
+        return sApiKey;
+    }
+
+    /**
+     * Callback used to hand over every {@link News} as soon as it has been parsed, so the callers
+     * don't have to wait for the whole response to be read.
+     */
+    public interface OnNewsParsedListener {
+        void onNewsParsed(News news);
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of {@link News} objects.
+     */
+    public static List<News> fetchNewsData(String requestUrl) {
+        return fetchNewsData(requestUrl, null, null);
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of {@link News} objects.
+     * Every {@link News} is also passed to the listener (if there is one) the moment it is parsed.
+     */
+    public static List<News> fetchNewsData(String requestUrl, @Nullable OnNewsParsedListener listener) {
+        return fetchNewsData(requestUrl, null, listener);
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of {@link News} objects, using the given
+     * disk cache (if there is one) to revalidate the previous response instead of downloading
+     * it again.
+     */
+    public static List<News> fetchNewsData(String requestUrl, @Nullable NewsDiskCache cache,
+                                           @Nullable OnNewsParsedListener listener) {
+        NewsDiskCache.Entry cached = cache != null ? cache.get(requestUrl) : null;
+        return fetchNewsData(requestUrl, cache, cached, listener);
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of {@link News} objects.
+     * <p>
+     * If there is a cached entry for the URL, the request is sent as a conditional GET with its
+     * ETag and Last-Modified values. When the server answers with 304 Not Modified, the cached
+     * news are returned without downloading or parsing anything (and without calling the
+     * listener, since the caller already has them). When the request fails, the cached news are
+     * returned as well. A successful response is stored in the cache.
+     * <p>
+     * A request which fails or is rate limited is retried, and a slow one is hedged, by the
+     * {@link FetchEngine}, and scheduled by the priority of the token. While the API keeps
+     * failing, or while its quota is kept for more urgent requests, no request is made at all,
+     * and the cached news are returned right away.
+     * <p>
+     * If a request for the same URL is already in flight, this waits for its result instead of
+     * making another one. The listener is then called with every news of that result once it
+     * arrives. The returned list can't be modified, since it is shared by all of these callers.
+     *
+     * @param requestUrl to load the data from
+     * @param cache      in which the response is stored, or null
+     * @param cached     the entry which was previously cached for this URL, or null
+     * @param listener   which is called with every news parsed from the response, or null
+     */
+    public static List<News> fetchNewsData(String requestUrl, @Nullable NewsDiskCache cache,
+                                           @Nullable NewsDiskCache.Entry cached,
+                                           @Nullable OnNewsParsedListener listener) {
+        return fetchNewsData(requestUrl, cache, cached, listener, null);
+    }
+
+    /**
+     * Query the Guardian dataset like {@link #fetchNewsData(String, NewsDiskCache,
+     * NewsDiskCache.Entry, OnNewsParsedListener)}, but stop as soon as the token is cancelled.
+     * Cancelling the token aborts the response which is being read, and null is returned.
+     * <p>
+     * A request which is shared by several callers is only cancelled by the token of the
+     * caller which made it. The other callers then make the request again. The token of a caller
+     * which waits for the request of another caller only ends its own wait.
+     *
+     * @param token which cancels the request, or null
+     */
+    public static List<News> fetchNewsData(String requestUrl, @Nullable NewsDiskCache cache,
+                                           @Nullable NewsDiskCache.Entry cached,
+                                           @Nullable OnNewsParsedListener listener,
+                                           @Nullable CancellationToken token) {
+        // Whether this caller made the request, instead of waiting for the one in flight
+        boolean[] requested = {false};
+        List<News> shared = sInFlightRequests.execute(requestUrl, () -> {
+            requested[0] = true;
+            long start = System.nanoTime();
+
+            // Create URL object
+            URL url = createUrl(requestUrl);
+
+            // Perform HTTP request to the URL and parse the JSON response while it is being received
+            List<News> news = makeHttpRequest(url, cache, cached, listener, token);
+            if (isCancelled(token)) {
+                return null;
+            }
+            NewsMetrics.getInstance().record(NewsMetrics.Metric.LOAD, System.nanoTime() - start);
+
+            // If the request failed, fall back to the cached news
+            if (news == null && cached != null) {
+                news = cached.getNews();
+            }
+
+            // Return the list of {@link News}s
+            return news != null ? Collections.unmodifiableList(news) : null;
+        }, token);
+
+        // The news of a shared request were parsed by the caller which made it
+        if (!requested[0] && shared != null && listener != null) {
+            for (News item : shared) {
+                listener.onNewsParsed(item);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Query a single article of the Guardian dataset, and return the text of its body.
+     * Cancelling the token aborts the response which is being read, and null is returned.
+     *
+     * @param requestUrl the URL of the article in the content API, which asks for the
+     *                   "bodyText" field
+     * @param token      which cancels the request, or null
+     * @return the text of the article, or null if it couldn't be loaded
+     */
+    @Nullable
+    public static String fetchArticleBody(String requestUrl, @Nullable CancellationToken token) {
+        URL url = createUrl(requestUrl);
+        if (url == null || isCancelled(token)) {
+            return null;
+        }
+
+        String body = null;
+        try (NewsHttpClient.Response response = sFetchEngine.get(url, null, token)) {
+            // Cancelling the token closes the connection, which stops the read in progress
+            if (token != null) {
+                token.setOnCancelListener(response::abort);
+            }
+
+            if (response.getCode() == HttpURLConnection.HTTP_OK) {
+                body = readArticleBody(response.getBody());
+                sampleNetwork(response, 0);
+            } else {
+                NewsLog.e(LOG_TAG, "Error response code: " + response.getCode());
+            }
+        } catch (IOException | IllegalStateException e) {
+            if (!isCancelled(token)) {
+                NewsLog.e(LOG_TAG, "Problem retrieving the article " + requestUrl, e);
+            }
+            body = null;
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+        return isCancelled(token) ? null : body;
+    }
+
+    /**
+     * @return the number of requests which didn't go to the network, because they shared the
+     * result of a request for the same URL which was already in flight
+     */
+    public static int getSharedRequestCount() {
+        return sInFlightRequests.getSharedCount();
+    }
+
+    private static boolean isCancelled(@Nullable CancellationToken token) {
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * Returns new URL object from the given string URL.
+     */
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            NewsLog.e(LOG_TAG, "Problem building the URL ", e);
+        }
+        return url;
+    }
+
+    /**
+     * Make an HTTP request to the given URL and return the list of {@link News} parsed
+     * from the response, or null if the request failed or was cancelled.
+     */
+    private static List<News> makeHttpRequest(URL url, @Nullable NewsDiskCache cache,
+                                              @Nullable NewsDiskCache.Entry cached,
+                                              @Nullable OnNewsParsedListener listener,
+                                              @Nullable CancellationToken token) {
+        List<News> news = null;
+
+        // If the URL is null, or nobody wants the news anymore, then return early.
+        if (url == null || isCancelled(token)) {
+            return news;
+        }
+
+        // Ask the server to only send the response if it changed since it was cached
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                headers.put("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                headers.put("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        // The response is closed (and its connection handed back to the pool) in any case
+        try (NewsHttpClient.Response response = sFetchEngine.get(url, headers, token)) {
+            // Cancelling the token closes the connection, which stops the read in progress
+            if (token != null) {
+                token.setOnCancelListener(response::abort);
+            }
+
+            int responseCode = response.getCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // The cached response is still valid, so there is nothing to download
+                news = cached.getNews();
+                sampleNetwork(response, 0);
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                // If the request was successful (response code 200),
+                // then parse the input stream directly, without reading it into a String first.
+                InputStream inputStream = response.getBody();
+                news = new ArrayList<>();
+                long parseStart = System.nanoTime();
+                try {
+                    readNewsFeed(inputStream, news, listener);
+                } catch (IOException | IllegalStateException e) {
+                    if (isCancelled(token)) {
+                        return null;
+                    }
+                    // Return the news parsed so far, but don't cache an incomplete response
+                    NewsLog.e(LOG_TAG, "Problem parsing the news JSON results", e);
+                    return news;
+                } finally {
+                    // The time spent waiting for the network is recorded as the download
+                    recordParse(System.nanoTime() - parseStart - response.getDownloadNanos(),
+                            news.size());
+                }
+
+                sampleNetwork(response, news.size());
+
+                if (cache != null) {
+                    cache.put(url.toString(), response.getHeader("ETag"),
+                            response.getHeader("Last-Modified"), news);
+                }
+            } else {
+                NewsLog.e(LOG_TAG, "Error response code: " + responseCode);
+            }
+        } catch (CircuitBreaker.OpenException | RequestScheduler.QuotaExceededException e) {
+            // The API keeps failing or the quota is kept for more urgent requests,
+            // so the caller falls back to the cached news
+            NewsLog.e(LOG_TAG, e.getMessage());
+        } catch (IOException e) {
+            if (isCancelled(token)) {
+                return null;
+            }
+            NewsLog.e(LOG_TAG, "Problem retrieving the news JSON results.", e);
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+        return isCancelled(token) ? null : news;
+    }
+
+    /**
+     * Let the {@link ThroughputEstimator} measure the network on the given response, which
+     * was read completely
+     *
+     * @param newsCount number of news in the response
+     */
+    private static void sampleNetwork(NewsHttpClient.Response response, int newsCount) {
+        ThroughputEstimator.getInstance().addSample(response.getReceivedBytes(),
+                response.getDownloadNanos(), response.getLatencyNanos(), newsCount);
+    }
+
+    /**
+     * Return a list of {@link News} objects that has been built up from parsing the JSON
+     * response in the given {@link InputStream}.
+     * The stream is read with a pull parser, so only the {@link News} currently being parsed
+     * is held in memory, and neither the whole response String nor a JSON tree is ever built.
+     */
+    static List<News> extractFeatureFromJson(InputStream inputStream,
+                                             @Nullable OnNewsParsedListener listener) {
+        // If there is no stream, then return early.
+        if (inputStream == null) {
+            return null;
+        }
+
+        // Create an empty ArrayList that we can start adding news to
+        List<News> allNews = new ArrayList<>();
+
+        // Try to parse the JSON response. If there's a problem with the way the JSON is formatted,
+        // an IOException (malformed JSON) or an IllegalStateException (unexpected type) is thrown.
+        // Catch the exception so the app doesn't crash, and print the error message to the logs.
+        // The news parsed up to that point are still returned.
+        long start = System.nanoTime();
+        try {
+            readNewsFeed(inputStream, allNews, listener);
+        } catch (IOException | IllegalStateException e) {
+            NewsLog.e(LOG_TAG, "Problem parsing the news JSON results", e);
+        }
+        recordParse(System.nanoTime() - start, allNews.size());
+
+        // Return the list of news
+        return allNews;
+    }
+
+    /**
+     * Record the time it took to parse a response, and the number of news in it
+     */
+    private static void recordParse(long parseNanos, int items) {
+        NewsMetrics metrics = NewsMetrics.getInstance();
+        metrics.record(NewsMetrics.Metric.PARSE, parseNanos);
+        metrics.record(NewsMetrics.Metric.ITEMS, items);
+    }
+
+    /**
+     * Parse the JSON response in the given {@link InputStream} and add every news to the list.
+     *
+     * @throws IOException           if the stream can't be read or the JSON is malformed
+     * @throws IllegalStateException if the JSON doesn't have the expected structure
+     */
+    private static void readNewsFeed(InputStream inputStream, List<News> allNews,
+                                     @Nullable OnNewsParsedListener listener) throws IOException {
+        JsonPullParser reader = sJsonParserFactory.create(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        // The base response is an object which holds the object under key "response"
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("response")) {
+                readResponse(reader, allNews, listener);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read the object under key "response" and every news in its JSON array under key "results".
+     */
+    private static void readResponse(JsonPullParser reader, List<News> allNews,
+                                     @Nullable OnNewsParsedListener listener) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("results")) {
+                reader.skipValue();
+                continue;
+            }
+
+            // For each news in the results array, create an {@link News} object
+            reader.beginArray();
+            while (reader.hasNext()) {
+                News news = readNews(reader);
+                if (news == null) {
+                    continue;
+                }
+                allNews.add(news);
+                if (listener != null) {
+                    listener.onNewsParsed(news);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read a single news object from the results array.
+     * The keys can come in any order, so the values are kept until the whole object is read.
+     *
+     * @return the parsed {@link News}, or null if the title, section or URL are missing
+     */
+    private static News readNews(JsonPullParser reader) throws IOException {
+        String currentWebTitle = null;
+        String currentSectionName = null;
+        String currentWebPublicationDate = null;
+        String currentWebUrl = null;
+        String currentAuthor = null;
+        String currentThumbnail = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "webTitle":
+                    currentWebTitle = nextStringOrNull(reader);
+                    break;
+                case "sectionName":
+                    currentSectionName = nextStringOrNull(reader);
+                    break;
+                case "webPublicationDate":
+                    currentWebPublicationDate = nextStringOrNull(reader);
+                    break;
+                case "webUrl":
+                    currentWebUrl = nextStringOrNull(reader);
+                    break;
+                case "tags":
+                    currentAuthor = readAuthor(reader);
+                    break;
+                case "fields":
+                    currentThumbnail = readThumbnail(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (currentWebTitle == null || currentSectionName == null || currentWebUrl == null) {
+            NewsLog.e(LOG_TAG, "Skipping news without title, section or URL: " + currentWebUrl);
+            return null;
+        }
+
+        // In case there is no information about the author or the publication date, the news is
+        // constructed with a null author and an unknown date. The TextViews of these values
+        // will have their visibility set to GONE in NewsAdapter class.
+        return new News(currentWebTitle, currentSectionName, currentAuthor,
+                News.parseDate(currentWebPublicationDate), currentWebUrl, currentThumbnail);
+    }
+
+    /**
+     * Parse the response of the content API for a single article, and return the text of its
+     * body under the keys "response", "content", "fields" and "bodyText".
+     *
+     * @return the text, or null if the response doesn't hold one
+     */
+    private static String readArticleBody(InputStream inputStream) throws IOException {
+        JsonPullParser reader = sJsonParserFactory.create(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        String body = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("response")) {
+                body = readObjectPath(reader, "content", "fields", "bodyText");
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return body;
+    }
+
+    /**
+     * Read the JSON object which is next, and return the string which is nested in it under
+     * the given keys, e.g. the value of "b" in {"a": {"b": "value"}} for the keys "a" and "b".
+     * Everything else in the object is skipped.
+     *
+     * @return the string, or null if there is none under the keys
+     */
+    private static String readObjectPath(JsonPullParser reader, String... keys) throws IOException {
+        return readObjectPath(reader, keys, 0);
+    }
+
+    private static String readObjectPath(JsonPullParser reader, String[] keys, int depth)
+            throws IOException {
+        if (reader.peek() != JsonPullParser.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals(keys[depth])) {
+                reader.skipValue();
+            } else if (depth < keys.length - 1) {
+                value = readObjectPath(reader, keys, depth + 1);
+            } else if (reader.peek() == JsonPullParser.Token.STRING) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    /**
+     * Read the JSON object under key "fields" and return the URL of the thumbnail image under
+     * key "thumbnail", or null if it doesn't hold one.
+     */
+    private static String readThumbnail(JsonPullParser reader) throws IOException {
+        if (reader.peek() != JsonPullParser.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String thumbnail = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("thumbnail")) {
+                thumbnail = nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return thumbnail;
+    }
+
+    /**
+     * Read the JSON array under key "tags" and return the name of the author from its first
+     * object, or null if it doesn't hold that information.
+     * The author is under key "webTitle", or else under keys "firstName" and "lastName".
+     */
+    private static String readAuthor(JsonPullParser reader) throws IOException {
+        if (reader.peek() != JsonPullParser.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+
+        String webTitle = null;
+        String firstName = null;
+        String lastName = null;
+
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonPullParser.Token.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "webTitle":
+                        webTitle = nextStringOrNull(reader);
+                        break;
+                    case "firstName":
+                        firstName = nextStringOrNull(reader);
+                        break;
+                    case "lastName":
+                        lastName = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        // Only the first tag is relevant for us, skip the rest
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+
+        if (webTitle != null) {
+            return webTitle;
+        } else if (firstName != null && lastName != null) {
+            return firstName + " " + lastName;
+        }
+        return null;
+    }
+
+    /**
+     * Read the next string value, or return null if the value is a JSON null.
+     */
+    private static String nextStringOrNull(JsonPullParser reader) throws IOException {
+        if (reader.peek() == JsonPullParser.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules all of the requests to the Guardian API, so the app stays within its rate limits.
+ * <p>
+ * The requests are limited by a token bucket: a request takes a token, and the tokens are
+ * refilled at a steady rate, up to a small burst. When there is no token, the requests wait for
+ * their turn by their {@link LoadEngine.Priority}: the news on the screen before the prefetched
+ * ones, and those before the background work. A request gains a priority for every two seconds
+ * it waited, so even background work gets its turn eventually.
+ * <p>
+ * The API reports the quota which is left for the day in the headers of its responses. When it
+ * runs low, the background requests are refused, and when it is almost gone, the prefetches as
+ * well, so the quota which is left goes to the news the user is waiting for. A refused request
+ * fails with a {@link QuotaExceededException}, and the callers fall back to the cached news.
+ */
+public class RequestScheduler {
+
+    /**
+     * Default number of requests per second. The keys of the API allow up to 12.
+     */
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+
+    /**
+     * Default number of requests which can be made at once, after a pause
+     */
+    public static final int DEFAULT_BURST = 10;
+
+    /**
+     * By default, a waiting request is treated as one priority higher for every this many
+     * milliseconds
+     */
+    public static final long DEFAULT_AGING_MILLIS = 2000;
+
+    /**
+     * Below this share of the daily quota, the background requests are refused
+     */
+    static final double LOW_QUOTA_FRACTION = 0.1;
+
+    /**
+     * Below this share of the daily quota, the prefetches are refused as well
+     */
+    static final double CRITICAL_QUOTA_FRACTION = 0.02;
+
+    /**
+     * The quota reported by the API is forgotten after this time, because the quota of the day
+     * might have been renewed in the meantime
+     */
+    static final long QUOTA_MAX_AGE_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * The response headers with the daily limit of requests, the requests left for the day,
+     * and the requests left for the minute
+     */
+    static final String HEADER_LIMIT_DAY = "X-RateLimit-Limit-day";
+    static final String HEADER_REMAINING_DAY = "X-RateLimit-Remaining-day";
+    static final String HEADER_REMAINING_MINUTE = "X-RateLimit-Remaining-minute";
+
+    private static final RequestScheduler sInstance =
+            new RequestScheduler(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST);
+
+    /**
+     * Thrown instead of making a request, when the quota which is left is kept for more
+     * urgent requests
+     */
+    public static class QuotaExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @return the scheduler of all of the requests of the process
+     */
+    public static RequestScheduler getInstance() {
+        return sInstance;
+    }
+
+    private final double mTokensPerNano;
+    private final int mBurst;
+    private final long mAgingNanos;
+
+    // The tokens in the bucket, and when they were last refilled. Guarded by this.
+    private double mTokens;
+    private long mRefilledNanos;
+
+    // The requests which wait for a token. Guarded by this.
+    private final List<Ticket> mWaiting = new ArrayList<>();
+
+    // The daily quota reported by the API, minus the requests made since, or -1 if unknown,
+    // and when it was reported. Guarded by this.
+    private long mDailyLimit = -1;
+    private long mDailyRemaining = -1;
+    private long mQuotaReportedNanos;
+
+    // Number of requests which were let through. Guarded by this.
+    private long mGrantedCount;
+
+    /**
+     * Constructs a new {@link RequestScheduler}
+     *
+     * @param requestsPerSecond the rate at which the tokens are refilled
+     * @param burst             the number of tokens the bucket holds, which is also the number
+     *                          of requests which can be made at once
+     */
+    public RequestScheduler(double requestsPerSecond, int burst) {
+        this(requestsPerSecond, burst, DEFAULT_AGING_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@link RequestScheduler}
+     *
+     * @param requestsPerSecond the rate at which the tokens are refilled
+     * @param burst             the number of tokens the bucket holds
+     * @param agingMillis       a waiting request is treated as one priority higher for every
+     *                          this many milliseconds
+     */
+    RequestScheduler(double requestsPerSecond, int burst, long agingMillis) {
+        mTokensPerNano = requestsPerSecond / 1_000_000_000d;
+        mBurst = burst;
+        mAgingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        mTokens = burst;
+        mRefilledNanos = System.nanoTime();
+    }
+
+    /**
+     * Wait until the request of the load with the given token may be made.
+     *
+     * @param token which cancels the wait, or null. The request has the priority of its token,
+     *              or the background priority if there is none.
+     * @throws QuotaExceededException if the quota which is left is kept for more urgent requests
+     * @throws InterruptedIOException if the token was cancelled
+     */
+    public void acquire(@Nullable CancellationToken token) throws IOException {
+        LoadEngine.Priority priority =
+                token != null ? token.getPriority() : LoadEngine.Priority.BACKGROUND;
+        Ticket ticket = new Ticket(priority, System.nanoTime());
+
+        // Wake up the waiting requests when the token is cancelled, so this one leaves the queue
+        if (token != null) {
+            token.setOnCancelListener(this::wakeUp);
+        }
+        try {
+            synchronized (this) {
+                mWaiting.add(ticket);
+                try {
+                    awaitTurn(ticket, token);
+                } finally {
+                    mWaiting.remove(ticket);
+                    // The next request might be able to go now
+                    notifyAll();
+                }
+            }
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+        NewsMetrics.getInstance().record(NewsMetrics.Metric.SCHEDULER_WAIT,
+                System.nanoTime() - ticket.mEnqueuedNanos);
+    }
+
+    /**
+     * Let a request with the given priority through if it can be made right away, without
+     * waiting and without taking the turn of a waiting request. This is meant for requests
+     * which are optional, such as hedged requests.
+     *
+     * @return whether the request may be made
+     */
+    public synchronized boolean tryAcquire(LoadEngine.Priority priority) {
+        refill(System.nanoTime());
+        if (!mWaiting.isEmpty() || mTokens < 1 || isQuotaKept(priority)) {
+            return false;
+        }
+        grant();
+        return true;
+    }
+
+    /**
+     * Read the quota which is left from the headers of the given response of the API
+     */
+    public synchronized void onResponse(NewsHttpClient.Response response) {
+        long limit = parseCount(response.getHeader(HEADER_LIMIT_DAY));
+        long remaining = parseCount(response.getHeader(HEADER_REMAINING_DAY));
+        if (limit > 0 && remaining >= 0) {
+            mDailyLimit = limit;
+            mDailyRemaining = remaining;
+            mQuotaReportedNanos = System.nanoTime();
+        }
+
+        // Nothing is left for this minute, so don't let the burst through as well
+        if (response.getCode() == RetryPolicy.HTTP_TOO_MANY_REQUESTS
+                || parseCount(response.getHeader(HEADER_REMAINING_MINUTE)) == 0) {
+            refill(System.nanoTime());
+            mTokens = Math.min(mTokens, 0);
+        }
+    }
+
+    /**
+     * @return the number of requests which are left for the day, or -1 if it isn't known
+     */
+    public synchronized long getDailyRemaining() {
+        return isQuotaKnown() ? mDailyRemaining : -1;
+    }
+
+    /**
+     * @return the number of requests which were let through
+     */
+    public synchronized long getGrantedCount() {
+        return mGrantedCount;
+    }
+
+    /**
+     * Wait until it is the turn of the given ticket and there is a token for it.
+     * Must be called while holding the lock.
+     */
+    private void awaitTurn(Ticket ticket, @Nullable CancellationToken token) throws IOException {
+        while (true) {
+            if (token != null && token.isCancelled()) {
+                throw new InterruptedIOException("Cancelled");
+            }
+            if (isQuotaKept(ticket.mPriority)) {
+                throw new QuotaExceededException("The quota of the API is kept for more urgent"
+                        + " requests than " + ticket.mPriority);
+            }
+
+            long now = System.nanoTime();
+            refill(now);
+            if (mTokens >= 1 && nextTicket(now) == ticket) {
+                grant();
+                return;
+            }
+
+            // Wait for the next token. If there is one, but it is the turn of another request,
+            // that request wakes this one up once it took the token.
+            long waitNanos = mTokens >= 1
+                    ? mAgingNanos : (long) Math.ceil((1 - mTokens) / mTokensPerNano);
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a request");
+            }
+        }
+    }
+
+    /**
+     * @return the waiting ticket whose turn it is: the one with the highest priority, raised by
+     * one for every aging period it waited, and the one which waited the longest among those
+     */
+    private Ticket nextTicket(long now) {
+        Ticket next = null;
+        long nextRank = 0;
+        for (Ticket ticket : mWaiting) {
+            long rank = ticket.mPriority.ordinal()
+                    + (now - ticket.mEnqueuedNanos) / mAgingNanos;
+            if (next == null || rank > nextRank
+                    || (rank == nextRank && ticket.mEnqueuedNanos < next.mEnqueuedNanos)) {
+                next = ticket;
+                nextRank = rank;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Take a token for a request. Must be called while holding the lock.
+     */
+    private void grant() {
+        mTokens -= 1;
+        mGrantedCount++;
+        // Count the request until the API reports the quota again
+        if (isQuotaKnown() && mDailyRemaining > 0) {
+            mDailyRemaining--;
+        }
+    }
+
+    /**
+     * @return whether the quota which is left is kept for more urgent requests than the ones
+     * with the given priority. Must be called while holding the lock.
+     */
+    private boolean isQuotaKept(LoadEngine.Priority priority) {
+        if (!isQuotaKnown()) {
+            return false;
+        }
+        double left = (double) mDailyRemaining / mDailyLimit;
+        switch (priority) {
+            case BACKGROUND:
+                return left < LOW_QUOTA_FRACTION;
+            case PREFETCH:
+                return left < CRITICAL_QUOTA_FRACTION;
+            default:
+                return mDailyRemaining <= 0;
+        }
+    }
+
+    private boolean isQuotaKnown() {
+        return mDailyLimit > 0 && System.nanoTime() - mQuotaReportedNanos
+                < TimeUnit.MILLISECONDS.toNanos(QUOTA_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Add the tokens which were refilled since the last time. Must be called while holding
+     * the lock.
+     */
+    private void refill(long now) {
+        mTokens = Math.min(mBurst, mTokens + (now - mRefilledNanos) * mTokensPerNano);
+        mRefilledNanos = now;
+    }
+
+    private synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    /**
+     * @return the number in the given header value, or -1 if there is none
+     */
+    private static long parseCount(@Nullable String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A request which waits for its turn
+     */
+    private static class Ticket {
+
+        private final LoadEngine.Priority mPriority;
+        private final long mEnqueuedNanos;
+
+        Ticket(LoadEngine.Priority priority, long enqueuedNanos) {
+            mPriority = priority;
+            mEnqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether a failed request is made again, and how long to wait before that.
+ * <p>
+ * The wait grows exponentially with every attempt, and half of it is random, so the clients
+ * which failed at the same time (e.g. because the API was down) don't all come back at the same
+ * time. If the server said how long to wait, in the Retry-After header of a 429 Too Many
+ * Requests or 503 Service Unavailable response, that wait is used instead.
+ */
+public class RetryPolicy {
+
+    /**
+     * Default number of attempts of a request, including the first one
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default wait before the first retry. It doubles for every following retry.
+     */
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+
+    /**
+     * Default longest wait before a retry. If the server asks to wait longer than this,
+     * the request isn't retried.
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 8000;
+
+    /**
+     * HTTP status code of a response to too many requests
+     */
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final Random mRandom;
+
+    /**
+     * Constructs a new {@link RetryPolicy} with the default attempts and waits
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS,
+                new Random());
+    }
+
+    /**
+     * Constructs a new {@link RetryPolicy}
+     *
+     * @param maxAttempts     number of attempts of a request, including the first one
+     * @param baseDelayMillis wait before the first retry, which doubles for every retry
+     * @param maxDelayMillis  longest wait before a retry
+     * @param random          which makes the random part of the waits
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                       Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    /**
+     * @return the number of attempts of a request, including the first one
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @return whether a response with the given status code is worth retrying: the server was
+     * overloaded, rate limited the client or failed, but the request itself is fine
+     */
+    public static boolean isRetryable(int code) {
+        return code == HTTP_TOO_MANY_REQUESTS || code >= 500;
+    }
+
+    /**
+     * @param attempt          the number of the attempt which failed, starting at 1
+     * @param retryAfterMillis the wait the server asked for, or -1 if it didn't ask for one
+     * @return how long to wait before the next attempt, in milliseconds, or -1 if the request
+     * shouldn't be retried
+     */
+    public long getDelayMillis(int attempt, long retryAfterMillis) {
+        if (attempt >= mMaxAttempts) {
+            return -1;
+        }
+        if (retryAfterMillis >= 0) {
+            // The server knows best, but waiting too long is worse than showing the cached news
+            return retryAfterMillis <= mMaxDelayMillis ? retryAfterMillis : -1;
+        }
+
+        // Half of the wait is fixed, the other half is random
+        long delay = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt - 1, 20));
+        long half = delay / 2;
+        return half + (long) (mRandom.nextDouble() * (delay - half));
+    }
+
+    /**
+     * Parse the value of a Retry-After header, which is either a number of seconds or
+     * an HTTP date, e.g. "120" or "Wed, 21 Oct 2015 07:28:00 GMT".
+     *
+     * @param value       of the header, or null if there is none
+     * @param nowMillis   the current time, in milliseconds since the epoch
+     * @return the wait in milliseconds, or -1 if there is no valid value
+     */
+    public static long parseRetryAfter(@Nullable String value, long nowMillis) {
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds >= 0 ? seconds * 1000 : -1;
+        } catch (NumberFormatException e) {
+            // Not a number, so it should be a date
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - nowMillis);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
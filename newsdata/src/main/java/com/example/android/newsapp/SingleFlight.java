@@ -0,0 +1,163 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure that concurrent calls for the same key are only executed once.
+ * <p>
+ * The first caller for a key executes the call on its own thread. Everybody who asks for the
+ * same key while that call is still in flight waits for it and gets the same result, instead
+ * of executing the call again. Once the call completes, the next caller starts a new one.
+ * <p>
+ * Every caller can pass a token. The token of the caller which executes the call cancels the
+ * call itself. If it is cancelled, the callers which waited for it don't get its (missing)
+ * result, but execute the call again, or join the next one. The token of a caller which waits
+ * only ends its own wait.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the results
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * A call which is in flight
+     */
+    private static class Flight<V> {
+
+        final CompletableFuture<V> mResult = new CompletableFuture<>();
+
+        // The token of the caller which executes the call, or null
+        @Nullable
+        final CancellationToken mToken;
+
+        // Whether the call was cancelled, so its result isn't shared. Set before the result.
+        volatile boolean mCancelled;
+
+        Flight(@Nullable CancellationToken token) {
+            mToken = token;
+        }
+    }
+
+    // The calls which are in flight right now
+    private final ConcurrentHashMap<K, Flight<V>> mInFlight = new ConcurrentHashMap<>();
+
+    // The number of calls which were executed, and which joined a call that was in flight
+    private final AtomicInteger mExecutedCount = new AtomicInteger();
+    private final AtomicInteger mSharedCount = new AtomicInteger();
+
+    /**
+     * Execute the call for the given key, or wait for the result of the call for that key
+     * which is already in flight.
+     *
+     * @throws RuntimeException if the call threw one
+     */
+    public V execute(K key, Supplier<V> call) {
+        return execute(key, call, null);
+    }
+
+    /**
+     * Execute the call for the given key, or wait for the result of the call for that key
+     * which is already in flight.
+     *
+     * @param token which cancels the call if this caller executes it, and which stops the wait
+     *              otherwise, or null
+     * @return the result of the call, or null if the token was cancelled
+     * @throws RuntimeException if the call threw one
+     */
+    public V execute(K key, Supplier<V> call, @Nullable CancellationToken token) {
+        while (token == null || !token.isCancelled()) {
+            Flight<V> flight = new Flight<>(token);
+            Flight<V> inFlight = mInFlight.putIfAbsent(key, flight);
+
+            if (inFlight == null) {
+                // Nobody is executing the call yet, so execute it on this thread
+                mExecutedCount.incrementAndGet();
+                return run(key, flight, call);
+            }
+
+            // Share the result of the call which is already in flight
+            mSharedCount.incrementAndGet();
+            V result = await(inFlight, token);
+            if (!inFlight.mCancelled) {
+                return result;
+            }
+            // The call was cancelled by the caller which executed it, so try again
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of calls which were executed
+     */
+    public int getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /**
+     * @return the number of calls which weren't executed, because they shared the result of
+     * a call which was already in flight
+     */
+    public int getSharedCount() {
+        return mSharedCount.get();
+    }
+
+    private V run(K key, Flight<V> flight, Supplier<V> call) {
+        V result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            mInFlight.remove(key, flight);
+            flight.mResult.completeExceptionally(e);
+            throw e;
+        }
+
+        // The call is removed before its result is shared, so the callers which try again
+        // never find it
+        flight.mCancelled = flight.mToken != null && flight.mToken.isCancelled();
+        mInFlight.remove(key, flight);
+        flight.mResult.complete(result);
+        return result;
+    }
+
+    /**
+     * Wait for the result of the call, until the given token is cancelled
+     *
+     * @return the result, or null if the token was cancelled
+     */
+    private V await(Flight<V> flight, @Nullable CancellationToken token) {
+        // Cancelling this stage only ends this wait, not the wait of the other callers
+        CompletableFuture<V> result = flight.mResult.thenApply(value -> value);
+        if (token != null) {
+            token.setOnCancelListener(() -> result.cancel(false));
+        }
+
+        try {
+            return result.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (token != null) {
+                token.setOnCancelListener(null);
+            }
+        }
+    }
+}
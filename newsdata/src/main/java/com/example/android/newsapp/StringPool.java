@@ -0,0 +1,66 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes strings which repeat across many news, such as the section names, the authors
+ * and the display labels built from them. Every distinct value is then held in memory only once,
+ * instead of once per news.
+ * <p>
+ * Unlike {@link String#intern()}, the pool is an ordinary object, and it stops taking in new
+ * values once it is full, so it can't grow without bounds.
+ */
+public class StringPool {
+
+    /**
+     * The maximum number of distinct values in the shared pool
+     */
+    private static final int DEFAULT_MAX_SIZE = 8192;
+
+    private static final StringPool sShared = new StringPool(DEFAULT_MAX_SIZE);
+
+    private final ConcurrentHashMap<String, String> mValues = new ConcurrentHashMap<>();
+    private final int mMaxSize;
+
+    /**
+     * Constructs a new {@link StringPool}
+     *
+     * @param maxSize the maximum number of distinct values in the pool
+     */
+    public StringPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the pool which is shared by the whole process
+     */
+    public static StringPool getShared() {
+        return sShared;
+    }
+
+    /**
+     * @return the canonical instance which is equal to the given value, or the value itself if
+     * it is null or the pool is full
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = mValues.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (mValues.size() >= mMaxSize) {
+            return value;
+        }
+        pooled = mValues.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * @return the number of distinct values in the pool
+     */
+    public int size() {
+        return mValues.size();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pulls the articles which were published since the last sync, and merges them into the
+ * {@link ArticleStore}.
+ * <p>
+ * Every section has a sync watermark in the store: the date up to which all of its articles
+ * were synced. Only the sync sets it, so the articles which the list merges into the store
+ * (which can be much newer) never hide the articles in between. The articles since the watermark
+ * are requested from the oldest to the newest one, so the watermark can be moved up to the newest
+ * article which was loaded even when the delta doesn't fit into {@link #MAX_SYNC_PAGES} pages:
+ * the next sync continues from there. The API only accepts a day as the from-date, so the
+ * articles of that day are requested again, and the store skips those which didn't change.
+ */
+public class SyncEngine {
+
+    /**
+     * Returned by {@link #sync()} when none of the sections could be loaded
+     */
+    public static final int SYNC_FAILED = -1;
+
+    /**
+     * Number of articles requested per page
+     */
+    static final int SYNC_PAGE_SIZE = 50;
+
+    /**
+     * The maximum number of pages requested for every section in a single sync. The first
+     * sync of a section only requests the page of its newest articles.
+     */
+    static final int MAX_SYNC_PAGES = 5;
+
+    private final ArticleStore mStore;
+
+    // URL of the Guardian API, which the search path is added to
+    private final String mBaseUrl;
+
+    // The sections which are synced
+    private final List<String> mSections;
+
+    /**
+     * Constructs a new {@link SyncEngine}
+     *
+     * @param store    into which the articles are merged
+     * @param baseUrl  of the Guardian API, ending with a slash
+     * @param sections which are synced
+     */
+    public SyncEngine(ArticleStore store, String baseUrl, List<String> sections) {
+        mStore = store;
+        mBaseUrl = baseUrl;
+        mSections = sections;
+    }
+
+    /**
+     * Request the new articles of every section and merge them into the store.
+     * This makes network requests, so it must not be called on the main thread.
+     *
+     * @return the number of articles which were added or changed, or {@link #SYNC_FAILED}
+     * if none of the sections could be loaded
+     */
+    public int sync() {
+        List<List<News>> pages = new ArrayList<>();
+
+        // The new watermarks of the sections, which are only stored with their articles
+        Map<String, Long> watermarks = new LinkedHashMap<>();
+        for (String section : mSections) {
+            long syncedUntil = mStore.getSyncedUntilMillis(section);
+            long newestDate = syncSection(section, syncedUntil, pages);
+            if (newestDate > syncedUntil) {
+                watermarks.put(section, newestDate);
+            }
+        }
+
+        if (pages.isEmpty()) {
+            return SYNC_FAILED;
+        }
+        int changed = mStore.merge(MultiSectionFetcher.merge(pages));
+        for (Map.Entry<String, Long> watermark : watermarks.entrySet()) {
+            mStore.setSyncedUntilMillis(watermark.getKey(), watermark.getValue());
+        }
+        return changed;
+    }
+
+    /**
+     * Request the articles of the section which were published since its watermark, and add
+     * their pages to the given list. The pages are requested from the oldest to the newest
+     * article, so the loaded ones follow the watermark without a gap, even if the last page
+     * can't be loaded or the pages run out.
+     *
+     * @param syncedUntil the watermark of the section, or {@link News#NO_DATE} if it was never
+     *                    synced. Then only the page of its newest articles is requested.
+     * @return the published date of the newest article which was loaded, which is the new
+     * watermark of the section, or {@link News#NO_DATE} if none was loaded
+     */
+    private long syncSection(String section, long syncedUntil, List<List<News>> pages) {
+        boolean firstSync = syncedUntil == News.NO_DATE;
+        String fromDate = firstSync ? null : formatFromDate(syncedUntil);
+        int maxPages = firstSync ? 1 : MAX_SYNC_PAGES;
+
+        long newestDate = News.NO_DATE;
+        for (int page = 1; page <= maxPages; page++) {
+            List<News> news = QueryUtils.fetchNewsData(
+                    buildUrl(section, fromDate, !firstSync, page));
+            if (news == null) {
+                break;
+            }
+            pages.add(news);
+            for (News article : news) {
+                newestDate = Math.max(newestDate, article.getmDateMillis());
+            }
+
+            // A page which isn't full is the last one
+            if (news.size() < SYNC_PAGE_SIZE) {
+                break;
+            }
+        }
+        return newestDate;
+    }
+
+    /**
+     * Build the URL of the given page of the articles in the given section, which were
+     * published on or after the given day.
+     *
+     * @param oldestFirst whether the articles are ordered from the oldest to the newest one,
+     *                    instead of from the newest to the oldest one
+     */
+    String buildUrl(String section, @Nullable String fromDate, boolean oldestFirst, int page) {
+        StringBuilder url = new StringBuilder(mBaseUrl).append("search");
+
+        appendQueryParameter(url, "section", section);
+        if (fromDate != null) {
+            appendQueryParameter(url, "from-date", fromDate);
+        }
+        appendQueryParameter(url, "order-by", oldestFirst ? "oldest" : "newest");
+        appendQueryParameter(url, "show-tags", "contributor");
+        appendQueryParameter(url, "show-fields", "thumbnail");
+        appendQueryParameter(url, "page", String.valueOf(page));
+        appendQueryParameter(url, "page-size", String.valueOf(SYNC_PAGE_SIZE));
+        appendQueryParameter(url, "api-key", QueryUtils.getApiKey());
+
+        return url.toString();
+    }
+
+    /**
+     * Append an encoded query parameter to the URL
+     */
+    private static void appendQueryParameter(StringBuilder url, String name, String value) {
+        url.append(url.indexOf("?") < 0 ? '?' : '&').append(name).append('=');
+        try {
+            url.append(URLEncoder.encode(value, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            // Every Java platform is required to support UTF-8
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return the day of the given time in UTC, in the format of the from-date parameter
+     */
+    static String formatFromDate(long dateMillis) {
+        return Instant.ofEpochMilli(dateMillis).atOffset(ZoneOffset.UTC).toLocalDate().toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.newsapp;
+
+/**
+ * Estimates the throughput and the latency of the network from the recent responses.
+ * <p>
+ * Every response adds a sample, and the estimates are moving averages which give the recent
+ * samples the most weight. So they follow the network when it changes (e.g. from Wi-Fi to a
+ * mobile network), while a single odd response doesn't throw them off. The throughput is only
+ * sampled from the bodies which are big enough: a small body arrives so quickly that its
+ * transfer says more about the latency than about the bandwidth.
+ */
+public class ThroughputEstimator {
+
+    /**
+     * The smallest body, in bytes received over the network, which the throughput is sampled from
+     */
+    static final int MIN_THROUGHPUT_SAMPLE_BYTES = 8 * 1024;
+
+    /**
+     * Weight of a new sample in the averages, the rest is the weight of the previous samples
+     */
+    private static final double SAMPLE_WEIGHT = 0.3;
+
+    private static final ThroughputEstimator sInstance = new ThroughputEstimator();
+
+    // The averages, or -1 as long as there is no sample
+    private double mBytesPerSecond = -1;
+    private double mLatencyMillis = -1;
+    private double mBytesPerNews = -1;
+
+    /**
+     * @return the estimator which is shared by the whole process, and sampled by
+     * {@link QueryUtils}
+     */
+    public static ThroughputEstimator getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Add the sample of a response.
+     *
+     * @param receivedBytes bytes of the body received over the network, before decompression
+     * @param downloadNanos time spent waiting for the body
+     * @param latencyNanos  time from the start of the request to the headers of the response
+     * @param newsCount     number of news in the body
+     */
+    public synchronized void addSample(long receivedBytes, long downloadNanos, long latencyNanos,
+                                       int newsCount) {
+        mLatencyMillis = average(mLatencyMillis, latencyNanos / 1e6);
+
+        if (receivedBytes >= MIN_THROUGHPUT_SAMPLE_BYTES && downloadNanos > 0) {
+            mBytesPerSecond = average(mBytesPerSecond, receivedBytes * 1e9 / downloadNanos);
+        }
+        if (receivedBytes > 0 && newsCount > 0) {
+            mBytesPerNews = average(mBytesPerNews, (double) receivedBytes / newsCount);
+        }
+    }
+
+    /**
+     * @return the estimated throughput in bytes per second, or -1 if it isn't known yet
+     */
+    public synchronized long getBytesPerSecond() {
+        return Math.round(mBytesPerSecond);
+    }
+
+    /**
+     * @return the estimated time from the start of a request to its response, in milliseconds,
+     * or -1 if it isn't known yet
+     */
+    public synchronized long getLatencyMillis() {
+        return Math.round(mLatencyMillis);
+    }
+
+    /**
+     * @return the estimated number of bytes a single news takes in a response, received over
+     * the network, or -1 if it isn't known yet
+     */
+    public synchronized long getBytesPerNews() {
+        return Math.round(mBytesPerNews);
+    }
+
+    /**
+     * Forget all of the samples
+     */
+    public synchronized void reset() {
+        mBytesPerSecond = -1;
+        mLatencyMillis = -1;
+        mBytesPerNews = -1;
+    }
+
+    /**
+     * @return the new average, after the given sample was added to the given average
+     */
+    private static double average(double average, double sample) {
+        if (average < 0) {
+            return sample;
+        }
+        return SAMPLE_WEIGHT * sample + (1 - SAMPLE_WEIGHT) * average;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+
+/**
+ * Disk cache for the downloaded thumbnail images, bounded by the total number of bytes.
+ * The images are stored as they were downloaded, and the least recently used ones are deleted
+ * first when the cache grows too big.
+ */
+public class ThumbnailDiskCache extends LruDiskCache {
+
+    /**
+     * Constructs a new {@link ThumbnailDiskCache}
+     *
+     * @param directory in which the images are stored. It is created if it doesn't exist.
+     * @param maxBytes  the maximum total size of the images
+     */
+    public ThumbnailDiskCache(File directory, long maxBytes) {
+        super(directory, maxBytes, ".img");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the sizes of the requests which are chosen for slow and fast networks.
+ */
+public class AdaptiveRequestPolicyTest {
+
+    // A compressed news of the Guardian API takes about this many bytes
+    private static final int BYTES_PER_NEWS = 400;
+
+    private final ThroughputEstimator mEstimator = new ThroughputEstimator();
+    private final AdaptiveRequestPolicy mPolicy = new AdaptiveRequestPolicy(mEstimator);
+
+    /**
+     * Measure a network with the given throughput and latency
+     */
+    private void measure(long bytesPerSecond, long latencyMillis) {
+        long bytes = 100 * BYTES_PER_NEWS;
+        mEstimator.addSample(bytes, bytes * 1_000_000_000L / bytesPerSecond,
+                latencyMillis * 1_000_000L, 100);
+    }
+
+    @Test
+    public void usesTheDefaultsUntilTheNetworkIsMeasured() {
+        assertEquals(AdaptiveRequestPolicy.DEFAULT_SECTION_PAGE_SIZE, mPolicy.getSectionPageSize());
+        assertTrue(mPolicy.shouldRequestExtraFields());
+        assertEquals(AdaptiveRequestPolicy.MIN_PREFETCH_DISTANCE, mPolicy.getPrefetchDistance(40));
+    }
+
+    @Test
+    public void slowNetworkGetsASmallFirstPageWithoutExtras() {
+        // A 2G network: every section receives about 3 KB in the 400 ms left after the latency
+        measure(8 * 1024, 600);
+
+        assertEquals(8 * 1024 * 4 / 10 / BYTES_PER_NEWS, mPolicy.getSectionPageSize());
+        assertFalse(mPolicy.shouldRequestExtraFields());
+
+        // A page of 12 news takes about 1.2 seconds to load, so it is requested 8 rows ahead
+        assertEquals(8, mPolicy.getPrefetchDistance(12));
+    }
+
+    @Test
+    public void fastNetworkGetsBigPages() {
+        // Wi-Fi
+        measure(2 * 1024 * 1024, 50);
+
+        assertEquals(AdaptiveRequestPolicy.MAX_SECTION_PAGE_SIZE, mPolicy.getSectionPageSize());
+        assertTrue(mPolicy.shouldRequestExtraFields());
+        assertEquals(AdaptiveRequestPolicy.MIN_PREFETCH_DISTANCE, mPolicy.getPrefetchDistance(120));
+    }
+
+    @Test
+    public void pageSizeFollowsTheThroughput() {
+        // A 3G network: every section receives 10 KB in the half second left after the latency
+        measure(20 * 1024, 500);
+
+        assertEquals(20 * 1024 / 2 / BYTES_PER_NEWS, mPolicy.getSectionPageSize());
+    }
+
+    @Test
+    public void verySlowNetworkGetsTheSmallestPages() {
+        // A single news of every section arrives in the 200 ms left after the latency
+        measure(2 * 1024, 800);
+
+        assertEquals(AdaptiveRequestPolicy.MIN_SECTION_PAGE_SIZE, mPolicy.getSectionPageSize());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests loading the text of the articles from the content API and reading it again offline,
+ * against a local HTTP server.
+ */
+public class ArticleBodyLoaderTest {
+
+    private static final String ARTICLE_URL =
+            "https://www.theguardian.com/world/2021/mar/19/article-1";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FakeGuardianServer mServer;
+    private ArticleBodyCache mCache;
+    private ArticleBodyLoader mLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mCache = new ArticleBodyCache(mFolder.newFolder("bodies"), 64 * 1024);
+        mLoader = new ArticleBodyLoader(mCache, mServer.baseUrl());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void buildsTheUrlOfTheContentApi() {
+        assertEquals(mServer.baseUrl() + "world/2021/mar/19/article-1"
+                + "?show-fields=bodyText&api-key=test", mLoader.buildContentUrl(ARTICLE_URL));
+        assertNull(mLoader.buildContentUrl("not a URL"));
+    }
+
+    @Test
+    public void readsTheCachedTextOffline() {
+        assertFalse(mLoader.isCached(ARTICLE_URL));
+
+        String body = mLoader.load(ARTICLE_URL, null);
+        assertEquals(FakeGuardianServer.articleBody("world/2021/mar/19/article-1"), body);
+        assertEquals("show-fields=bodyText&api-key=test", mServer.getLastQuery());
+        assertTrue(mLoader.isCached(ARTICLE_URL));
+
+        // Without the server, the text is read from the cache, also by a new loader
+        mServer.close();
+        ArticleBodyLoader offline = new ArticleBodyLoader(mCache, mServer.baseUrl());
+        assertEquals(body, offline.load(ARTICLE_URL, null));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void cancelledLoadIsNotCached() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        assertNull(mLoader.load(ARTICLE_URL, token));
+        assertFalse(mLoader.isCached(ARTICLE_URL));
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void failedLoadReturnsNull() {
+        mServer.close();
+
+        assertNull(mLoader.load(ARTICLE_URL, null));
+        assertFalse(mLoader.isCached(ARTICLE_URL));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the states of the circuit breaker.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+
+        breaker.onFailure(-1);
+        breaker.onFailure(-1);
+        // A success in between starts the count again
+        breaker.onSuccess();
+        breaker.onFailure(-1);
+        breaker.onFailure(-1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure(-1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successfulTrialClosesBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        breaker.onFailure(-1);
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only a single trial request is let through
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensBreakerAgain() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(3, 50);
+        breaker.onFailure(-1);
+        breaker.onFailure(-1);
+        breaker.onFailure(-1);
+
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure(-1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void staysOpenForRetryAfter() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 10);
+        breaker.onFailure(500);
+
+        Thread.sleep(60);
+        assertFalse(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Guardian content API, which serves generated search results.
+ * Faults can be injected into its responses. The requests are handled in parallel.
+ */
+class FakeGuardianServer implements AutoCloseable {
+
+    /**
+     * Publication date of the first article of the timeline
+     */
+    static final Instant TIMELINE_START = Instant.parse("2021-01-01T12:00:00Z");
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    // Status of the last response and the number of requests
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private volatile int mLastStatus;
+
+    // Query of the last request
+    private volatile String mLastQuery;
+
+    // Remote addresses of the clients, one for every connection that was opened
+    private final Set<InetSocketAddress> mConnections = ConcurrentHashMap.newKeySet();
+
+    // Number of bytes of the response bodies which were sent, after compression
+    private final AtomicLong mSentBytes = new AtomicLong();
+
+    // Delay before every response is sent
+    private volatile long mDelayMillis;
+
+    // Pause in the middle of the body of every response, which ends when the server is closed
+    private volatile long mStallMillis;
+    private final CountDownLatch mClosed = new CountDownLatch(1);
+
+    // Bandwidth at which the bodies are sent in bytes per second, 0 for no limit
+    private volatile long mBytesPerSecond;
+
+    // Body and validator of the response which is served
+    private volatile String mBody;
+    private volatile String mETag;
+
+    // Number of articles of the timeline which is served instead of the body, 0 for none
+    private volatile int mTimelineCount;
+
+    // Faults which are injected into the next requests, one per request
+    private final Queue<Fault> mFaults = new ConcurrentLinkedQueue<>();
+
+    // The daily quota which is reported in the headers, -1 for none
+    private volatile long mDailyLimit = -1;
+    private volatile long mDailyRemaining = -1;
+
+    FakeGuardianServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", this::handle);
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+        setResults(10, "v1");
+    }
+
+    /**
+     * Serve the given number of generated results, with the given ETag.
+     */
+    void setResults(int count, String eTag) {
+        mBody = searchResponse(count);
+        mETag = "\"" + eTag + "\"";
+    }
+
+    /**
+     * Serve a timeline of the given number of articles instead of the results, one article per
+     * day from {@link #TIMELINE_START} on. The searches are answered like the API does: only the
+     * articles from the from-date on, in the order of order-by, and one page of page-size of them.
+     */
+    void setTimeline(int count) {
+        mTimelineCount = count;
+    }
+
+    /**
+     * @return the URL of the given article of the timeline
+     */
+    static String timelineUrl(int index) {
+        return "https://www.theguardian.com/world/timeline/article-" + index;
+    }
+
+    /**
+     * @return the publication date of the given article of the timeline
+     */
+    static long timelineDateMillis(int index) {
+        return TIMELINE_START.plus(index, ChronoUnit.DAYS).toEpochMilli();
+    }
+
+    /**
+     * Wait for the given time before sending every response
+     */
+    void setDelayMillis(long delayMillis) {
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * Stop for the given time after sending the first half of the body of every response,
+     * or until the server is closed
+     */
+    void setStallMillis(long stallMillis) {
+        mStallMillis = stallMillis;
+    }
+
+    /**
+     * Send the bodies of the responses at the given bandwidth, like a slow network
+     *
+     * @param bytesPerSecond the bandwidth, or 0 for no limit
+     */
+    void setBytesPerSecond(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Inject the given faults into the next requests, one per request and in order. The requests
+     * after them are answered normally again.
+     */
+    void injectFaults(Fault... faults) {
+        mFaults.addAll(Arrays.asList(faults));
+    }
+
+    /**
+     * Report the given daily quota in the rate limit headers of every response
+     */
+    void setDailyQuota(long limit, long remaining) {
+        mDailyLimit = limit;
+        mDailyRemaining = remaining;
+    }
+
+    /**
+     * @return the URL of the server, which the paths of the API are added to
+     */
+    String baseUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return the URL of the search endpoint
+     */
+    String searchUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/search?show-tags=contributor&api-key=test";
+    }
+
+    /**
+     * @return the URL of the given page of the search endpoint
+     */
+    String pageUrl(int page) {
+        return searchUrl() + "&page=" + page;
+    }
+
+    /**
+     * @return the number of connections that were opened to the server
+     */
+    int getConnectionCount() {
+        return mConnections.size();
+    }
+
+    /**
+     * @return the number of bytes of the response bodies which were sent, after compression
+     */
+    long getSentBytes() {
+        return mSentBytes.get();
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    int getLastStatus() {
+        return mLastStatus;
+    }
+
+    String getLastQuery() {
+        return mLastQuery;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        mRequestCount.incrementAndGet();
+        mConnections.add(exchange.getRemoteAddress());
+        mLastQuery = exchange.getRequestURI().getQuery();
+        sleep(mDelayMillis);
+
+        if (mDailyLimit >= 0) {
+            exchange.getResponseHeaders().set("X-RateLimit-Limit-day", String.valueOf(mDailyLimit));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining-day",
+                    String.valueOf(mDailyRemaining));
+        }
+
+        Fault fault = mFaults.poll();
+        if (fault != null && fault.inject(exchange)) {
+            mLastStatus = fault.mStatus;
+            return;
+        }
+
+        // Every path other than the search is a single article of the content API
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/search")) {
+            byte[] body = contentResponse(path.substring(1)).getBytes(StandardCharsets.UTF_8);
+            mLastStatus = 200;
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+
+        int timelineCount = mTimelineCount;
+        String response = mBody;
+        if (timelineCount > 0) {
+            response = timelineResponse(timelineCount, mLastQuery);
+        } else {
+            exchange.getResponseHeaders().set("ETag", mETag);
+
+            // Answer a conditional GET with 304 when the content didn't change
+            if (mETag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                mLastStatus = 304;
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+        // Compress the body if the client accepts it
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = gzip(body);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        mLastStatus = 200;
+        mSentBytes.addAndGet(body.length);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (mStallMillis > 0) {
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                stall(mStallMillis);
+                out.write(body, body.length / 2, body.length - body.length / 2);
+            } else if (mBytesPerSecond > 0) {
+                writeThrottled(out, body, mBytesPerSecond);
+            } else {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client closed the connection in the meantime
+        }
+    }
+
+    /**
+     * Write the body in small chunks, pausing after every chunk so that the given bandwidth
+     * isn't exceeded
+     */
+    private static void writeThrottled(OutputStream out, byte[] body, long bytesPerSecond)
+            throws IOException {
+        int chunkSize = 1024;
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            sleep(length * 1000L / bytesPerSecond);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stall(long millis) {
+        try {
+            mClosed.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a search response in the format of the Guardian API with the given number of results
+     */
+    static String searchResponse(int count) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"response\":{\"status\":\"ok\",\"total\":").append(count)
+                .append(",\"results\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"world/2021/mar/19/article-").append(i).append('"')
+                    .append(",\"type\":\"article\"")
+                    .append(",\"sectionName\":\"Section ").append(i % 5).append('"')
+                    .append(",\"webPublicationDate\":\"2021-03-")
+                    .append(String.format("%02d", 1 + i % 28)).append("T17:11:03Z\"")
+                    .append(",\"webTitle\":\"Article number ").append(i).append('"')
+                    .append(",\"webUrl\":\"https://www.theguardian.com/world/2021/mar/19/article-")
+                    .append(i).append('"');
+            if (i % 4 != 0) {
+                json.append(",\"fields\":{\"thumbnail\":\"https://media.guim.co.uk/")
+                        .append(i).append("/500.jpg\"}");
+            }
+            json.append(",\"tags\":[");
+            if (i % 3 != 0) {
+                json.append("{\"id\":\"profile/author").append(i % 7)
+                        .append("\",\"type\":\"contributor\",\"webTitle\":\"Author ")
+                        .append(i % 7).append("\"}");
+            }
+            json.append("]}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * @return a search response with the page of the timeline of the given number of articles
+     * which the query asks for
+     */
+    private static String timelineResponse(int count, String query)
+            throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            parameters.put(parameter.substring(0, equals),
+                    URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+        }
+
+        // The first article which was published on or after the from-date
+        int first = 0;
+        String fromDate = parameters.get("from-date");
+        if (fromDate != null) {
+            long fromMillis = LocalDate.parse(fromDate).atStartOfDay(ZoneOffset.UTC)
+                    .toInstant().toEpochMilli();
+            while (first < count && timelineDateMillis(first) < fromMillis) {
+                first++;
+            }
+        }
+        boolean oldestFirst = "oldest".equals(parameters.get("order-by"));
+        int pageSize = Integer.parseInt(parameters.getOrDefault("page-size", "10"));
+        int page = Integer.parseInt(parameters.getOrDefault("page", "1"));
+
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"results\":[");
+        int start = (page - 1) * pageSize;
+        for (int i = start; i < Math.min(start + pageSize, count - first); i++) {
+            int index = oldestFirst ? first + i : count - 1 - i;
+            if (i > start) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"world/timeline/article-").append(index).append('"')
+                    .append(",\"type\":\"article\",\"sectionName\":\"World news\"")
+                    .append(",\"webPublicationDate\":\"")
+                    .append(Instant.ofEpochMilli(timelineDateMillis(index))).append('"')
+                    .append(",\"webTitle\":\"Article number ").append(index).append('"')
+                    .append(",\"webUrl\":\"").append(timelineUrl(index)).append("\"}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    /**
+     * @return a response of the content API in the format of the Guardian API, for the article
+     * with the given id
+     */
+    static String contentResponse(String id) {
+        return "{\"response\":{\"status\":\"ok\",\"content\":{\"id\":\"" + id + "\""
+                + ",\"type\":\"article\",\"webTitle\":\"Article " + id + "\""
+                + ",\"fields\":{\"bodyText\":\"" + articleBody(id) + "\"}}}}";
+    }
+
+    /**
+     * @return the text of the article with the given id
+     */
+    static String articleBody(String id) {
+        return "The text of the article " + id + ".";
+    }
+
+    @Override
+    public void close() {
+        mClosed.countDown();
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * A fault which is injected into a single request
+     */
+    static class Fault {
+
+        // Status of the response, 0 if the request is answered normally
+        private final int mStatus;
+
+        // Value of the Retry-After header of the response, or null
+        private final String mRetryAfter;
+
+        // Delay before the request is answered
+        private final long mDelayMillis;
+
+        // Whether the connection is closed without any response
+        private final boolean mDisconnect;
+
+        private Fault(int status, String retryAfter, long delayMillis, boolean disconnect) {
+            mStatus = status;
+            mRetryAfter = retryAfter;
+            mDelayMillis = delayMillis;
+            mDisconnect = disconnect;
+        }
+
+        /**
+         * @return a fault which answers with the given status and Retry-After header (or none)
+         */
+        static Fault status(int status, String retryAfter) {
+            return new Fault(status, retryAfter, 0, false);
+        }
+
+        /**
+         * @return a fault which answers normally, but only after the given delay
+         */
+        static Fault delay(long delayMillis) {
+            return new Fault(0, null, delayMillis, false);
+        }
+
+        /**
+         * @return a fault which closes the connection without a response
+         */
+        static Fault disconnect() {
+            return new Fault(0, null, 0, true);
+        }
+
+        /**
+         * @return whether the request was answered (or dropped) by the fault
+         */
+        private boolean inject(HttpExchange exchange) throws IOException {
+            sleep(mDelayMillis);
+            if (mDisconnect) {
+                exchange.close();
+                return true;
+            }
+            if (mStatus == 0) {
+                return false;
+            }
+
+            if (mRetryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", mRetryAfter);
+            }
+            byte[] body = "{\"message\":\"Injected fault\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(mStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return true;
+        }
+    }
+}
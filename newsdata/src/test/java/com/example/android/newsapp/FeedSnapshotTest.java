@@ -0,0 +1,161 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the snapshots of the feed are restored as they were written, and that corrupt
+ * snapshots are ignored.
+ */
+public class FeedSnapshotTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private List<News> mNews;
+    private NewsPager mPager;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(mFolder.getRoot(), "feed.snapshot");
+
+        mNews = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Every third news has no author and no date, and every other news has a thumbnail
+            boolean hasAuthor = i % 3 != 0;
+            mNews.add(new News("Article number " + i, "World news",
+                    hasAuthor ? "Author " + i : null,
+                    hasAuthor ? 1_600_000_000_000L + i : News.NO_DATE,
+                    "https://www.theguardian.com/world/article-" + i,
+                    i % 2 == 0 ? "https://media.guim.co.uk/" + i + "/500.jpg" : null));
+        }
+
+        // Pages 2-4 are in the window, and page 4 is the last page of the second section
+        mPager = new NewsPager(5, 2, 3);
+        mPager.reset(1, 10);
+        mPager.appendPage(10);
+        mPager.appendPage(10);
+        mPager.onSectionLoaded(0, 4, 5);
+        mPager.onSectionLoaded(1, 4, 0);
+        mPager.appendPage(5);
+    }
+
+    @Test
+    public void restoresWrittenSnapshot() throws Exception {
+        new FeedSnapshot(mNews, mPager, 12, -40, 1_234L).write(mFile);
+
+        FeedSnapshot snapshot = FeedSnapshot.read(mFile);
+        assertNotNull(snapshot);
+        assertEquals(mNews.size(), snapshot.getNews().size());
+        for (int i = 0; i < mNews.size(); i++) {
+            News expected = mNews.get(i);
+            News actual = snapshot.getNews().get(i);
+            assertEquals(expected.getmTitle(), actual.getmTitle());
+            assertEquals(expected.getmSectionName(), actual.getmSectionName());
+            assertEquals(expected.hasAuthor(), actual.hasAuthor());
+            assertEquals(expected.getmAuthor(), actual.getmAuthor());
+            assertEquals(expected.hasDate(), actual.hasDate());
+            assertEquals(expected.getmDateMillis(), actual.getmDateMillis());
+            assertEquals(expected.getmURL(), actual.getmURL());
+            assertEquals(expected.getmThumbnailUrl(), actual.getmThumbnailUrl());
+        }
+
+        assertEquals(12, snapshot.getScrollPosition());
+        assertEquals(-40, snapshot.getScrollOffset());
+        assertEquals(1_234L, snapshot.getSavedAtMillis());
+
+        // The news without a date were written without one, and are read back without one
+        assertFalse(snapshot.getNews().get(0).hasDate());
+        assertTrue(snapshot.getNews().get(1).hasDate());
+
+        NewsPager pager = snapshot.toPager(3);
+        assertEquals(5, pager.getSectionPageSize());
+        assertEquals(2, pager.getSectionCount());
+        assertEquals(2, pager.getFirstPage());
+        assertArrayEquals(new int[]{10, 10, 5}, pager.getPageCounts());
+        assertEquals(1, pager.getPreviousPage());
+        assertEquals(5, pager.getNextPage());
+        assertFalse(pager.hasSectionPage(1, 5));
+        assertTrue(pager.hasSectionPage(0, 5));
+    }
+
+    @Test
+    public void replacesPreviousSnapshot() throws Exception {
+        new FeedSnapshot(mNews, mPager, 12, 0, 1L).write(mFile);
+
+        NewsPager pager = new NewsPager(10, 3);
+        pager.reset(1, 3);
+        new FeedSnapshot(mNews.subList(0, 3), pager, 0, 0, 2L).write(mFile);
+
+        FeedSnapshot snapshot = FeedSnapshot.read(mFile);
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.getNews().size());
+        assertEquals(2L, snapshot.getSavedAtMillis());
+
+        // Only the snapshot itself is left in the folder
+        assertArrayEquals(new String[]{"feed.snapshot"}, mFolder.getRoot().list());
+    }
+
+    @Test
+    public void missingSnapshotIsNull() {
+        assertNull(FeedSnapshot.read(mFile));
+    }
+
+    @Test
+    public void corruptSnapshotIsIgnored() throws Exception {
+        new FeedSnapshot(mNews, mPager, 12, 0, 1L).write(mFile);
+
+        // Flip a byte in the middle of the news
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            long position = file.length() / 2;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        assertNull(FeedSnapshot.read(mFile));
+    }
+
+    @Test
+    public void truncatedSnapshotIsIgnored() throws Exception {
+        new FeedSnapshot(mNews, mPager, 12, 0, 1L).write(mFile);
+        byte[] data = Files.readAllBytes(mFile.toPath());
+
+        // As if the process was killed while writing it, without the temporary file
+        for (int length : new int[]{0, FeedSnapshot.HEADER_BYTES - 1, data.length - 1}) {
+            Files.write(mFile.toPath(), Arrays.copyOf(data, length));
+            assertNull("Length " + length, FeedSnapshot.read(mFile));
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherVersionIsIgnored() throws Exception {
+        new FeedSnapshot(mNews, mPager, 12, 0, 1L).write(mFile);
+        byte[] data = Files.readAllBytes(mFile.toPath());
+        ByteBuffer.wrap(data).putInt(4, FeedSnapshot.VERSION + 1);
+        Files.write(mFile.toPath(), data);
+
+        assertNull(FeedSnapshot.read(mFile));
+    }
+
+    @Test
+    public void otherFileIsIgnored() throws Exception {
+        Files.write(mFile.toPath(), "{\"response\":{\"results\":[]}}".getBytes("UTF-8"));
+
+        assertNull(FeedSnapshot.read(mFile));
+    }
+}
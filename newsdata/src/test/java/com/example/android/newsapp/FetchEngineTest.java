@@ -0,0 +1,256 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the retries, the hedged requests and the circuit breaker against a local HTTP server
+ * which injects faults.
+ */
+public class FetchEngineTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FakeGuardianServer mServer;
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mUrl = new URL(mServer.searchUrl());
+    }
+
+    @After
+    public void tearDown() {
+        QueryUtils.setHttpClient(new NewsHttpClient());
+        mServer.close();
+    }
+
+    /**
+     * @return an engine with short waits between the retries, which never hedges
+     */
+    private static FetchEngine newEngine(int maxAttempts, CircuitBreaker breaker) {
+        return new FetchEngine(new NewsHttpClient(),
+                new RetryPolicy(maxAttempts, 20, 2000, new Random(1)), breaker,
+                new RequestScheduler(1000, 1000), 0);
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(503, null),
+                FakeGuardianServer.Fault.status(500, null));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(200, response.getCode());
+        }
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void retriesDroppedConnections() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.disconnect());
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(200, response.getCode());
+        }
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void returnsLastErrorWhenAttemptsRunOut() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(500, null),
+                FakeGuardianServer.Fault.status(502, null),
+                FakeGuardianServer.Fault.status(503, null));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(503, response.getCode());
+        }
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(401, null));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(401, response.getCode());
+        }
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void waitsForRetryAfter() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(429, "1"));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        long start = System.nanoTime();
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(200, response.getCode());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // The backoff alone would only wait 20 ms
+        assertTrue("Retried after " + elapsedMillis + " ms", elapsedMillis >= 1000);
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void givesUpWhenRetryAfterIsTooLong() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(429, "120"));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(429, response.getCode());
+        }
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void cancelStopsWaitingForRetry() throws Exception {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(503, "2"));
+
+        FetchEngine engine = newEngine(3, new CircuitBreaker());
+        CancellationToken token = new CancellationToken();
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            token.cancel();
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            engine.get(mUrl, null, token).close();
+            fail("The request wasn't cancelled");
+        } catch (InterruptedIOException e) {
+            // Expected
+        }
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1500);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void hedgesSlowRequest() throws Exception {
+        FetchEngine engine = new FetchEngine(new NewsHttpClient(),
+                new RetryPolicy(1, 20, 2000, new Random(1)), new CircuitBreaker(),
+                new RequestScheduler(1000, 1000), FetchEngine.DEFAULT_HEDGE_PERCENTILE);
+
+        // Measure the usual latency first. Nothing is hedged until then.
+        for (int i = 0; i < FetchEngine.MIN_HEDGE_SAMPLES; i++) {
+            engine.get(mUrl, null, null).close();
+        }
+        assertTrue(engine.getHedgeDelayNanos() > 0);
+
+        // The first request gets stuck, the hedged one answers right away
+        mServer.injectFaults(FakeGuardianServer.Fault.delay(3000));
+        long start = System.nanoTime();
+        try (NewsHttpClient.Response response = engine.get(mUrl, null, null)) {
+            assertEquals(200, response.getCode());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("Answered after " + elapsedMillis + " ms", elapsedMillis < 1500);
+        assertEquals(FetchEngine.MIN_HEDGE_SAMPLES + 2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void cancellingAHedgedRequestAbortsEveryRequest() throws Exception {
+        // Counts the requests which got a response or an error
+        CountDownLatch finished = new CountDownLatch(FetchEngine.MIN_HEDGE_SAMPLES + 2);
+        NewsHttpClient client = new NewsHttpClient() {
+            @Override
+            public Response get(URL url, @Nullable Map<String, String> headers,
+                                @Nullable CancellationToken token) throws IOException {
+                try {
+                    return super.get(url, headers, token);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+        FetchEngine engine = new FetchEngine(client,
+                new RetryPolicy(1, 20, 2000, new Random(1)), new CircuitBreaker(),
+                new RequestScheduler(1000, 1000), FetchEngine.DEFAULT_HEDGE_PERCENTILE);
+        for (int i = 0; i < FetchEngine.MIN_HEDGE_SAMPLES; i++) {
+            engine.get(mUrl, null, null).close();
+        }
+
+        // Both requests get stuck until the load is cancelled
+        mServer.injectFaults(FakeGuardianServer.Fault.delay(5000),
+                FakeGuardianServer.Fault.delay(5000));
+        CancellationToken token = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            while (mServer.getRequestCount() < FetchEngine.MIN_HEDGE_SAMPLES + 2) {
+                Thread.yield();
+            }
+            token.cancel();
+        });
+        canceller.start();
+        try {
+            engine.get(mUrl, null, token).close();
+            fail("The cancelled request returned a response");
+        } catch (InterruptedIOException expected) {
+            // The load stopped
+        }
+
+        // Both requests were aborted, well before the server answers
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertEquals(FetchEngine.MIN_HEDGE_SAMPLES + 2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void openCircuitServesCachedNews() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+        QueryUtils.setFetchEngine(newEngine(1, breaker));
+        NewsDiskCache cache = new NewsDiskCache(mFolder.newFolder("news"));
+
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl(), cache, null);
+        assertEquals(10, news.size());
+
+        // The API starts failing, so the cached news are shown instead
+        mServer.setResults(20, "v2");
+        mServer.injectFaults(FakeGuardianServer.Fault.status(500, null),
+                FakeGuardianServer.Fault.status(500, null));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(10, QueryUtils.fetchNewsData(mServer.searchUrl(), cache, null).size());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // While the breaker is open, the API isn't even asked
+        int requests = mServer.getRequestCount();
+        assertEquals(10, QueryUtils.fetchNewsData(mServer.searchUrl(), cache, null).size());
+        assertEquals(requests, mServer.getRequestCount());
+    }
+
+    @Test(expected = CircuitBreaker.OpenException.class)
+    public void openCircuitThrows() throws IOException {
+        mServer.injectFaults(FakeGuardianServer.Fault.status(500, null));
+
+        FetchEngine engine = newEngine(1, new CircuitBreaker(1, 60_000));
+        engine.get(mUrl, null, null).close();
+        engine.get(mUrl, null, null).close();
+    }
+}
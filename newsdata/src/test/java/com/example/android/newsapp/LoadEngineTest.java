@@ -0,0 +1,235 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the order, the cancellation and the pre-emption of the loads.
+ */
+public class LoadEngineTest {
+
+    // A single thread, and the results are delivered on the thread of the load
+    private final LoadEngine mEngine = new LoadEngine(1, Runnable::run);
+
+    private final List<String> mResults = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        mEngine.shutdown();
+    }
+
+    @Test
+    public void runsMoreUrgentLoadsFirst() throws Exception {
+        CountDownLatch release = blockTheThread();
+        CountDownLatch done = new CountDownLatch(4);
+        submit(LoadEngine.Priority.BACKGROUND, "background", done);
+        submit(LoadEngine.Priority.PREFETCH, "prefetch 1", done);
+        submit(LoadEngine.Priority.VISIBLE, "visible", done);
+        submit(LoadEngine.Priority.PREFETCH, "prefetch 2", done);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("blocker", "visible", "prefetch 1", "prefetch 2", "background"),
+                mResults);
+    }
+
+    @Test
+    public void cancelledLoadIsNeverDelivered() throws Exception {
+        CountDownLatch release = blockTheThread();
+        CountDownLatch done = new CountDownLatch(1);
+        LoadEngine.Handle cancelled = submit(LoadEngine.Priority.VISIBLE, "cancelled", null);
+        submit(LoadEngine.Priority.PREFETCH, "kept", done);
+
+        cancelled.cancel();
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(cancelled.isCancelled());
+        assertEquals(Arrays.asList("blocker", "kept"), mResults);
+    }
+
+    @Test
+    public void visibleLoadPreemptsPrefetch() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        // The prefetch runs until it is pre-empted the first time, and finishes the second time
+        LoadEngine.PreemptibleJob<String> prefetch = token -> {
+            if (attempts.incrementAndGet() == 1) {
+                started.countDown();
+                CountDownLatch cancelled = new CountDownLatch(1);
+                token.setOnCancelListener(cancelled::countDown);
+                await(cancelled);
+                return "partial prefetch";
+            }
+            return "prefetch";
+        };
+        mEngine.submit(LoadEngine.Priority.PREFETCH, prefetch, result -> {
+            mResults.add(result);
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        submit(LoadEngine.Priority.VISIBLE, "visible", done);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("visible", "prefetch"), mResults);
+        assertEquals(2, attempts.get());
+        assertEquals(1, mEngine.getPreemptedCount());
+    }
+
+    @Test
+    public void preemptedLoadIsCancelledOutsideOfTheLock() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicBoolean submittedWhileCancelling = new AtomicBoolean();
+
+        // Aborting the requests of a load may block, so another thread has to be able to use
+        // the engine meanwhile
+        LoadEngine.PreemptibleJob<String> prefetch = token -> {
+            token.setOnCancelListener(() -> {
+                Thread other = new Thread(() ->
+                        submit(LoadEngine.Priority.BACKGROUND, "background", null));
+                other.start();
+                try {
+                    other.join(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                submittedWhileCancelling.set(!other.isAlive());
+                cancelled.countDown();
+            });
+            started.countDown();
+            await(cancelled);
+            return "prefetch";
+        };
+        mEngine.submit(LoadEngine.Priority.PREFETCH, prefetch, mResults::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        submit(LoadEngine.Priority.VISIBLE, "visible", null);
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        assertTrue(submittedWhileCancelling.get());
+    }
+
+    @Test
+    public void onlyPreemptibleLoadsArePreempted() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        // A load which ignores its token, like a write, runs once until it finishes
+        mEngine.submit(LoadEngine.Priority.BACKGROUND, token -> {
+            attempts.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "write";
+        }, result -> {
+            mResults.add(result);
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        submit(LoadEngine.Priority.VISIBLE, "visible", done);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("write", "visible"), mResults);
+        assertEquals(1, attempts.get());
+        assertEquals(0, mEngine.getPreemptedCount());
+    }
+
+    @Test
+    public void dropsPrefetchesWhenTooManyAreWaiting() throws Exception {
+        CountDownLatch release = blockTheThread();
+        for (int i = 0; i < LoadEngine.MAX_WAITING_LOADS; i++) {
+            assertFalse(submit(LoadEngine.Priority.PREFETCH, "prefetch " + i, null).isCancelled());
+        }
+
+        assertTrue(submit(LoadEngine.Priority.PREFETCH, "dropped", null).isCancelled());
+        assertFalse(submit(LoadEngine.Priority.VISIBLE, "visible", null).isCancelled());
+        assertEquals(1, mEngine.getDroppedCount());
+        release.countDown();
+    }
+
+    @Test
+    public void cancellingAbortsTheRequest() throws Exception {
+        try (FakeGuardianServer server = new FakeGuardianServer()) {
+            // The server waits before the headers. A read of the body which is blocked on the
+            // network can't be aborted on the HttpURLConnection of the JVM (only on the one of
+            // Android), since closing the body waits for the read.
+            server.setResults(2000, "v1");
+            server.setDelayMillis(30_000);
+
+            CountDownLatch finished = new CountDownLatch(1);
+            List<List<News>> delivered = new ArrayList<>();
+            LoadEngine.Handle handle = mEngine.submit(LoadEngine.Priority.VISIBLE, token -> {
+                try {
+                    return QueryUtils.fetchNewsData(server.pageUrl(99), null, null, null, token);
+                } finally {
+                    finished.countDown();
+                }
+            }, delivered::add);
+
+            // Wait until the client is stuck waiting for the response
+            while (server.getRequestCount() == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertEquals(1, finished.getCount());
+
+            long start = System.nanoTime();
+            handle.cancel();
+            assertTrue(finished.await(2, TimeUnit.SECONDS));
+
+            // Well before the read timeout
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+            assertTrue(delivered.isEmpty());
+        }
+    }
+
+    /**
+     * Occupy the thread of the engine until the returned latch is released
+     */
+    private CountDownLatch blockTheThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mEngine.submit(LoadEngine.Priority.VISIBLE, token -> {
+            started.countDown();
+            await(release);
+            return "blocker";
+        }, mResults::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private LoadEngine.Handle submit(LoadEngine.Priority priority, String name,
+                                     CountDownLatch done) {
+        return mEngine.submit(priority, token -> name, result -> {
+            mResults.add(result);
+            if (done != null) {
+                done.countDown();
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
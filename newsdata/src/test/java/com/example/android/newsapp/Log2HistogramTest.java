@@ -0,0 +1,100 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class Log2HistogramTest {
+
+    private final Log2Histogram mHistogram = new Log2Histogram();
+
+    @Test
+    public void bucketsArePowersOfTwo() {
+        assertEquals(0, Log2Histogram.bucketOf(0));
+        assertEquals(1, Log2Histogram.bucketOf(1));
+        assertEquals(2, Log2Histogram.bucketOf(2));
+        assertEquals(2, Log2Histogram.bucketOf(3));
+        assertEquals(3, Log2Histogram.bucketOf(4));
+        assertEquals(10, Log2Histogram.bucketOf(1023));
+        assertEquals(11, Log2Histogram.bucketOf(1024));
+        assertEquals(63, Log2Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void summarizesValues() {
+        for (int i = 1; i <= 100; i++) {
+            mHistogram.record(i);
+        }
+        mHistogram.record(-5);
+
+        Log2Histogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5050, snapshot.getSum());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(1, snapshot.getBucketCount(0));
+
+        // The 50th value is 49, in the bucket from 32 up to 63
+        assertEquals(63, snapshot.getPercentile(50));
+        // The largest values are in the bucket from 64 up to 127, but none is above 100
+        assertEquals(100, snapshot.getPercentile(99));
+        assertEquals(0, new Log2Histogram().snapshot().getPercentile(50));
+    }
+
+    @Test
+    public void resetForgetsValues() {
+        mHistogram.record(42);
+        mHistogram.reset();
+
+        Log2Histogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void recordsFromSeveralThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    mHistogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Log2Histogram.Snapshot snapshot = mHistogram.snapshot();
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(9_999, snapshot.getMax());
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        NewsMetrics metrics = new NewsMetrics();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up, so the code is compiled, then measure
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(NewsMetrics.Metric.BIND, i);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(NewsMetrics.Metric.BIND, i);
+            mHistogram.record(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for the few bytes the measurement itself might allocate
+        assertTrue("Recording allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
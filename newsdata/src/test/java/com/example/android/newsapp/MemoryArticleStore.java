@@ -0,0 +1,88 @@
+package com.example.android.newsapp;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link ArticleStore} which only keeps the articles in memory, for the tests
+ */
+class MemoryArticleStore implements ArticleStore {
+
+    private final Map<String, News> mArticles = new LinkedHashMap<>();
+    private final Map<String, Long> mSyncedUntil = new HashMap<>();
+
+    @Override
+    public synchronized List<News> getNewest(int limit) {
+        return getPage(null, null, limit);
+    }
+
+    @Override
+    public synchronized List<News> getPage(@Nullable String sectionName, @Nullable News after,
+                                           int limit) {
+        List<News> sorted = new ArrayList<>(mArticles.values());
+        Collections.sort(sorted, MultiSectionFetcher.NEWEST_FIRST);
+
+        List<News> page = new ArrayList<>();
+        boolean started = after == null;
+        for (News article : sorted) {
+            if (!started) {
+                started = article.getmURL().equals(after.getmURL());
+                continue;
+            }
+            if (sectionName == null || sectionName.equals(article.getmSectionName())) {
+                page.add(article);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized long getNewestDateMillis() {
+        long newest = News.NO_DATE;
+        for (News article : mArticles.values()) {
+            newest = Math.max(newest, article.getmDateMillis());
+        }
+        return newest;
+    }
+
+    @Override
+    public synchronized int merge(List<News> news) {
+        int changed = 0;
+        for (News article : news) {
+            News stored = mArticles.get(article.getmURL());
+            if (stored == null || !stored.getmTitle().equals(article.getmTitle())
+                    || !Objects.equals(stored.getmAuthor(), article.getmAuthor())
+                    || stored.getmDateMillis() != article.getmDateMillis()) {
+                mArticles.put(article.getmURL(), article);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized long getSyncedUntilMillis(String section) {
+        Long syncedUntil = mSyncedUntil.get(section);
+        return syncedUntil != null ? syncedUntil : News.NO_DATE;
+    }
+
+    @Override
+    public synchronized void setSyncedUntilMillis(String section, long dateMillis) {
+        mSyncedUntil.put(section, dateMillis);
+    }
+
+    @Override
+    public synchronized int size() {
+        return mArticles.size();
+    }
+}
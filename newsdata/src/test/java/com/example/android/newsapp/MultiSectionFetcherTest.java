@@ -0,0 +1,160 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MultiSectionFetcherTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static News news(String url, long dateMillis) {
+        return new News("Title " + url, "Section", null, dateMillis, url);
+    }
+
+    @Test
+    public void mergesSectionsByDateWithoutDuplicates() {
+        Map<String, List<News>> sections = new HashMap<>();
+        sections.put("world", Arrays.asList(news("a", 500), news("b", 300), news("shared", 100)));
+        sections.put("sport", Arrays.asList(news("c", 400), news("shared", 100),
+                news("d", News.NO_DATE)));
+
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(mExecutor, 5000);
+        List<String> progress = new ArrayList<>();
+        MultiSectionFetcher.Result result = fetcher.fetch(Arrays.asList("world", "sport"),
+                (url, token) -> sections.get(url),
+                news -> progress.add(String.valueOf(news.size())));
+        List<News> merged = result.getNews();
+
+        List<String> urls = new ArrayList<>();
+        for (News item : merged) {
+            urls.add(item.getmURL());
+        }
+        assertEquals(Arrays.asList("a", "c", "b", "shared", "d"), urls);
+        assertEquals(2, progress.size());
+    }
+
+    /**
+     * Block like a network read, until the token of the section is cancelled
+     *
+     * @return false if the token wasn't cancelled within the time
+     */
+    private static boolean blockUntilCancelled(CancellationToken token, long timeoutMillis) {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        token.setOnCancelListener(cancelled::countDown);
+        try {
+            return cancelled.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void cancelsSectionsWhichMissTheDeadline() throws Exception {
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(mExecutor, 300);
+        CountDownLatch aborted = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        MultiSectionFetcher.Result result = fetcher.fetch(Arrays.asList("fast", "slow"),
+                (url, token) -> {
+                    if (url.equals("slow") && blockUntilCancelled(token, 5000)) {
+                        aborted.countDown();
+                        return Arrays.asList(news("aborted", 2));
+                    }
+                    return Arrays.asList(news(url, 1));
+                }, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(1, result.getNews().size());
+        assertEquals("fast", result.getNews().get(0).getmURL());
+        assertEquals(1, result.getSectionCount(0));
+        assertEquals(-1, result.getSectionCount(1));
+        assertTrue(elapsedMillis < 2000);
+
+        // The request of the slow section was aborted, so its thread is free again
+        assertTrue(aborted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void deadlineStartsWithTheRequest() {
+        // Two threads for four sections, so the last two wait for the first two
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(mExecutor, 400);
+
+        MultiSectionFetcher.Result result = fetcher.fetch(Arrays.asList("a", "b", "c", "d"),
+                (url, token) -> {
+                    if (blockUntilCancelled(token, 250)) {
+                        return null;
+                    }
+                    return Arrays.asList(news(url, 1));
+                }, null);
+
+        // Every request took 250 ms, which is within its own deadline
+        assertEquals(4, result.getNews().size());
+    }
+
+    @Test
+    public void cancelCancelsEverySection() throws Exception {
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(mExecutor, 5000);
+        CancellationToken token = new CancellationToken(LoadEngine.Priority.PREFETCH);
+        List<LoadEngine.Priority> priorities = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch aborted = new CountDownLatch(2);
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            token.cancel();
+        }).start();
+
+        long start = System.nanoTime();
+        MultiSectionFetcher.Result result = fetcher.fetch(Arrays.asList("a", "b"),
+                (url, sectionToken) -> {
+                    priorities.add(sectionToken.getPriority());
+                    if (blockUntilCancelled(sectionToken, 5000)) {
+                        aborted.countDown();
+                    }
+                    return Arrays.asList(news(url, 1));
+                }, null, token);
+
+        assertNull(result);
+        assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+        assertTrue(aborted.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(LoadEngine.Priority.PREFETCH, LoadEngine.Priority.PREFETCH),
+                priorities);
+    }
+
+    @Test
+    public void leavesOutFailedSections() {
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(mExecutor, 5000);
+
+        MultiSectionFetcher.Result result = fetcher.fetch(Arrays.asList("ok", "failing", "empty"),
+                (url, token) -> {
+                    if (url.equals("failing")) {
+                        throw new IllegalStateException("failed");
+                    }
+                    return url.equals("ok") ? Arrays.asList(news(url, 1)) : null;
+                }, null);
+        assertEquals(1, result.getNews().size());
+
+        // If none of the sections could be loaded, there is no result at all
+        assertNull(fetcher.fetch(Arrays.asList("empty"), (url, token) -> null, null));
+    }
+}
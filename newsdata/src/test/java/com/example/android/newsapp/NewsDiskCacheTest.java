@@ -0,0 +1,93 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the revalidation of the cached responses against a local HTTP server.
+ */
+public class NewsDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FakeGuardianServer mServer;
+    private NewsDiskCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mCache = new NewsDiskCache(mFolder.newFolder("news"));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void storesParsedResponse() {
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+
+        NewsDiskCache.Entry entry = mCache.get(mServer.searchUrl());
+        assertNotNull(entry);
+        assertEquals("\"v1\"", entry.getETag());
+        assertEquals(news.size(), entry.getNews().size());
+        for (int i = 0; i < news.size(); i++) {
+            News expected = news.get(i);
+            News actual = entry.getNews().get(i);
+            assertEquals(expected.getmTitle(), actual.getmTitle());
+            assertEquals(expected.getmSectionName(), actual.getmSectionName());
+            assertEquals(expected.hasAuthor(), actual.hasAuthor());
+            assertEquals(expected.getmAuthor(), actual.getmAuthor());
+            assertEquals(expected.getmDateMillis(), actual.getmDateMillis());
+            assertEquals(expected.getmURL(), actual.getmURL());
+            assertEquals(expected.getmThumbnailUrl(), actual.getmThumbnailUrl());
+        }
+
+        // Some of the generated results have a thumbnail, the others don't
+        assertNull(news.get(0).getmThumbnailUrl());
+        assertEquals("https://media.guim.co.uk/1/500.jpg", news.get(1).getmThumbnailUrl());
+    }
+
+    @Test
+    public void notModifiedResponseReturnsCachedNews() {
+        QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+        assertEquals(200, mServer.getLastStatus());
+
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+        assertEquals(304, mServer.getLastStatus());
+        assertEquals(10, news.size());
+        assertEquals("Article number 0", news.get(0).getmTitle());
+    }
+
+    @Test
+    public void changedResponseReplacesCachedNews() {
+        QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+
+        mServer.setResults(25, "v2");
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+        assertEquals(200, mServer.getLastStatus());
+        assertEquals(25, news.size());
+        assertEquals("\"v2\"", mCache.get(mServer.searchUrl()).getETag());
+        assertEquals(25, mCache.get(mServer.searchUrl()).getNews().size());
+    }
+
+    @Test
+    public void failedRequestFallsBackToCachedNews() {
+        QueryUtils.fetchNewsData(mServer.searchUrl(), mCache, null);
+        String url = mServer.searchUrl();
+        mServer.close();
+
+        List<News> news = QueryUtils.fetchNewsData(url, mCache, null);
+        assertNotNull(news);
+        assertEquals(10, news.size());
+    }
+}
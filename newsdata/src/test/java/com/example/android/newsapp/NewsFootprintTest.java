@@ -0,0 +1,211 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a large number of cached news share their repeated values, and retain fewer bytes
+ * than before they were made compact.
+ */
+public class NewsFootprintTest {
+
+    private static final int NEWS_COUNT = 10000;
+    private static final int SECTION_COUNT = 20;
+    private static final int AUTHOR_COUNT = 300;
+    private static final int DAY_COUNT = 28;
+
+    /**
+     * The representation of a news before it was made compact: five separate strings (with
+     * sentinel values for the unknown author and date) and two booleans.
+     */
+    private static class LegacyNews {
+        final String mTitle;
+        final String mSectionName;
+        final String mAuthor;
+        final boolean authorQ;
+        final String mDate;
+        final boolean timeQ;
+        final String mURL;
+
+        LegacyNews(String title, String sectionName, String author, String date, String URL) {
+            mTitle = title;
+            mSectionName = sectionName;
+            mAuthor = author;
+            authorQ = !author.equals("no_author");
+            mDate = date;
+            timeQ = !date.equals("no_date");
+            mURL = URL;
+        }
+    }
+
+    // The values are built with new instances every time, just like the parser does
+    private static String title(int i) {
+        return new StringBuilder("Article number ").append(i)
+                .append(" about something that happened today").toString();
+    }
+
+    private static String section(int i) {
+        return new StringBuilder("Section ").append(i % SECTION_COUNT).toString();
+    }
+
+    private static String author(int i) {
+        return new StringBuilder("Author Name ").append(i % AUTHOR_COUNT).toString();
+    }
+
+    private static String date(int i) {
+        return new StringBuilder("2021-03-").append(10 + i % DAY_COUNT / 3)
+                .append("T17:11:03Z").toString();
+    }
+
+    private static String url(int i) {
+        return new StringBuilder("https://www.theguardian.com/world/2021/mar/19/article-number-")
+                .append(i).toString();
+    }
+
+    private static List<News> buildNews() {
+        List<News> news = new ArrayList<>(NEWS_COUNT);
+        for (int i = 0; i < NEWS_COUNT; i++) {
+            news.add(new News(title(i), section(i), author(i), News.parseDate(date(i)), url(i)));
+        }
+        return news;
+    }
+
+    private static List<LegacyNews> buildLegacyNews() {
+        List<LegacyNews> news = new ArrayList<>(NEWS_COUNT);
+        for (int i = 0; i < NEWS_COUNT; i++) {
+            news.add(new LegacyNews(title(i), section(i), author(i), date(i), url(i)));
+        }
+        return news;
+    }
+
+    /**
+     * The sizes of the estimate, as on a 64-bit VM with compressed references: the header of an
+     * object, the header of an array (with its length), a reference, and the alignment of every
+     * object in memory
+     */
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ALIGNMENT_BYTES = 8;
+
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT_BYTES - 1) / ALIGNMENT_BYTES * ALIGNMENT_BYTES;
+    }
+
+    /**
+     * @return the estimated size of the given object itself: its header and its fields
+     */
+    private static long shallowBytes(Object object) {
+        long bytes = OBJECT_HEADER_BYTES;
+        for (Class<?> type = object.getClass(); type != Object.class;
+             type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (!fieldType.isPrimitive()) {
+                    bytes += REFERENCE_BYTES;
+                } else if (fieldType == long.class || fieldType == double.class) {
+                    bytes += 8;
+                } else if (fieldType == int.class || fieldType == float.class) {
+                    bytes += 4;
+                } else if (fieldType == char.class || fieldType == short.class) {
+                    bytes += 2;
+                } else {
+                    bytes += 1;
+                }
+            }
+        }
+        return align(bytes);
+    }
+
+    /**
+     * @return the estimated size of the given string: the String object, with a reference to
+     * its array, its hash and its coder, and the array which holds a byte for every char, or two
+     * if any of them isn't Latin-1
+     */
+    private static long stringBytes(String string) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return align(OBJECT_HEADER_BYTES + REFERENCE_BYTES + 4 + 1 + 1)
+                + align(ARRAY_HEADER_BYTES + (long) string.length() * bytesPerChar);
+    }
+
+    /**
+     * Estimate the bytes which the given objects retain, the way a heap dump counts them: every
+     * object and every string which they hold in their fields is counted once, however many of
+     * the objects share it.
+     */
+    private static long retainedBytes(List<?> objects) throws IllegalAccessException {
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (Object object : objects) {
+            bytes += shallowBytes(object);
+            for (Field field : object.getClass().getDeclaredFields()) {
+                if (field.getType() != String.class || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String value = (String) field.get(object);
+                if (value != null && strings.add(value)) {
+                    bytes += stringBytes(value);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Test
+    public void sharesRepeatedValues() {
+        NewsFormatter formatter = new NewsFormatter("Section Name:", "Author:", "Date:");
+        List<News> news = formatter.format(buildNews());
+
+        Set<String> sections = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> authors = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> labels = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (News item : news) {
+            sections.add(item.getmSectionName());
+            authors.add(item.getmAuthor());
+            labels.add(item.getSectionLabel());
+            labels.add(item.getAuthorLabel());
+            labels.add(item.getDateLabel());
+        }
+
+        // Every distinct value is held only once, however many news there are
+        assertEquals(SECTION_COUNT, sections.size());
+        assertEquals(AUTHOR_COUNT, authors.size());
+        assertTrue(labels.size() <= SECTION_COUNT + AUTHOR_COUNT + DAY_COUNT);
+    }
+
+    @Test
+    public void retainsFewerBytesThanLegacyRepresentation() throws IllegalAccessException {
+        // The legacy news built their labels while a row was bound, so they held none. A compact
+        // news holds its three labels, which are counted here as well.
+        NewsFormatter formatter = new NewsFormatter("Section Name:", "Author:", "Date:");
+        List<News> news = formatter.format(buildNews());
+        assertTrue(news.get(0).isFormatted());
+
+        // A compact news has more fields than a legacy one, but it only holds its title and URL
+        // of its own, and shares its section name, author and labels with all of the others
+        long legacyBytes = retainedBytes(buildLegacyNews());
+        long compactBytes = retainedBytes(news);
+        assertTrue(shallowBytes(news.get(0)) > shallowBytes(buildLegacyNews().get(0)));
+        assertTrue("Compact news retain " + compactBytes + " bytes, legacy news " + legacyBytes,
+                compactBytes < legacyBytes * 0.7);
+    }
+}
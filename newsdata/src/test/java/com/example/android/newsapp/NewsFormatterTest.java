@@ -0,0 +1,70 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NewsFormatterTest {
+
+    private static final long DATE = News.parseDate("2021-03-19T17:11:03Z");
+
+    private final NewsFormatter mFormatter = new NewsFormatter("Section Name:", "Author:", "Date:");
+
+    @Test
+    public void buildsLabelsOnce() {
+        News unformatted = new News("Title", "World news", "Jane Doe", DATE, "url");
+        assertFalse(unformatted.isFormatted());
+
+        News news = mFormatter.format(unformatted);
+        assertTrue(news.isFormatted());
+        assertFalse(unformatted.isFormatted());
+        assertEquals("Title", news.getmTitle());
+        assertEquals(DATE, news.getmDateMillis());
+        assertEquals("Section Name: World news", news.getSectionLabel());
+        assertEquals("Author: Jane Doe", news.getAuthorLabel());
+        assertEquals("Date: 03. 19. 2021", news.getDateLabel());
+
+        // Formatting the news again keeps the same labels
+        assertSame(news, mFormatter.format(news));
+    }
+
+    @Test
+    public void formatsListIntoCopy() {
+        News formatted = mFormatter.format(new News("First", "World news", null, DATE, "1"));
+        List<News> news = Arrays.asList(formatted,
+                new News("Second", "Sport", null, DATE, "2"));
+
+        List<News> result = mFormatter.format(news);
+        assertNotSame(news, result);
+        assertSame(formatted, result.get(0));
+        assertEquals("Section Name: Sport", result.get(1).getSectionLabel());
+        assertFalse(news.get(1).isFormatted());
+
+        // Nothing is copied when all of the news are formatted already
+        assertSame(result, mFormatter.format(result));
+    }
+
+    @Test
+    public void leavesOutUnknownAuthorAndDate() {
+        News news = mFormatter.format(new News("Title", "World news", null, News.NO_DATE, "url"));
+
+        assertFalse(news.hasAuthor());
+        assertFalse(news.hasDate());
+        assertNull(news.getAuthorLabel());
+        assertNull(news.getDateLabel());
+    }
+
+    @Test
+    public void parsesPublishedDate() {
+        News news = new News("Title", "World news", null, DATE, "url");
+        assertTrue(news.hasDate());
+        assertEquals(1616173863000L, news.getmDateMillis());
+
+        // A date which can't be parsed is treated as unknown
+        News broken = new News("Title", "World news", null, News.parseDate("yesterday"), "url");
+        assertFalse(broken.hasDate());
+    }
+}
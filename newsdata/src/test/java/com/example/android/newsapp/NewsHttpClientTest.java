@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the connection reuse, the compression, the timeouts and the aborts against a local HTTP
+ * server.
+ */
+public class NewsHttpClientTest {
+
+    private FakeGuardianServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mServer.setResults(200, "v1");
+        QueryUtils.setHttpClient(new NewsHttpClient());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        QueryUtils.setHttpClient(new NewsHttpClient());
+    }
+
+    @Test
+    public void reusesConnectionForFollowingPages() {
+        for (int page = 1; page <= 5; page++) {
+            List<News> news = QueryUtils.fetchNewsData(mServer.pageUrl(page));
+            assertEquals(200, news.size());
+        }
+
+        assertEquals(5, mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void decompressesGzipResponses() {
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl());
+
+        assertEquals(200, news.size());
+        assertEquals("Article number 199", news.get(199).getmTitle());
+
+        // The generated results are very repetitive, so they compress well
+        int uncompressedBytes = FakeGuardianServer.searchResponse(200).length();
+        assertTrue(mServer.getSentBytes() * 5 < uncompressedBytes);
+    }
+
+    @Test
+    public void clientWithoutMetricsRecordsNothing() throws Exception {
+        NewsMetrics metrics = NewsMetrics.getInstance();
+        metrics.reset();
+        NewsHttpClient client = new NewsHttpClient(NewsHttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                NewsHttpClient.DEFAULT_READ_TIMEOUT_MILLIS, null);
+
+        try (NewsHttpClient.Response response = client.get(new URL(mServer.searchUrl()), null)) {
+            assertEquals(200, response.getCode());
+        }
+
+        NewsMetrics.Snapshot snapshot = metrics.snapshot();
+        for (NewsMetrics.Metric metric : NewsMetrics.Metric.values()) {
+            assertEquals(metric.name(), 0, snapshot.get(metric).getCount());
+        }
+    }
+
+    @Test
+    public void closingAnAbortedResponseReadsNothing() throws Exception {
+        NewsHttpClient client = new NewsHttpClient();
+        NewsHttpClient.Response response = client.get(new URL(mServer.searchUrl()), null);
+        assertTrue(response.getBody().read() != -1);
+
+        // Closing doesn't fail on the closed connection
+        response.abort();
+        response.close();
+    }
+
+    @Test
+    public void givesUpAfterReadTimeout() {
+        QueryUtils.setHttpClient(new NewsHttpClient(1000, 200));
+        mServer.setDelayMillis(1000);
+
+        long start = System.nanoTime();
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl());
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertNull(news);
+        assertTrue(elapsedMillis < 900);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NewsMemoryCacheTest {
+
+    // Fake clock, in nanoseconds
+    private long mNow;
+
+    private final NewsMemoryCache mCache = new NewsMemoryCache(10, 1000, () -> mNow);
+
+    private static List<News> news(int count) {
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            news.add(new News("Title " + i, "World", null, News.NO_DATE, "url" + i));
+        }
+        return news;
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        assertNull(mCache.get("a"));
+        mCache.put("a", news(3));
+        assertEquals(3, mCache.get("a").size());
+        assertEquals(3, mCache.get("a").size());
+
+        assertEquals(2, mCache.hitCount());
+        assertEquals(1, mCache.missCount());
+    }
+
+    @Test
+    public void expiresEntriesAfterTtl() {
+        mCache.put("a", news(3));
+        mNow += TimeUnit.MILLISECONDS.toNanos(999);
+        assertNotNull(mCache.get("a"));
+
+        mNow += TimeUnit.MILLISECONDS.toNanos(2);
+        assertNull(mCache.get("a"));
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        mCache.put("a", news(4));
+        mCache.put("b", news(4));
+        // Use "a", so "b" is the least recently used entry
+        mCache.get("a");
+        mCache.put("c", news(4));
+
+        assertNotNull(mCache.get("a"));
+        assertNull(mCache.get("b"));
+        assertNotNull(mCache.get("c"));
+        assertEquals(8, mCache.size());
+        assertEquals(1, mCache.evictionCount());
+    }
+
+    @Test
+    public void doesNotStoreListsBiggerThanTheCache() {
+        mCache.put("a", news(11));
+        assertNull(mCache.get("a"));
+        assertEquals(0, mCache.size());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a load records the time of all of its stages, against a local HTTP server.
+ */
+public class NewsMetricsTest {
+
+    private FakeGuardianServer mServer;
+    private final NewsMetrics mMetrics = NewsMetrics.getInstance();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void recordsEveryStageOfALoad() {
+        mServer.setResults(200, "v1");
+        mServer.setDelayMillis(50);
+
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl());
+        NewsMetrics.Snapshot snapshot = mMetrics.snapshot();
+
+        for (NewsMetrics.Metric metric : new NewsMetrics.Metric[]{NewsMetrics.Metric.CONNECT,
+                NewsMetrics.Metric.TIME_TO_FIRST_BYTE,
+                NewsMetrics.Metric.DOWNLOAD, NewsMetrics.Metric.BYTES_READ,
+                NewsMetrics.Metric.PARSE, NewsMetrics.Metric.ITEMS, NewsMetrics.Metric.LOAD}) {
+            assertEquals(metric.name(), 1, snapshot.get(metric).getCount());
+        }
+
+        // The server waits before it sends the headers
+        assertTrue(snapshot.get(NewsMetrics.Metric.TIME_TO_FIRST_BYTE).getMax() >= 50_000_000L);
+        assertEquals(mServer.getSentBytes(), snapshot.get(NewsMetrics.Metric.BYTES_READ).getSum());
+        assertEquals(news.size(), snapshot.get(NewsMetrics.Metric.ITEMS).getSum());
+
+        // The stages are part of the whole load
+        long load = snapshot.get(NewsMetrics.Metric.LOAD).getSum();
+        assertTrue(snapshot.get(NewsMetrics.Metric.TIME_TO_FIRST_BYTE).getSum() < load);
+        assertTrue(snapshot.get(NewsMetrics.Metric.PARSE).getSum() < load);
+    }
+
+    @Test
+    public void snapshotListsEveryMetric() {
+        mMetrics.record(NewsMetrics.Metric.BIND, 1500);
+
+        String text = mMetrics.snapshot().toString();
+        for (NewsMetrics.Metric metric : NewsMetrics.Metric.values()) {
+            assertTrue(text, text.contains(metric.name().toLowerCase()));
+        }
+        assertTrue(text, text.contains("bind [ns] count=1 mean=1500"));
+    }
+}
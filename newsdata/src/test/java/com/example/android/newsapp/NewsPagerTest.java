@@ -0,0 +1,122 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NewsPagerTest {
+
+    private final NewsPager mPager = new NewsPager(10, 3);
+
+    /**
+     * Start again with the first page of the single section
+     */
+    private void reset(int count) {
+        mPager.onSectionLoaded(0, 1, count);
+        mPager.reset(1, count);
+    }
+
+    /**
+     * Add the next page of the single section to the end of the window
+     */
+    private int append(int count) {
+        int page = mPager.getFirstPage() + mPager.getPageCounts().length;
+        mPager.onSectionLoaded(0, page, count);
+        return mPager.appendPage(count);
+    }
+
+    @Test
+    public void appendsPagesUntilTheLastOne() {
+        reset(10);
+        assertEquals(2, mPager.getNextPage());
+        assertEquals(0, append(10));
+        assertEquals(3, mPager.getNextPage());
+
+        // A page which isn't full is the last one
+        assertEquals(0, append(4));
+        assertEquals(0, mPager.getNextPage());
+        assertEquals(0, mPager.getPreviousPage());
+    }
+
+    @Test
+    public void evictsFirstPageWhenWindowIsFull() {
+        reset(10);
+        append(10);
+        append(10);
+        assertEquals(10, append(10));
+
+        assertEquals(1, mPager.getPreviousPage());
+        assertEquals(5, mPager.getNextPage());
+    }
+
+    @Test
+    public void evictsLastPageWhenScrollingBack() {
+        reset(10);
+        append(10);
+        append(10);
+        append(7);
+        assertEquals(0, mPager.getNextPage());
+
+        // Pages 2-4 are in the window, so loading page 1 evicts page 4
+        assertEquals(7, mPager.prependPage(10));
+        assertEquals(0, mPager.getPreviousPage());
+        assertEquals(4, mPager.getNextPage());
+    }
+
+    @Test
+    public void endsWhenEverySectionEnded() {
+        NewsPager pager = new NewsPager(10, 2, 5);
+        assertEquals(20, pager.getPageSize());
+
+        // The merged page is short because the sections share news, but both have more pages
+        pager.onSectionLoaded(0, 1, 10);
+        pager.onSectionLoaded(1, 1, 10);
+        pager.reset(1, 14);
+        assertEquals(2, pager.getNextPage());
+
+        // The second section ended, so only the first one is requested from now on
+        pager.onSectionLoaded(0, 2, 10);
+        pager.onSectionLoaded(1, 2, 3);
+        pager.appendPage(13);
+        assertEquals(3, pager.getNextPage());
+        assertTrue(pager.hasSectionPage(0, 3));
+        assertFalse(pager.hasSectionPage(1, 3));
+        assertTrue(pager.hasSectionPage(1, 2));
+
+        pager.onSectionLoaded(0, 3, 0);
+        pager.appendPage(0);
+        assertEquals(0, pager.getNextPage());
+    }
+
+    @Test
+    public void restoresSavedWindow() {
+        reset(10);
+        append(10);
+        append(10);
+        append(10);
+
+        NewsPager restored = new NewsPager(10, 3);
+        restored.restore(mPager.getFirstPage(), mPager.getPageCounts(),
+                mPager.getSectionLastPages());
+        assertEquals(2, restored.getFirstPage());
+        assertArrayEquals(new int[]{10, 10, 10}, restored.getPageCounts());
+        assertEquals(1, restored.getPreviousPage());
+        assertEquals(5, restored.getNextPage());
+
+        // The last page of the section is restored as well
+        restored.restore(1, new int[]{10, 4}, new int[]{2});
+        assertEquals(0, restored.getNextPage());
+    }
+
+    @Test
+    public void replacesFirstPageInPlace() {
+        reset(10);
+        append(10);
+
+        // The first page was loaded again and holds fewer news now, the next pages stay
+        assertEquals(10, mPager.replaceFirstPage(8));
+        assertEquals(1, mPager.getFirstPage());
+        assertArrayEquals(new int[]{8, 10}, mPager.getPageCounts());
+        assertEquals(3, mPager.getNextPage());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NewsSearchIndexTest {
+
+    private final NewsSearchIndex mIndex = new NewsSearchIndex();
+
+    @Test
+    public void tokenizeSplitsAndLowerCases() {
+        assertEquals(Arrays.asList("brexit", "deal", "eu", "s", "2021"),
+                NewsSearchIndex.tokenize("Brexit deal: EU's (2021)"));
+        assertTrue(NewsSearchIndex.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    public void matchesPrefixesOfEveryField() {
+        mIndex.add(news(1, "Climate talks resume", "World news", "Jane Doe"));
+
+        assertEquals(1, mIndex.search("clim", 10).size());
+        assertEquals(1, mIndex.search("wor", 10).size());
+        assertEquals(1, mIndex.search("DOE", 10).size());
+        assertTrue(mIndex.search("imate", 10).isEmpty());
+    }
+
+    @Test
+    public void everyWordHasToMatch() {
+        mIndex.add(news(1, "Climate talks resume", "World news", null));
+        mIndex.add(news(2, "Climate of fear", "Sport", null));
+
+        List<News> results = mIndex.search("climate talk", 10);
+        assertEquals(1, results.size());
+        assertEquals("https://example.com/1", results.get(0).getmURL());
+    }
+
+    @Test
+    public void ranksTitleAboveAuthorAboveSection() {
+        mIndex.add(news(1, "Markets", "Football", null));
+        mIndex.add(news(2, "Markets", "Business", "Anna Football"));
+        mIndex.add(news(3, "Football final", "Sport", null));
+
+        List<News> results = mIndex.search("football", 10);
+        assertEquals(3, results.size());
+        assertEquals("https://example.com/3", results.get(0).getmURL());
+        assertEquals("https://example.com/2", results.get(1).getmURL());
+        assertEquals("https://example.com/1", results.get(2).getmURL());
+    }
+
+    @Test
+    public void exactWordsRankAbovePrefixesAndNewerAboveOlder() {
+        mIndex.add(news(1, "Election day", "Politics", null));
+        mIndex.add(news(2, "Elections ahead", "Politics", null));
+        mIndex.add(news(3, "Election night", "Politics", null));
+
+        List<News> results = mIndex.search("election", 10);
+        assertEquals("https://example.com/3", results.get(0).getmURL());
+        assertEquals("https://example.com/1", results.get(1).getmURL());
+        assertEquals("https://example.com/2", results.get(2).getmURL());
+    }
+
+    @Test
+    public void replacesChangedNews() {
+        mIndex.add(news(1, "Old title", "World news", null));
+        mIndex.add(news(1, "New title", "World news", null));
+
+        assertEquals(1, mIndex.size());
+        assertTrue(mIndex.search("old", 10).isEmpty());
+        assertEquals(1, mIndex.search("new", 10).size());
+
+        // Adding the same news again doesn't change anything
+        for (int i = 0; i < 5; i++) {
+            mIndex.add(news(1, "New title", "World news", null));
+        }
+        assertEquals(1, mIndex.size());
+        assertEquals(1, mIndex.search("title", 10).size());
+    }
+
+    @Test
+    public void limitsResults() {
+        for (int i = 0; i < 50; i++) {
+            mIndex.add(news(i, "Story " + i, "World news", null));
+        }
+
+        List<News> results = mIndex.search("story", 10);
+        assertEquals(10, results.size());
+        assertEquals("https://example.com/49", results.get(0).getmURL());
+    }
+
+    @Test
+    public void dropsOldestNewsWhenFull() {
+        NewsSearchIndex index = new NewsSearchIndex(8);
+        // Added out of the order of their dates
+        for (int i : new int[]{4, 0, 8, 1, 5, 2, 6, 3, 7}) {
+            index.add(news(i, "Story " + i, "World news", null));
+        }
+
+        // The three quarters of the news which are the newest are kept
+        assertEquals(6, index.size());
+        List<News> results = index.search("story", 10);
+        assertEquals(6, results.size());
+        assertEquals("https://example.com/8", results.get(0).getmURL());
+        assertEquals("https://example.com/3", results.get(5).getmURL());
+        assertTrue(index.search("2", 10).isEmpty());
+    }
+
+    @Test
+    public void seedsStoredArticlesOnce() {
+        MemoryArticleStore store = new MemoryArticleStore();
+        List<News> articles = new ArrayList<>();
+        for (int i = 0; i < NewsSearchIndex.SEED_CHUNK_SIZE * 2 + 1; i++) {
+            articles.add(news(i, "Story " + i, "World news", null));
+        }
+        store.merge(articles);
+
+        mIndex.seed(store, articles.size());
+        assertEquals(articles.size(), mIndex.size());
+
+        store.merge(Collections.singletonList(news(-1, "Later story", "World news", null)));
+        mIndex.seed(store, articles.size() + 1);
+        assertEquals(articles.size(), mIndex.size());
+    }
+
+    @Test
+    public void answersQueriesQuicklyWithManyArticles() {
+        String[] words = {"election", "climate", "market", "football", "vaccine", "budget",
+                "storm", "court", "energy", "festival", "strike", "summit", "transfer"};
+        for (int i = 0; i < 30_000; i++) {
+            String title = words[i % words.length] + " " + words[(i / 7) % words.length]
+                    + " report number " + i;
+            mIndex.add(news(i, title, "Section " + i % 20, "Author " + i % 500));
+        }
+
+        String[] queries = {"e", "cli", "market st", "report", "author 4", "section 1 foot"};
+
+        // Warm up, then measure
+        for (int i = 0; i < 20; i++) {
+            for (String query : queries) {
+                mIndex.search(query, 100);
+            }
+        }
+        long start = System.nanoTime();
+        int rounds = 20;
+        for (int i = 0; i < rounds; i++) {
+            for (String query : queries) {
+                mIndex.search(query, 100);
+            }
+        }
+        long averageMicros = (System.nanoTime() - start) / 1000 / (rounds * queries.length);
+
+        assertTrue("A query took " + averageMicros + " microseconds on average", averageMicros < 10_000);
+    }
+
+    private static News news(int index, String title, String section, String author) {
+        return new News(title, section, author, index * 60_000L, "https://example.com/" + index);
+    }
+}
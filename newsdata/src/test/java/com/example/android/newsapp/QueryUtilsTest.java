@@ -0,0 +1,126 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the parsing of the search results in {@link QueryUtils}, with fixed responses
+ */
+public class QueryUtilsTest {
+
+    private static final String DATE = "2021-03-19T17:11:03Z";
+
+    /**
+     * @return a response of the search API with the given results, e.g. "{...}, {...}"
+     */
+    private static InputStream response(String results) {
+        String json = "{\"response\": {\"status\": \"ok\", \"total\": 2, \"results\": ["
+                + results + "]}}";
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parsesEveryField() {
+        List<News> parsed = new ArrayList<>();
+        List<News> news = QueryUtils.extractFeatureFromJson(response("{"
+                + "\"id\": \"world/1\", \"sectionName\": \"World news\", "
+                + "\"webPublicationDate\": \"" + DATE + "\", \"webTitle\": \"Title\", "
+                + "\"webUrl\": \"https://www.theguardian.com/world/1\", "
+                + "\"fields\": {\"thumbnail\": \"https://media.guim.co.uk/1.jpg\"}, "
+                + "\"tags\": [{\"webTitle\": \"Jane Doe\", \"firstName\": \"Jane\"}, "
+                + "{\"webTitle\": \"John Doe\"}]}"), parsed::add);
+
+        assertEquals(1, news.size());
+        News first = news.get(0);
+        assertEquals("Title", first.getmTitle());
+        assertEquals("World news", first.getmSectionName());
+        assertEquals("https://www.theguardian.com/world/1", first.getmURL());
+        assertEquals(News.parseDate(DATE), first.getmDateMillis());
+        assertEquals("https://media.guim.co.uk/1.jpg", first.getmThumbnailUrl());
+
+        // Only the first tag is the author
+        assertEquals("Jane Doe", first.getmAuthor());
+
+        // The listener gets every news as soon as it is parsed
+        assertEquals(news, parsed);
+    }
+
+    @Test
+    public void buildsAuthorFromFirstAndLastName() {
+        List<News> news = QueryUtils.extractFeatureFromJson(response(
+                "{\"tags\": [{\"lastName\": \"Doe\", \"firstName\": \"Jane\"}], "
+                        + "\"webTitle\": \"Both names\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"1\"}, "
+                        + "{\"webTitle\": \"First name only\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"2\", \"tags\": [{\"firstName\": \"Jane\"}]}"), null);
+
+        assertEquals(2, news.size());
+        assertEquals("Jane Doe", news.get(0).getmAuthor());
+
+        // Half of the name isn't shown
+        assertFalse(news.get(1).hasAuthor());
+    }
+
+    @Test
+    public void ignoresTagsAndFieldsOfTheWrongType() {
+        List<News> news = QueryUtils.extractFeatureFromJson(response(
+                "{\"webTitle\": \"Tags object\", \"sectionName\": \"Sport\", \"webUrl\": \"1\", "
+                        + "\"tags\": {\"webTitle\": \"Jane Doe\"}, \"fields\": [\"thumbnail\"]}, "
+                        + "{\"webTitle\": \"Tags string\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"2\", \"tags\": \"Jane Doe\", \"fields\": 3}, "
+                        + "{\"webTitle\": \"Tags of strings\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"3\", \"tags\": [\"Jane Doe\", {\"webTitle\": \"X\"}]}"),
+                null);
+
+        // The values are skipped, and the news are kept without an author or a thumbnail
+        assertEquals(3, news.size());
+        for (News item : news) {
+            assertFalse(item.hasAuthor());
+            assertFalse(item.hasThumbnail());
+        }
+        assertEquals("Tags of strings", news.get(2).getmTitle());
+    }
+
+    @Test
+    public void readsJsonNullsAsMissingValues() {
+        List<News> news = QueryUtils.extractFeatureFromJson(response(
+                "{\"webTitle\": \"Title\", \"sectionName\": \"Sport\", \"webUrl\": \"1\", "
+                        + "\"webPublicationDate\": null, \"fields\": {\"thumbnail\": null}, "
+                        + "\"tags\": [{\"webTitle\": null, \"firstName\": null, "
+                        + "\"lastName\": \"Doe\"}]}, "
+                        + "{\"webTitle\": \"Null objects\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"2\", \"tags\": null, \"fields\": null}"), null);
+
+        assertEquals(2, news.size());
+        News first = news.get(0);
+        assertFalse(first.hasDate());
+        assertFalse(first.hasThumbnail());
+        assertFalse(first.hasAuthor());
+        assertFalse(news.get(1).hasAuthor());
+        assertFalse(news.get(1).hasThumbnail());
+    }
+
+    @Test
+    public void skipsNewsWithoutTitleSectionOrUrl() {
+        List<News> parsed = new ArrayList<>();
+        List<News> news = QueryUtils.extractFeatureFromJson(response(
+                "{\"sectionName\": \"Sport\", \"webUrl\": \"1\"}, "
+                        + "{\"webTitle\": \"No section\", \"webUrl\": \"2\"}, "
+                        + "{\"webTitle\": \"No URL\", \"sectionName\": \"Sport\"}, "
+                        + "{\"webTitle\": null, \"sectionName\": \"Sport\", \"webUrl\": \"4\"}, "
+                        + "{\"webTitle\": \"Kept\", \"sectionName\": \"Sport\", "
+                        + "\"webUrl\": \"5\"}"),
+                parsed::add);
+
+        assertEquals(1, news.size());
+        assertEquals("Kept", news.get(0).getmTitle());
+        assertEquals(news, parsed);
+    }
+}
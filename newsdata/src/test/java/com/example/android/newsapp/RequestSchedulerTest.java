@@ -0,0 +1,198 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the rate limit, the order of the requests and the quota accounting of the scheduler.
+ */
+public class RequestSchedulerTest {
+
+    private FakeGuardianServer mServer;
+
+    // The priorities of the requests, in the order they were let through
+    private final List<LoadEngine.Priority> mOrder =
+            Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void limitsRateAfterBurst() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(20, 2);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            scheduler.acquire(null);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Two requests go right away, the other four one every 50 ms
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis >= 180);
+        assertEquals(6, scheduler.getGrantedCount());
+    }
+
+    @Test
+    public void visibleGoesBeforePrefetchBeforeBackground() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(5, 1);
+        scheduler.acquire(null);
+
+        // Queue the requests from the least to the most urgent one, while there is no token
+        List<Thread> threads = new ArrayList<>();
+        for (LoadEngine.Priority priority : new LoadEngine.Priority[]{
+                LoadEngine.Priority.BACKGROUND, LoadEngine.Priority.PREFETCH,
+                LoadEngine.Priority.VISIBLE}) {
+            threads.add(acquireInBackground(scheduler, priority));
+            Thread.sleep(20);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(LoadEngine.Priority.VISIBLE, mOrder.get(0));
+        assertEquals(LoadEngine.Priority.PREFETCH, mOrder.get(1));
+        assertEquals(LoadEngine.Priority.BACKGROUND, mOrder.get(2));
+    }
+
+    @Test
+    public void waitingRequestIsNotStarved() throws Exception {
+        // A waiting request gains a priority every 100 ms
+        RequestScheduler scheduler = new RequestScheduler(20, 1, 100);
+        scheduler.acquire(null);
+
+        Thread background = acquireInBackground(scheduler, LoadEngine.Priority.BACKGROUND);
+
+        // Keep visible requests waiting all of the time
+        List<Thread> visible = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            visible.add(new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        scheduler.acquire(new CancellationToken(LoadEngine.Priority.VISIBLE));
+                        mOrder.add(LoadEngine.Priority.VISIBLE);
+                    }
+                } catch (IOException e) {
+                    // Interrupted
+                }
+            }));
+        }
+        for (Thread thread : visible) {
+            thread.start();
+        }
+
+        background.join(2000);
+        for (Thread thread : visible) {
+            thread.interrupt();
+        }
+        assertFalse("The background request starved", background.isAlive());
+        assertTrue(mOrder.indexOf(LoadEngine.Priority.BACKGROUND) > 0);
+    }
+
+    @Test
+    public void cancelStopsWaiting() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(0.1, 1);
+        scheduler.acquire(null);
+
+        CancellationToken token = new CancellationToken();
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            token.cancel();
+        }).start();
+
+        try {
+            scheduler.acquire(token);
+            fail("The wait wasn't cancelled");
+        } catch (InterruptedIOException e) {
+            // Expected
+        }
+        assertEquals(1, scheduler.getGrantedCount());
+    }
+
+    @Test
+    public void keepsLowQuotaForVisibleRequests() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1000);
+        FetchEngine engine = new FetchEngine(new NewsHttpClient(),
+                new RetryPolicy(1, 20, 2000, new Random(1)), new CircuitBreaker(), scheduler, 0);
+        URL url = new URL(mServer.searchUrl());
+
+        // 5% of the quota is left, which is kept from the background work
+        mServer.setDailyQuota(1000, 50);
+        engine.get(url, null, new CancellationToken()).close();
+        assertEquals(50, scheduler.getDailyRemaining());
+        try {
+            engine.get(url, null, null).close();
+            fail("The background request was let through");
+        } catch (RequestScheduler.QuotaExceededException e) {
+            // Expected
+        }
+        engine.get(url, null, new CancellationToken(LoadEngine.Priority.PREFETCH)).close();
+
+        // 1% of the quota is left, which is kept for the news the user waits for
+        mServer.setDailyQuota(1000, 10);
+        engine.get(url, null, new CancellationToken()).close();
+        try {
+            engine.get(url, null, new CancellationToken(LoadEngine.Priority.PREFETCH)).close();
+            fail("The prefetch was let through");
+        } catch (RequestScheduler.QuotaExceededException e) {
+            // Expected
+        }
+        engine.get(url, null, new CancellationToken()).close();
+
+        assertEquals(4, mServer.getRequestCount());
+    }
+
+    @Test
+    public void countsRequestsUntilQuotaIsReported() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1000);
+        FetchEngine engine = new FetchEngine(new NewsHttpClient(),
+                new RetryPolicy(1, 20, 2000, new Random(1)), new CircuitBreaker(), scheduler, 0);
+        URL url = new URL(mServer.searchUrl());
+
+        mServer.setDailyQuota(1000, 500);
+        engine.get(url, null, null).close();
+        assertEquals(500, scheduler.getDailyRemaining());
+
+        // A request which was let through counts before its response arrives
+        assertTrue(scheduler.tryAcquire(LoadEngine.Priority.BACKGROUND));
+        assertEquals(499, scheduler.getDailyRemaining());
+    }
+
+    /**
+     * Acquire a request with the given priority on a new thread, and record when it was let
+     * through
+     */
+    private Thread acquireInBackground(RequestScheduler scheduler, LoadEngine.Priority priority) {
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.acquire(new CancellationToken(priority));
+                mOrder.add(priority);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the waits between the retries, and the parsing of the Retry-After header.
+ */
+public class RetryPolicyTest {
+
+    private final RetryPolicy mPolicy = new RetryPolicy(6, 100, 1000, new Random(7));
+
+    @Test
+    public void backoffGrowsWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            long first = mPolicy.getDelayMillis(1, -1);
+            assertTrue(first >= 50 && first <= 100);
+            long second = mPolicy.getDelayMillis(2, -1);
+            assertTrue(second >= 100 && second <= 200);
+            long third = mPolicy.getDelayMillis(3, -1);
+            assertTrue(third >= 200 && third <= 400);
+            long fourth = mPolicy.getDelayMillis(4, -1);
+            assertTrue(fourth >= 400 && fourth <= 800);
+            // Capped by the longest wait
+            long fifth = mPolicy.getDelayMillis(5, -1);
+            assertTrue(fifth >= 500 && fifth <= 1000);
+        }
+    }
+
+    @Test
+    public void noRetryAfterLastAttempt() {
+        assertEquals(-1, mPolicy.getDelayMillis(6, -1));
+        assertEquals(-1, mPolicy.getDelayMillis(6, 100));
+    }
+
+    @Test
+    public void retryAfterReplacesBackoff() {
+        assertEquals(700, mPolicy.getDelayMillis(1, 700));
+        assertEquals(0, mPolicy.getDelayMillis(1, 0));
+        // Longer than the longest wait, so it isn't retried
+        assertEquals(-1, mPolicy.getDelayMillis(1, 5000));
+    }
+
+    @Test
+    public void retryableCodes() {
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(500));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertFalse(RetryPolicy.isRetryable(200));
+        assertFalse(RetryPolicy.isRetryable(304));
+        assertFalse(RetryPolicy.isRetryable(404));
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        // Wed, 21 Oct 2015 07:28:00 GMT
+        long now = 1445412480000L;
+        assertEquals(120_000, RetryPolicy.parseRetryAfter("120", now));
+        assertEquals(0, RetryPolicy.parseRetryAfter(" 0 ", now));
+        assertEquals(30_000,
+                RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:30 GMT", now));
+        // A date in the past means right away
+        assertEquals(0, RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:00:00 GMT", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null, now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("-5", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", now));
+    }
+}
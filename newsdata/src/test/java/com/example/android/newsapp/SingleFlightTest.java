@@ -0,0 +1,157 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> mSingleFlight = new SingleFlight<>();
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> mSingleFlight.execute("url", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "result";
+                })));
+            }
+
+            // Wait until all of the callers either execute the call or wait for it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (mSingleFlight.getExecutedCount() + mSingleFlight.getSharedCount() < 4
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("result", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, mSingleFlight.getExecutedCount());
+        assertEquals(3, mSingleFlight.getSharedCount());
+    }
+
+    @Test
+    public void sequentialCallsAreExecutedAgain() {
+        AtomicInteger calls = new AtomicInteger();
+        mSingleFlight.execute("url", () -> "first " + calls.incrementAndGet());
+        String second = mSingleFlight.execute("url", () -> "second " + calls.incrementAndGet());
+
+        assertEquals("second 2", second);
+        assertEquals(0, mSingleFlight.getSharedCount());
+    }
+
+    @Test
+    public void differentKeysAreNotShared() {
+        assertEquals("a", mSingleFlight.execute("a", () -> "a"));
+        assertEquals("b", mSingleFlight.execute("b", () -> "b"));
+        assertEquals(2, mSingleFlight.getExecutedCount());
+    }
+
+    @Test
+    public void waitingCallerExecutesTheCallAgainWhenTheOwnerIsCancelled() throws Exception {
+        CancellationToken ownerToken = new CancellationToken();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = executor.submit(() -> mSingleFlight.execute("url", () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ownerToken.isCancelled() ? null : "owner";
+            }, ownerToken));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<String> joiner = executor.submit(() ->
+                    mSingleFlight.execute("url", () -> "joiner", new CancellationToken()));
+            waitForSharedCount(1);
+
+            ownerToken.cancel();
+            release.countDown();
+
+            assertNull(owner.get(5, TimeUnit.SECONDS));
+            assertEquals("joiner", joiner.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, mSingleFlight.getExecutedCount());
+    }
+
+    @Test
+    public void waitingCallerStopsWaitingWhenItsTokenIsCancelled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = executor.submit(() -> mSingleFlight.execute("url", () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "owner";
+            }, new CancellationToken()));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            CancellationToken joinerToken = new CancellationToken();
+            Future<String> joiner = executor.submit(() ->
+                    mSingleFlight.execute("url", () -> "joiner", joinerToken));
+            waitForSharedCount(1);
+
+            // The joiner stops waiting, while the call goes on
+            joinerToken.cancel();
+            assertNull(joiner.get(1, TimeUnit.SECONDS));
+            assertFalse(owner.isDone());
+
+            release.countDown();
+            assertEquals("owner", owner.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rethrowsExceptionsOfTheCall() {
+        mSingleFlight.execute("url", () -> {
+            throw new IllegalStateException("failed");
+        });
+    }
+
+    private void waitForSharedCount(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mSingleFlight.getSharedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, mSingleFlight.getSharedCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the delta sync into the article store against a local HTTP server.
+ */
+public class SyncEngineTest {
+
+    private FakeGuardianServer mServer;
+    private MemoryArticleStore mStore;
+    private SyncEngine mEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mStore = new MemoryArticleStore();
+        mEngine = new SyncEngine(mStore, mServer.baseUrl(), Collections.singletonList("world"));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void firstSyncStoresAllArticles() {
+        mServer.setResults(10, "v1");
+
+        assertEquals(10, mEngine.sync());
+        assertFalse(mServer.getLastQuery().contains("from-date"));
+    }
+
+    @Test
+    public void nextSyncOnlyMergesTheDelta() {
+        mServer.setResults(10, "v1");
+        mEngine.sync();
+
+        // Nothing new was published
+        assertEquals(0, mEngine.sync());
+        assertTrue(mServer.getLastQuery().contains("from-date=2021-03-10"));
+        assertTrue(mServer.getLastQuery().contains("order-by=oldest"));
+
+        // Five articles were published since
+        mServer.setResults(15, "v2");
+        assertEquals(5, mEngine.sync());
+    }
+
+    @Test
+    public void articlesMergedByTheListDontSkipTheGap() {
+        mServer.setTimeline(10);
+        assertEquals(10, mEngine.sync());
+
+        // While the sync didn't run, ten articles were published, and the list merged the
+        // newest one into the store
+        mServer.setTimeline(20);
+        mStore.merge(Collections.singletonList(new News("Article number 19", "World news", null,
+                FakeGuardianServer.timelineDateMillis(19), FakeGuardianServer.timelineUrl(19))));
+
+        mEngine.sync();
+        assertTrue(mServer.getLastQuery().contains(
+                "from-date=" + SyncEngine.formatFromDate(FakeGuardianServer.timelineDateMillis(9))));
+        assertEquals(20, mStore.size());
+    }
+
+    @Test
+    public void deltaWhichDoesntFitIsSyncedOverSeveralSyncs() {
+        mServer.setTimeline(10);
+        mEngine.sync();
+
+        int delta = SyncEngine.SYNC_PAGE_SIZE * SyncEngine.MAX_SYNC_PAGES + 100;
+        mServer.setTimeline(10 + delta);
+
+        // The oldest articles of the delta come first, so there is never a gap in the store
+        mEngine.sync();
+        int synced = mStore.size();
+        assertEquals(10 + SyncEngine.SYNC_PAGE_SIZE * SyncEngine.MAX_SYNC_PAGES - 1, synced);
+        assertEquals(FakeGuardianServer.timelineDateMillis(synced - 1),
+                mStore.getNewestDateMillis());
+
+        // The next sync continues where the previous one stopped
+        mEngine.sync();
+        assertEquals(10 + delta, mStore.size());
+    }
+
+    @Test
+    public void storesArticlesNewestFirst() {
+        mServer.setResults(10, "v1");
+        mEngine.sync();
+
+        List<News> news = mStore.getNewest(100);
+        assertEquals(10, news.size());
+        assertEquals(News.parseDate("2021-03-10T17:11:03Z"), mStore.getNewestDateMillis());
+        for (int i = 1; i < news.size(); i++) {
+            assertTrue(news.get(i - 1).getmDateMillis() >= news.get(i).getmDateMillis());
+        }
+    }
+
+    @Test
+    public void buildsSearchUrl() {
+        assertEquals(mServer.baseUrl() + "search?section=world&from-date=2021-03-10"
+                        + "&order-by=oldest&show-tags=contributor&show-fields=thumbnail"
+                        + "&page=2&page-size=50&api-key=test",
+                mEngine.buildUrl("world", "2021-03-10", true, 2));
+    }
+
+    @Test
+    public void failedSyncKeepsTheStore() {
+        mServer.setResults(10, "v1");
+        mEngine.sync();
+        mServer.close();
+
+        assertEquals(SyncEngine.SYNC_FAILED, mEngine.sync());
+        assertEquals(10, mStore.size());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the loads measure the network, against a local HTTP server with a throttled
+ * bandwidth.
+ */
+public class ThroughputEstimatorTest {
+
+    private FakeGuardianServer mServer;
+    private final ThroughputEstimator mEstimator = ThroughputEstimator.getInstance();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeGuardianServer();
+        mEstimator.reset();
+
+        // A new engine, which doesn't hedge the slow responses with the latencies it measured
+        // in the other tests, so every response is only sent once
+        QueryUtils.setHttpClient(new NewsHttpClient());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        mEstimator.reset();
+    }
+
+    @Test
+    public void measuresAThrottledServer() {
+        mServer.setResults(600, "v1");
+        mServer.setDelayMillis(200);
+        mServer.setBytesPerSecond(10 * 1024);
+
+        List<News> news = QueryUtils.fetchNewsData(mServer.searchUrl());
+
+        assertEquals(600, news.size());
+        assertTrue(mServer.getSentBytes() >= ThroughputEstimator.MIN_THROUGHPUT_SAMPLE_BYTES);
+        long bytesPerSecond = mEstimator.getBytesPerSecond();
+        assertTrue("measured " + bytesPerSecond,
+                bytesPerSecond > 5 * 1024 && bytesPerSecond <= 12 * 1024);
+        assertTrue(mEstimator.getLatencyMillis() >= 200);
+        assertEquals(mServer.getSentBytes() / 600.0, mEstimator.getBytesPerNews(), 1);
+
+        // The link is too slow for the extra fields
+        assertFalse(new AdaptiveRequestPolicy(mEstimator).shouldRequestExtraFields());
+    }
+
+    @Test
+    public void fastServerGetsTheBiggestPages() {
+        mServer.setResults(600, "v1");
+
+        QueryUtils.fetchNewsData(mServer.searchUrl());
+
+        AdaptiveRequestPolicy policy = new AdaptiveRequestPolicy(mEstimator);
+        assertTrue(mEstimator.getBytesPerSecond() > AdaptiveRequestPolicy.SLOW_BYTES_PER_SECOND);
+        assertTrue(policy.shouldRequestExtraFields());
+        assertEquals(AdaptiveRequestPolicy.MAX_SECTION_PAGE_SIZE, policy.getSectionPageSize());
+    }
+
+    @Test
+    public void smallResponsesOnlyMeasureTheLatency() {
+        mServer.setResults(5, "v1");
+        mServer.setDelayMillis(100);
+
+        QueryUtils.fetchNewsData(mServer.searchUrl());
+
+        assertEquals(-1, mEstimator.getBytesPerSecond());
+        assertTrue(mEstimator.getLatencyMillis() >= 100);
+        assertTrue(mEstimator.getBytesPerNews() > 0);
+    }
+
+    @Test
+    public void recentSamplesWeighMore() {
+        mEstimator.addSample(100_000, 1_000_000_000L, 0, 100);
+        mEstimator.addSample(10_000, 1_000_000_000L, 0, 10);
+        mEstimator.addSample(10_000, 1_000_000_000L, 0, 10);
+
+        long bytesPerSecond = mEstimator.getBytesPerSecond();
+        assertTrue(bytesPerSecond < 55_000 && bytesPerSecond > 10_000);
+        assertEquals(1000, mEstimator.getBytesPerNews());
+    }
+}
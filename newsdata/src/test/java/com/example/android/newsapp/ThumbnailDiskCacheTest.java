@@ -0,0 +1,91 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the byte bound and the eviction order of the thumbnail cache.
+ */
+public class ThumbnailDiskCacheTest {
+
+    private static final int IMAGE_BYTES = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private ThumbnailDiskCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = mFolder.newFolder("thumbnails");
+        mCache = new ThumbnailDiskCache(mDirectory, 3 * IMAGE_BYTES);
+    }
+
+    @Test
+    public void storesImages() {
+        mCache.put("https://example.com/a.jpg", image(1));
+
+        assertArrayEquals(image(1), mCache.get("https://example.com/a.jpg"));
+        assertNull(mCache.get("https://example.com/b.jpg"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedImages() {
+        mCache.put("a", image(1));
+        mCache.put("b", image(2));
+        mCache.put("c", image(3));
+
+        // Use the oldest image, so the second one is evicted instead
+        assertNotNull(mCache.get("a"));
+        mCache.put("d", image(4));
+
+        assertNotNull(mCache.get("a"));
+        assertNull(mCache.get("b"));
+        assertNotNull(mCache.get("c"));
+        assertNotNull(mCache.get("d"));
+        assertEquals(3 * IMAGE_BYTES, mCache.size());
+        assertEquals(3, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void replacingAnImageKeepsTheSize() {
+        mCache.put("a", image(1));
+        mCache.put("a", image(2));
+
+        assertEquals(IMAGE_BYTES, mCache.size());
+        assertArrayEquals(image(2), mCache.get("a"));
+    }
+
+    @Test
+    public void ignoresImagesBiggerThanTheCache() {
+        mCache.put("huge", new byte[4 * IMAGE_BYTES]);
+
+        assertNull(mCache.get("huge"));
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void keepsImagesAcrossInstances() {
+        mCache.put("a", image(1));
+        mCache.put("b", image(2));
+
+        ThumbnailDiskCache reopened = new ThumbnailDiskCache(mDirectory, 3 * IMAGE_BYTES);
+        assertEquals(2 * IMAGE_BYTES, reopened.size());
+        assertArrayEquals(image(2), reopened.get("b"));
+    }
+
+    private static byte[] image(int seed) {
+        byte[] data = new byte[IMAGE_BYTES];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+}